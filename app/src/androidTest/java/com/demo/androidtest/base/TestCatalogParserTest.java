@@ -0,0 +1,80 @@
+package com.demo.androidtest.base;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.demo.androidtest.model.TestItem;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestCatalogParser 流式解析测试（依赖框架的android.util.JsonReader，在设备上运行）
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestCatalogParserTest {
+    private final List<TestItem> mItems = new ArrayList<>();
+    private final List<Integer> mSkipped = new ArrayList<>();
+    private final TestCatalogParser.Sink mSink = new TestCatalogParser.Sink() {
+        @Override
+        public void onItem(TestItem item) {
+            mItems.add(item);
+        }
+
+        @Override
+        public void onSkipped(int index, String reason) {
+            mSkipped.add(index);
+        }
+    };
+
+    private static InputStream json(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void skipsMalformedEntriesIndividually() throws IOException {
+        int produced = TestCatalogParser.parse(json("["
+                + "{\"title\":\"A\",\"activityClass\":\"a.A\",\"tags\":[\"x\",{\"y\":1}],\"params\":{\"n\":2}},"
+                + "{\"title\":\"missing class\"},"
+                + "{\"title\":{\"nested\":true},\"activityClass\":\"b.B\"},"
+                + "\"not an object\","
+                + "{\"activityClass\":\"c.C\",\"title\":\"C\"}"
+                + "]"), mSink);
+        assertEquals(2, produced);
+        assertEquals("A", mItems.get(0).getTitle());
+        assertEquals("c.C", mItems.get(1).getActivityClass());
+        assertEquals(3, mSkipped.size());
+        assertEquals(Integer.valueOf(1), mSkipped.get(0));
+        assertEquals(Integer.valueOf(3), mSkipped.get(2));
+    }
+
+    @Test
+    public void keepsItemsParsedBeforeSyntaxError() {
+        try {
+            TestCatalogParser.parse(json("[{\"title\":\"A\",\"activityClass\":\"a.A\"}, {\"title\": ]"), mSink);
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertEquals(1, mItems.size());
+        }
+    }
+
+    @Test
+    public void parsesLargeCatalogs() throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 20_000; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"title\":\"T").append(i).append("\",\"activityClass\":\"x.Y\",\"tags\":[\"a\",\"b\"]}");
+        }
+        sb.append(']');
+        assertEquals(20_000, TestCatalogParser.parse(json(sb.toString()), mSink));
+        assertEquals("T19999", mItems.get(19_999).getTitle());
+    }
+}
@@ -10,8 +10,10 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
+import com.demo.androidtest.base.BaseTestActivity;
 import com.demo.androidtest.base.TestConfigManager;
 import com.demo.androidtest.model.TestItem;
+import java.util.ArrayList;
 import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
@@ -29,43 +31,56 @@ public class MainActivity extends AppCompatActivity {
         RecyclerView rvTestList = findViewById(R.id.rv_test_list);
         rvTestList.setLayoutManager(new LinearLayoutManager(this));
 
-        // 加载配置文件中的测试项
-        List<TestItem> testItems = TestConfigManager.loadTestItems(this);
-        rvTestList.setAdapter(new TestItemAdapter(testItems));
+        // 加载配置文件中的测试项：有快照时立即显示，否则后台解析并逐批追加
+        TestItemAdapter adapter = new TestItemAdapter(new ArrayList<>());
+        rvTestList.setAdapter(adapter);
+        TestConfigManager.loadTestItemsAsync(this, (items, complete) -> {
+            if (!isDestroyed()) adapter.append(items);
+        });
     }
 
     // 测试项列表适配器
     class TestItemAdapter extends RecyclerView.Adapter<TestItemAdapter.ViewHolder> {
         private List<TestItem> mTestItems;
+        // 所有条目共用的点击监听，按位置查找测试项
+        private final View.OnClickListener mClickListener = this::onItemClick;
 
         public TestItemAdapter(List<TestItem> testItems) {
             mTestItems = testItems;
         }
 
+        void append(List<TestItem> items) {
+            if (items.isEmpty()) return;
+            int start = mTestItems.size();
+            mTestItems.addAll(items);
+            notifyItemRangeInserted(start, items.size());
+        }
+
         @Override
         public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
             View view = LayoutInflater.from(parent.getContext())
                     .inflate(android.R.layout.simple_list_item_1, parent, false);
-            return new ViewHolder(view);
+            ViewHolder holder = new ViewHolder(view);
+            view.setTag(holder);
+            view.setOnClickListener(mClickListener);
+            return holder;
         }
 
-        // MainActivity.java 中 TestItemAdapter 的 onBindViewHolder 方法
         @Override
         public void onBindViewHolder(ViewHolder holder, int position) {
+            holder.tvTitle.setText(mTestItems.get(position).getTitle());
+        }
+
+        // 跳转对应测试项Activity（组件在加载时已按清单校验），传递title参数
+        private void onItemClick(View v) {
+            int position = ((ViewHolder) v.getTag()).getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
             TestItem item = mTestItems.get(position);
-            holder.tvTitle.setText(item.getTitle());
-            // 跳转对应测试项Activity，传递title参数
-            holder.itemView.setOnClickListener(v -> {
-                try {
-                    Class<?> clazz = Class.forName(item.getActivityClass());
-                    Intent intent = new Intent(MainActivity.this, clazz);
-                    // 核心：传递JSON中的title字段
-                    intent.putExtra("TEST_ITEM_TITLE", item.getTitle());
-                    startActivity(intent);
-                } catch (ClassNotFoundException e) {
-                    e.printStackTrace();
-                }
-            });
+            if (item.getComponent() == null) return;
+            Intent intent = new Intent().setComponent(item.getComponent());
+            // 核心：传递JSON中的title字段
+            intent.putExtra(BaseTestActivity.EXTRA_TEST_ITEM_TITLE, item.getTitle());
+            startActivity(intent);
         }
 
         @Override
@@ -81,4 +96,4 @@ public class MainActivity extends AppCompatActivity {
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -3,15 +3,42 @@ package com.demo.androidtest.base;
 import androidx.appcompat.app.ActionBar;
 import androidx.appcompat.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.Trace;
 import android.view.MenuItem;
+import android.view.ViewTreeObserver;
 
+/**
+ * 测试页面基类：ActionBar/标题配置 + 性能埋点
+ * <p>
+ * 埋点对所有子类自动生效：onCreate、首次绘制、onResume、onDestroy记录单调时间戳到
+ * {@link TestMetricsRegistry}，同时输出android.os.Trace异步区间（Perfetto中按“类名#阶段”显示），
+ * 并统计页面存活期间的GC次数/耗时和分配增量。批量执行时还向 {@link BatchTestRunner} 回报首帧和就绪。
+ */
 public class BaseTestActivity extends AppCompatActivity {
 
     // 定义参数key（统一管理，避免拼写错误）
     public static final String EXTRA_TEST_ITEM_TITLE = "TEST_ITEM_TITLE";
 
+    // 本页面的指标会话
+    private TestMetricsRegistry.Session mMetrics;
+    // Trace区间名（创建时拼接一次）与异步区间cookie
+    private String mTraceSession;
+    private String mTraceLaunch;
+    private String mTraceCreate;
+    private String mTraceResume;
+    private int mTraceCookie;
+    private boolean mResumeTracing;
+    private ViewTreeObserver.OnDrawListener mFirstDrawListener;
+
+    // 批量执行时的运行编号（手动打开时为-1）
+    private long mBatchRunId = -1;
+    private boolean mFirstFrameDrawn;
+    private boolean mReadyPending;
+    private boolean mReadyReported;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        beginInstrumentation();
         super.onCreate(savedInstanceState);
 
         // 1. 获取ActionBar并配置返回箭头
@@ -29,6 +56,125 @@ public class BaseTestActivity extends AppCompatActivity {
             // 兜底：无标题时显示默认文字
             setTitle("测试项");
         }
+
+        // 3. 批量执行：回报创建
+        mBatchRunId = getIntent().getLongExtra(BatchTestRunner.EXTRA_RUN_ID, -1);
+        if (mBatchRunId >= 0) {
+            BatchTestRunner.getInstance().onActivityCreated(mBatchRunId, this);
+        }
+        watchFirstDraw();
+    }
+
+    @Override
+    protected void onPostCreate(Bundle savedInstanceState) {
+        super.onPostCreate(savedInstanceState);
+        // 子类onCreate已执行完
+        mMetrics.createdNs = System.nanoTime();
+        Trace.endAsyncSection(mTraceCreate, mTraceCookie);
+    }
+
+    @Override
+    protected void onResume() {
+        mMetrics.resumeNs = System.nanoTime();
+        Trace.beginAsyncSection(mTraceResume, mTraceCookie);
+        mResumeTracing = true;
+        super.onResume();
+    }
+
+    @Override
+    protected void onPostResume() {
+        super.onPostResume();
+        if (mResumeTracing) {
+            mResumeTracing = false;
+            Trace.endAsyncSection(mTraceResume, mTraceCookie);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (!mFirstFrameDrawn) {
+            // 未绘制就被销毁：结束启动区间
+            Trace.endAsyncSection(mTraceLaunch, mTraceCookie);
+        }
+        removeFirstDrawListener();
+        TestMetricsRegistry.getInstance().end(mMetrics, System.nanoTime());
+        Trace.endAsyncSection(mTraceSession, mTraceCookie);
+    }
+
+    private void beginInstrumentation() {
+        long now = System.nanoTime();
+        String name = getClass().getSimpleName();
+        mTraceSession = name + "#session";
+        mTraceLaunch = name + "#launch";
+        mTraceCreate = name + "#onCreate";
+        mTraceResume = name + "#onResume";
+        mTraceCookie = System.identityHashCode(this);
+        mMetrics = TestMetricsRegistry.getInstance().begin(name, now);
+        Trace.beginAsyncSection(mTraceSession, mTraceCookie);
+        Trace.beginAsyncSection(mTraceLaunch, mTraceCookie);
+        Trace.beginAsyncSection(mTraceCreate, mTraceCookie);
+    }
+
+    /**
+     * 本页面的指标会话
+     */
+    protected TestMetricsRegistry.Session getTestMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 子类需要在数据加载完成后才算就绪时返回true，并自行调用 {@link #reportTestReady()}；
+     * 默认首帧即就绪
+     */
+    protected boolean reportsReadyManually() {
+        return false;
+    }
+
+    /**
+     * 测试项就绪（批量执行时记录就绪耗时，手动打开时无操作），首帧之前调用时推迟到首帧
+     */
+    protected void reportTestReady() {
+        if (mBatchRunId < 0 || mReadyReported) return;
+        if (!mFirstFrameDrawn) {
+            mReadyPending = true;
+            return;
+        }
+        mReadyReported = true;
+        BatchTestRunner.getInstance().onReady(mBatchRunId);
+    }
+
+    /**
+     * 首次绘制：OnDrawListener在绘制过程中回调，不能在回调里移除，移除推迟到下一条消息
+     */
+    private void watchFirstDraw() {
+        mFirstDrawListener = () -> {
+            if (mFirstFrameDrawn) return;
+            mFirstFrameDrawn = true;
+            mMetrics.firstDrawNs = System.nanoTime();
+            Trace.endAsyncSection(mTraceLaunch, mTraceCookie);
+            getWindow().getDecorView().post(this::onFirstDraw);
+        };
+        getWindow().getDecorView().getViewTreeObserver().addOnDrawListener(mFirstDrawListener);
+    }
+
+    private void onFirstDraw() {
+        removeFirstDrawListener();
+        if (mBatchRunId >= 0) {
+            BatchTestRunner.getInstance().onFirstFrame(mBatchRunId);
+            if (!reportsReadyManually() || mReadyPending) {
+                reportTestReady();
+            }
+        }
+    }
+
+    private void removeFirstDrawListener() {
+        if (mFirstDrawListener == null) return;
+        ViewTreeObserver observer = getWindow().getDecorView().getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnDrawListener(mFirstDrawListener);
+        }
+        mFirstDrawListener = null;
     }
 
     // 处理返回箭头点击事件（返回主界面）
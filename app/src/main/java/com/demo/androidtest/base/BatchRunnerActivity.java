@@ -0,0 +1,119 @@
+package com.demo.androidtest.base;
+
+import android.graphics.Color;
+import android.os.Bundle;
+import android.util.TypedValue;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import com.demo.androidtest.model.TestItem;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量执行入口：加载测试目录后交给 {@link BatchTestRunner} 逐项执行
+ * <p>
+ * 设备农场可直接启动：
+ * adb shell am start -n com.demo.androidtest/.base.BatchRunnerActivity --ei LANES 1 --el TIMEOUT_MS 15000
+ * 附加 --ez ALLOC_COUNTING true 时统计每个测试项的对象分配个数（有额外开销，不宜与耗时对比混用）
+ */
+public class BatchRunnerActivity extends BaseTestActivity implements BatchTestRunner.Listener {
+    public static final String EXTRA_LANES = "LANES";
+    public static final String EXTRA_TIMEOUT_MS = "TIMEOUT_MS";
+    public static final String EXTRA_DWELL_MS = "DWELL_MS";
+    public static final String EXTRA_ALLOC_COUNTING = "ALLOC_COUNTING";
+    private static final String STATE_LOG = "log";
+    private static final String STATE_RUN_STARTED = "run_started";
+
+    private TextView mLogTv;
+    private final StringBuilder mLog = new StringBuilder();
+    private final List<TestItem> mItems = new ArrayList<>();
+    // 本页面（含重建前）是否已把执行交给执行器
+    private boolean mRunStarted;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.setBackgroundColor(Color.WHITE);
+        mLogTv = new TextView(this);
+        mLogTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
+        mLogTv.setTextColor(Color.parseColor("#333333"));
+        mLogTv.setPadding(32, 32, 32, 32);
+        scrollView.addView(mLogTv);
+        setContentView(scrollView);
+        if (savedInstanceState != null) {
+            // 页面重建（如旋转）：恢复已输出的日志
+            CharSequence log = savedInstanceState.getCharSequence(STATE_LOG);
+            if (log != null) mLog.append(log);
+            mLogTv.setText(mLog);
+            mRunStarted = savedInstanceState.getBoolean(STATE_RUN_STARTED);
+        }
+
+        BatchTestRunner runner = BatchTestRunner.getInstance();
+        if (runner.isRunning()) {
+            // 执行中重建或再次打开：接管进度回调
+            runner.attachListener(this);
+            if (savedInstanceState == null) appendLog("批量执行进行中");
+            return;
+        }
+        if (mRunStarted) {
+            // 执行结束后重建（如旋转）：只恢复日志，不再启动新的一轮
+            return;
+        }
+        int lanes = getIntent().getIntExtra(EXTRA_LANES, BatchTestRunner.DEFAULT_LANES);
+        long timeoutMs = getIntent().getLongExtra(EXTRA_TIMEOUT_MS, BatchTestRunner.DEFAULT_TIMEOUT_MS);
+        long dwellMs = getIntent().getLongExtra(EXTRA_DWELL_MS, BatchTestRunner.DEFAULT_DWELL_MS);
+        boolean allocCounting = getIntent().getBooleanExtra(EXTRA_ALLOC_COUNTING, false);
+        TestConfigManager.loadTestItemsAsync(this, (items, complete) -> {
+            for (TestItem item : items) {
+                // 跳过执行器自身
+                if (!getClass().getName().equals(item.getActivityClass())) {
+                    mItems.add(item);
+                }
+            }
+            if (!complete || isDestroyed()) return;
+            appendLog("开始批量执行：" + mItems.size() + "项，通道数 " + lanes);
+            mRunStarted = true;
+            runner.start(this, mItems, lanes, timeoutMs, dwellMs, allocCounting, this);
+        });
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putCharSequence(STATE_LOG, mLog.toString());
+        outState.putBoolean(STATE_RUN_STARTED, mRunStarted);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        BatchTestRunner runner = BatchTestRunner.getInstance();
+        // 静态执行器不再持有本页面；重建时新页面在onCreate中重新设置
+        runner.detachListener(this);
+        // 执行器页面被关闭时中止，已完成的结果仍会写入
+        if (isFinishing()) {
+            runner.cancel();
+        }
+    }
+
+    @Override
+    public void onItemFinished(BatchTestRunner.Result result, int finished, int total) {
+        appendLog("[" + finished + "/" + total + "] " + result.item.getTitle() + " " + result.status
+                + "  启动 " + result.startupMs() + "ms  就绪 " + result.readyMs()
+                + "ms  内存 " + result.pssDeltaKb() + "kB");
+    }
+
+    @Override
+    public void onRunFinished(File resultFile) {
+        appendLog(resultFile != null ? "结果已写入：" + resultFile.getAbsolutePath() : "结果写入失败");
+    }
+
+    private void appendLog(String line) {
+        mLog.append(line).append('\n');
+        mLogTv.setText(mLog);
+    }
+}
@@ -0,0 +1,360 @@
+package com.demo.androidtest.base;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.demo.androidtest.model.TestItem;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量测试执行器：按目录顺序自动启动测试项，记录启动耗时、就绪耗时和内存变化
+ * <p>
+ * 每个测试项通过Intent附带运行编号启动，{@link BaseTestActivity} 在创建、首帧、就绪时回报。
+ * lanes个通道各自串行执行，同时在运行的测试项不超过lanes个（多通道时各测试项在独立任务中启动，
+ * 彼此的CPU/内存相互干扰，回归对比应使用相同的通道数）。仅主线程调用。
+ */
+public class BatchTestRunner {
+    private static final String TAG = "BatchTestRunner";
+    public static final String EXTRA_RUN_ID = "BATCH_RUN_ID";
+    public static final int DEFAULT_LANES = 1;
+    public static final long DEFAULT_TIMEOUT_MS = 15_000;
+    // 就绪后保持的时间，再结束测试项
+    public static final long DEFAULT_DWELL_MS = 1000;
+    // 结束一个测试项后等待系统回收的时间，再启动下一个
+    private static final long SETTLE_MS = 500;
+
+    /**
+     * 单个测试项的结果状态
+     */
+    public enum Status {
+        OK, TIMEOUT, FAILED
+    }
+
+    /**
+     * 执行进度回调（主线程）
+     */
+    public interface Listener {
+        void onItemFinished(Result result, int finished, int total);
+
+        void onRunFinished(File resultFile);
+    }
+
+    /**
+     * 单个测试项的测量结果（时间均为uptimeMillis）
+     */
+    public static final class Result {
+        public final int index;
+        public final TestItem item;
+        public final int lane;
+        public Status status;
+        public long launchTime;
+        public long firstFrameTime = -1;
+        public long readyTime = -1;
+        public long pssBeforeKb;
+        public long pssAfterKb = -1;
+        // 测试页面的埋点会话（GC/分配增量）
+        public TestMetricsRegistry.Session metrics;
+        WeakReference<Activity> activity;
+        Runnable timeout;
+
+        Result(int index, TestItem item, int lane) {
+            this.index = index;
+            this.item = item;
+            this.lane = lane;
+        }
+
+        // 启动耗时：startActivity → 首帧
+        public long startupMs() {
+            return firstFrameTime < 0 ? -1 : firstFrameTime - launchTime;
+        }
+
+        // 就绪耗时：startActivity → 测试项报告就绪
+        public long readyMs() {
+            return readyTime < 0 ? -1 : readyTime - launchTime;
+        }
+
+        public long pssDeltaKb() {
+            return pssAfterKb < 0 ? 0 : pssAfterKb - pssBeforeKb;
+        }
+    }
+
+    private static BatchTestRunner sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private Context mContext;
+    private Listener mListener;
+    private List<TestItem> mItems;
+    private Result[] mResults;
+    private int mLanes;
+    private long mTimeoutMs;
+    private long mDwellMs;
+    // 本次执行是否开启了对象分配计数
+    private boolean mAllocCounting;
+    private int mNextIndex;
+    private int mFinished;
+    // 运行代数：编号高32位，区分不同批次的迟到回报
+    private int mGeneration;
+    private boolean mRunning;
+    // 已结束、结果文件尚在写入（此时不接受新的执行）
+    private boolean mFinishing;
+
+    public static BatchTestRunner getInstance() {
+        if (sInstance == null) {
+            sInstance = new BatchTestRunner();
+        }
+        return sInstance;
+    }
+
+    public boolean isRunning() {
+        return mRunning || mFinishing;
+    }
+
+    /**
+     * 设置进度回调（执行器页面重建后重新设置），执行结束后自动清除
+     */
+    public void attachListener(Listener listener) {
+        if (isRunning()) {
+            mListener = listener;
+        }
+    }
+
+    /**
+     * 清除进度回调（页面销毁时调用，避免静态执行器持有页面）
+     */
+    public void detachListener(Listener listener) {
+        if (mListener == listener) {
+            mListener = null;
+        }
+    }
+
+    /**
+     * 开始执行，items中的每一项依次启动（正在运行或写入结果时忽略）
+     *
+     * @param allocCounting 执行期间开启对象分配计数，结果中记录每项的分配个数
+     */
+    public void start(Context context, List<TestItem> items, int lanes, long timeoutMs, long dwellMs,
+                      boolean allocCounting, Listener listener) {
+        if (isRunning()) return;
+        mRunning = true;
+        mContext = context.getApplicationContext();
+        mItems = new ArrayList<>(items);
+        mResults = new Result[mItems.size()];
+        mLanes = Math.max(1, lanes);
+        mTimeoutMs = timeoutMs;
+        mDwellMs = dwellMs;
+        mAllocCounting = allocCounting;
+        mListener = listener;
+        mNextIndex = 0;
+        mFinished = 0;
+        mGeneration++;
+        // 在启动第一个测试项之前开启，各测试项会话的起点已在计数中
+        TestMetricsRegistry.getInstance().setAllocCountingEnabled(allocCounting);
+        if (mItems.isEmpty()) {
+            finishRun();
+            return;
+        }
+        for (int lane = 0; lane < Math.min(mLanes, mItems.size()); lane++) {
+            launchNext(lane);
+        }
+    }
+
+    /**
+     * 中止执行，已完成的结果仍然写入文件
+     */
+    public void cancel() {
+        if (!mRunning) return;
+        for (Result result : mResults) {
+            if (result != null && result.status == null) {
+                mHandler.removeCallbacks(result.timeout);
+                result.status = Status.FAILED;
+                finishActivity(result);
+            }
+        }
+        mNextIndex = mItems.size();
+        finishRun();
+    }
+
+    // ========== BaseTestActivity回报 ==========
+
+    void onActivityCreated(long runId, BaseTestActivity activity) {
+        Result result = find(runId);
+        if (result != null) {
+            result.activity = new WeakReference<>(activity);
+            result.metrics = activity.getTestMetrics();
+        }
+    }
+
+    void onFirstFrame(long runId) {
+        Result result = find(runId);
+        if (result != null && result.firstFrameTime < 0) {
+            result.firstFrameTime = SystemClock.uptimeMillis();
+        }
+    }
+
+    void onReady(long runId) {
+        Result result = find(runId);
+        if (result == null || result.readyTime >= 0) return;
+        result.readyTime = SystemClock.uptimeMillis();
+        result.pssAfterKb = Debug.getPss();
+        mHandler.removeCallbacks(result.timeout);
+        // 保持一段时间再结束，便于观察和稳定测量
+        mHandler.postDelayed(() -> completeItem(result, Status.OK), mDwellMs);
+    }
+
+    // ========== 执行 ==========
+
+    private void launchNext(int lane) {
+        if (!mRunning || mNextIndex >= mItems.size()) return;
+        int index = mNextIndex++;
+        TestItem item = mItems.get(index);
+        Result result = new Result(index, item, lane);
+        result.timeout = () -> completeItem(result, Status.TIMEOUT);
+        mResults[index] = result;
+
+        Intent intent = new Intent();
+        if (item.getComponent() != null) {
+            intent.setComponent(item.getComponent());
+        } else {
+            intent.setClassName(mContext, item.getActivityClass());
+        }
+        intent.putExtra(BaseTestActivity.EXTRA_TEST_ITEM_TITLE, item.getTitle());
+        intent.putExtra(EXTRA_RUN_ID, ((long) mGeneration << 32) | index);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        if (mLanes > 1) {
+            // 多通道：每个测试项在独立任务中运行
+            intent.addFlags(Intent.FLAG_ACTIVITY_MULTIPLE_TASK | Intent.FLAG_ACTIVITY_NEW_DOCUMENT);
+        }
+        result.pssBeforeKb = Debug.getPss();
+        result.launchTime = SystemClock.uptimeMillis();
+        try {
+            mContext.startActivity(intent);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "启动测试项失败：" + item.getTitle(), e);
+            completeItem(result, Status.FAILED);
+            return;
+        }
+        mHandler.postDelayed(result.timeout, mTimeoutMs);
+    }
+
+    private void completeItem(Result result, Status status) {
+        if (result.status != null) return;
+        result.status = status;
+        mHandler.removeCallbacks(result.timeout);
+        if (result.metrics != null && !result.metrics.isFinished()) {
+            result.metrics.updateDeltas();
+        }
+        finishActivity(result);
+        mFinished++;
+        Log.i(TAG, "测试项完成：" + result.item.getTitle() + " " + status
+                + " startup=" + result.startupMs() + "ms ready=" + result.readyMs()
+                + "ms pssDelta=" + result.pssDeltaKb() + "kB");
+        if (mListener != null) {
+            mListener.onItemFinished(result, mFinished, mItems.size());
+        }
+        if (mFinished == mItems.size()) {
+            finishRun();
+        } else {
+            mHandler.postDelayed(() -> launchNext(result.lane), SETTLE_MS);
+        }
+    }
+
+    private static void finishActivity(Result result) {
+        Activity activity = result.activity != null ? result.activity.get() : null;
+        if (activity != null && !activity.isFinishing()) {
+            activity.finish();
+        }
+    }
+
+    private String appVersion() {
+        try {
+            PackageInfo info = mContext.getPackageManager().getPackageInfo(mContext.getPackageName(), 0);
+            return info.versionName + " (" + info.versionCode + ")";
+        } catch (PackageManager.NameNotFoundException e) {
+            return "Unknown";
+        }
+    }
+
+    private Result find(long runId) {
+        if (!mRunning || (int) (runId >>> 32) != mGeneration) return null;
+        int index = (int) runId;
+        Result result = index >= 0 && index < mResults.length ? mResults[index] : null;
+        return result != null && result.status == null ? result : null;
+    }
+
+    private void finishRun() {
+        mRunning = false;
+        mFinishing = true;
+        TestMetricsRegistry.getInstance().setAllocCountingEnabled(false);
+        Result[] results = mResults;
+        File dir = mContext.getExternalFilesDir("batch_runs");
+        if (dir == null) dir = new File(mContext.getFilesDir(), "batch_runs");
+        File file = new File(dir, "run-" + System.currentTimeMillis() + ".tsv");
+        new Thread(() -> {
+            File written = writeResults(file, results) ? file : null;
+            mHandler.post(() -> {
+                // 回调写入完成时附着的页面（执行期间页面可能已重建）
+                Listener listener = mListener;
+                mListener = null;
+                mFinishing = false;
+                if (listener != null) listener.onRunFinished(written);
+            });
+        }, "BatchResultWriter").start();
+    }
+
+    /**
+     * 结果文件（TSV）：注释行记录构建信息，之后每个测试项一行，便于跨构建对比
+     */
+    private boolean writeResults(File file, Result[] results) {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) return false;
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("# app\t" + appVersion() + "\n");
+            writer.write("# build\t" + Build.FINGERPRINT + "\n");
+            writer.write("# lanes\t" + mLanes + "\n");
+            writer.write("# alloc_counting\t" + mAllocCounting + "\n");
+            writer.write("index\ttitle\tstatus\tstartup_ms\tready_ms\tpss_delta_kb\tgc_count\tgc_ms\talloc_kb"
+                    + "\talloc_count\n");
+            StringBuilder sb = new StringBuilder(128);
+            for (Result result : results) {
+                if (result == null) continue;
+                sb.setLength(0);
+                sb.append(result.index).append('\t').append(result.item.getTitle()).append('\t')
+                        .append(result.status).append('\t').append(result.startupMs()).append('\t')
+                        .append(result.readyMs()).append('\t').append(result.pssDeltaKb()).append('\t');
+                TestMetricsRegistry.Session metrics = result.metrics;
+                if (metrics != null) {
+                    sb.append(metrics.gcCountDelta).append('\t').append(metrics.gcTimeMsDelta).append('\t')
+                            .append(metrics.allocBytesDelta / 1024).append('\t')
+                            // 未开启分配计数时记为-1（未测量）
+                            .append(mAllocCounting ? metrics.allocCountDelta : -1).append('\n');
+                } else {
+                    sb.append("-1\t-1\t-1\t-1\n");
+                }
+                writer.append(sb);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "写入结果文件失败", e);
+            return false;
+        }
+    }
+}
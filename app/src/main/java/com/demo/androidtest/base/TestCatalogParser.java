@@ -0,0 +1,107 @@
+package com.demo.androidtest.base;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.demo.androidtest.model.TestItem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 测试项目录的流式解析：逐项产出TestItem，不构建JSON DOM
+ * <p>
+ * 额外内存与目录大小无关；未知字段（如tags、params）直接跳过。
+ * 结构合法但内容不符的条目（缺少字段、类型错误、不是对象）单独跳过并报告，
+ * JSON语法错误会结束解析，已产出的条目仍然有效。
+ */
+public class TestCatalogParser {
+
+    /**
+     * 解析结果接收者（在解析线程回调）
+     */
+    public interface Sink {
+        void onItem(TestItem item);
+
+        void onSkipped(int index, String reason);
+    }
+
+    /**
+     * 解析整个目录
+     *
+     * @return 产出的条目数
+     * @throws IOException JSON语法错误或读取失败（之前产出的条目不受影响）
+     */
+    public static int parse(InputStream in, Sink sink) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            int produced = 0;
+            int index = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                TestItem item = readItem(reader, index, sink);
+                if (item != null) {
+                    sink.onItem(item);
+                    produced++;
+                }
+                index++;
+            }
+            reader.endArray();
+            return produced;
+        } catch (IllegalStateException e) {
+            // JsonReader用IllegalStateException表示结构不符（如顶层不是数组）
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 读取一个条目，内容不符时跳过整个条目并返回null（读取位置始终停在条目之后）
+     */
+    private static TestItem readItem(JsonReader reader, int index, Sink sink) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            sink.onSkipped(index, "not an object: " + reader.peek());
+            reader.skipValue();
+            return null;
+        }
+        String title = null;
+        String activityClass = null;
+        String error = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("title".equals(name)) {
+                title = readString(reader);
+                if (title == null && error == null) error = "title is not a string";
+            } else if ("activityClass".equals(name)) {
+                activityClass = readString(reader);
+                if (activityClass == null && error == null) error = "activityClass is not a string";
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (error == null && (title == null || activityClass == null)) {
+            error = title == null ? "missing title" : "missing activityClass";
+        }
+        if (error != null) {
+            sink.onSkipped(index, error);
+            return null;
+        }
+        return new TestItem(title, activityClass);
+    }
+
+    /**
+     * 读取字符串值，不是字符串时跳过该值并返回null
+     */
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+}
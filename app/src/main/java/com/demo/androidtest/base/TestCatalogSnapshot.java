@@ -0,0 +1,116 @@
+package com.demo.androidtest.base;
+
+import com.demo.androidtest.model.TestItem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 测试项目录的二进制快照：一次读取整个文件，无需JSON解析
+ * <p>
+ * 格式：magic(int) + version(short) + assetCrc(int) + apkStamp(long) + payloadCrc(int)
+ * + 负载[count(int) + count × (title UTF + activityClass UTF)]。
+ * apkStamp用于快速判断APK未变化（不读asset）；APK变化时再比较asset的CRC。
+ * 负载CRC校验通过、条目数不超过剩余字节所能容纳的数量后才解码，损坏的文件不会引发超大分配。
+ */
+public class TestCatalogSnapshot {
+    private static final int MAGIC = 0x54434931; // "TCI1"
+    private static final short VERSION = 2;
+    // 固定头部（含负载开头的count）
+    private static final int HEADER_BYTES = 4 + 2 + 4 + 8 + 4 + 4;
+    private static final int PAYLOAD_OFFSET = HEADER_BYTES - 4;
+    // 每个条目至少两个2字节的UTF长度
+    private static final int MIN_ITEM_BYTES = 4;
+
+    public final int assetCrc;
+    public final long apkStamp;
+    public final List<TestItem> items;
+
+    public TestCatalogSnapshot(int assetCrc, long apkStamp, List<TestItem> items) {
+        this.assetCrc = assetCrc;
+        this.apkStamp = apkStamp;
+        this.items = items;
+    }
+
+    /**
+     * 读取快照，文件不存在、版本不符或已损坏时返回null
+     */
+    public static TestCatalogSnapshot read(File file) {
+        long length = file.length();
+        if (length < HEADER_BYTES || length > Integer.MAX_VALUE) return null;
+        byte[] bytes = new byte[(int) length];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int total = 0;
+            int n;
+            while (total < bytes.length && (n = in.read(bytes, total, bytes.length - total)) > 0) {
+                total += n;
+            }
+            if (total != bytes.length) return null;
+
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (data.readInt() != MAGIC || data.readShort() != VERSION) return null;
+            int assetCrc = data.readInt();
+            long apkStamp = data.readLong();
+            int payloadCrc = data.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(bytes, PAYLOAD_OFFSET, bytes.length - PAYLOAD_OFFSET);
+            if ((int) crc.getValue() != payloadCrc) return null;
+            int count = data.readInt();
+            if (count < 0 || count > (bytes.length - HEADER_BYTES) / MIN_ITEM_BYTES) return null;
+            List<TestItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(new TestItem(data.readUTF(), data.readUTF()));
+            }
+            return new TestCatalogSnapshot(assetCrc, apkStamp, items);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 写入快照（先写临时文件再重命名，避免留下半个文件）
+     */
+    public void write(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES + items.size() * 64);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(assetCrc);
+        data.writeLong(apkStamp);
+        // 负载CRC占位，写完负载后回填
+        data.writeInt(0);
+        data.writeInt(items.size());
+        for (TestItem item : items) {
+            data.writeUTF(item.getTitle());
+            data.writeUTF(item.getActivityClass());
+        }
+        data.flush();
+        byte[] content = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(content, PAYLOAD_OFFSET, content.length - PAYLOAD_OFFSET);
+        int payloadCrc = (int) crc.getValue();
+        content[PAYLOAD_OFFSET - 4] = (byte) (payloadCrc >>> 24);
+        content[PAYLOAD_OFFSET - 3] = (byte) (payloadCrc >>> 16);
+        content[PAYLOAD_OFFSET - 2] = (byte) (payloadCrc >>> 8);
+        content[PAYLOAD_OFFSET - 1] = (byte) payloadCrc;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(content);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("cannot replace " + file);
+        }
+    }
+}
@@ -1,43 +1,191 @@
 package com.demo.androidtest.base;
 
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import com.demo.androidtest.model.TestItem;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 public class TestConfigManager {
-    // 从assets加载测试项配置
+    private static final String TAG = "TestConfigManager";
+    private static final String ASSET_NAME = "test_items.json";
+    private static final String SNAPSHOT_NAME = "test_items.snapshot";
+    // 异步解析时每解析出多少项通知一次UI
+    private static final int CHUNK_SIZE = 32;
+
+    /**
+     * 异步加载回调（主线程），items为本次新增的测试项
+     */
+    public interface LoadCallback {
+        void onItemsLoaded(List<TestItem> items, boolean complete);
+    }
+
+    // 从assets加载测试项配置（同步，优先使用快照）
     public static List<TestItem> loadTestItems(Context context) {
+        File snapshotFile = snapshotFile(context);
+        long apkStamp = apkStamp(context);
+        TestCatalogSnapshot snapshot = TestCatalogSnapshot.read(snapshotFile);
+        if (snapshot != null && snapshot.apkStamp == apkStamp) {
+            return resolveComponents(context, snapshot.items);
+        }
         List<TestItem> testItems = new ArrayList<>();
+        parseAndSnapshot(context, snapshot, snapshotFile, apkStamp, testItems, null);
+        return testItems;
+    }
+
+    /**
+     * 加载测试项：快照有效时同步回调一次（单次文件读取）；
+     * 否则在后台线程流式解析asset，每解析出 {@link #CHUNK_SIZE} 项回调一次，完成后写入快照
+     */
+    public static void loadTestItemsAsync(Context context, LoadCallback callback) {
+        Context appContext = context.getApplicationContext();
+        File snapshotFile = snapshotFile(appContext);
+        long apkStamp = apkStamp(appContext);
+        TestCatalogSnapshot snapshot = TestCatalogSnapshot.read(snapshotFile);
+        if (snapshot != null && snapshot.apkStamp == apkStamp) {
+            callback.onItemsLoaded(resolveComponents(appContext, snapshot.items), true);
+            return;
+        }
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        new Thread(() -> {
+            List<TestItem> chunk = new ArrayList<>(CHUNK_SIZE);
+            parseAndSnapshot(appContext, snapshot, snapshotFile, apkStamp, chunk, () -> {
+                List<TestItem> ready = new ArrayList<>(chunk);
+                chunk.clear();
+                mainHandler.post(() -> callback.onItemsLoaded(ready, false));
+            });
+            mainHandler.post(() -> callback.onItemsLoaded(chunk, true));
+        }, "TestCatalogLoader").start();
+    }
+
+    /**
+     * 按asset的CRC判断快照内容是否仍然有效，无效时流式解析并重写快照
+     * asset按流读取两遍（先算CRC，再解析），额外内存与目录大小无关；
+     * 每项都按清单中声明的Activity校验，未声明的条目报错并剔除，快照只保存校验通过的条目
+     *
+     * @param out     解析结果输出
+     * @param onChunk 每输出 {@link #CHUNK_SIZE} 项调用一次，可为null
+     */
+    private static void parseAndSnapshot(Context context, TestCatalogSnapshot snapshot, File snapshotFile,
+                                         long apkStamp, List<TestItem> out, Runnable onChunk) {
+        List<TestItem> all = new ArrayList<>();
         try {
-            InputStream is = context.getAssets().open("test_items.json");
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
-            }
-            br.close();
-            is.close();
-
-            // 解析JSON
-            JSONArray jsonArray = new JSONArray(sb.toString());
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                testItems.add(new TestItem(
-                        obj.getString("title"),
-                        obj.getString("activityClass")
-                ));
+            int assetCrc = assetCrc(context);
+            // 清单可能随APK变化，每次重建快照都重新校验
+            Set<String> declared = declaredActivities(context);
+            if (snapshot != null && snapshot.assetCrc == assetCrc) {
+                // APK更新但配置未变：沿用快照内容，只刷新APK标记
+                for (TestItem item : snapshot.items) {
+                    if (resolve(context, item, declared)) {
+                        out.add(item);
+                        all.add(item);
+                    }
+                }
+            } else {
+                try (InputStream is = context.getAssets().open(ASSET_NAME)) {
+                    TestCatalogParser.parse(is, new TestCatalogParser.Sink() {
+                        @Override
+                        public void onItem(TestItem item) {
+                            if (!resolve(context, item, declared)) return;
+                            out.add(item);
+                            all.add(item);
+                            if (onChunk != null && out.size() >= CHUNK_SIZE) {
+                                onChunk.run();
+                            }
+                        }
+
+                        @Override
+                        public void onSkipped(int index, String reason) {
+                            // 单个条目错误只跳过该条目
+                            Log.w(TAG, "忽略第" + index + "个测试项：" + reason);
+                        }
+                    });
+                }
             }
-        } catch (Exception e) {
+            new TestCatalogSnapshot(assetCrc, apkStamp, all).write(snapshotFile);
+        } catch (IOException e) {
             e.printStackTrace();
-            testItems.add(new TestItem("配置加载失败", "com.demo.androidtest.MainActivity"));
+            if (all.isEmpty()) {
+                TestItem failed = new TestItem("配置加载失败", "com.demo.androidtest.MainActivity");
+                failed.setComponent(new ComponentName(context.getPackageName(), failed.getActivityClass()));
+                out.add(failed);
+            } else {
+                Log.w(TAG, "配置解析不完整（已加载" + all.size() + "项），不写入快照", e);
+            }
         }
-        return testItems;
     }
-}
\ No newline at end of file
+
+    /**
+     * 校验条目的Activity已在清单中声明，并解析出启动用的组件
+     */
+    private static boolean resolve(Context context, TestItem item, Set<String> declared) {
+        if (!declared.contains(item.getActivityClass())) {
+            Log.e(TAG, "测试项「" + item.getTitle() + "」的Activity未在清单中声明：" + item.getActivityClass());
+            return false;
+        }
+        item.setComponent(new ComponentName(context.getPackageName(), item.getActivityClass()));
+        return true;
+    }
+
+    /**
+     * 快照中的条目已校验过，直接解析组件
+     */
+    private static List<TestItem> resolveComponents(Context context, List<TestItem> items) {
+        String packageName = context.getPackageName();
+        for (TestItem item : items) {
+            item.setComponent(new ComponentName(packageName, item.getActivityClass()));
+        }
+        return items;
+    }
+
+    private static Set<String> declaredActivities(Context context) throws IOException {
+        Set<String> names = new HashSet<>();
+        try {
+            PackageInfo info = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), PackageManager.GET_ACTIVITIES);
+            if (info.activities != null) {
+                for (ActivityInfo activity : info.activities) {
+                    names.add(activity.name);
+                }
+            }
+        } catch (PackageManager.NameNotFoundException e) {
+            throw new IOException(e);
+        }
+        return names;
+    }
+
+    private static int assetCrc(Context context) throws IOException {
+        try (CheckedInputStream in = new CheckedInputStream(context.getAssets().open(ASSET_NAME), new CRC32())) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) > 0) {
+                // 只计算CRC
+            }
+            return (int) in.getChecksum().getValue();
+        }
+    }
+
+    private static File snapshotFile(Context context) {
+        return new File(context.getCacheDir(), SNAPSHOT_NAME);
+    }
+
+    /**
+     * APK标记：安装包路径的修改时间和大小（本地stat，无IPC），asset只会随APK变化
+     */
+    private static long apkStamp(Context context) {
+        File apk = new File(context.getApplicationInfo().sourceDir);
+        return apk.lastModified() * 31 + apk.length();
+    }
+}
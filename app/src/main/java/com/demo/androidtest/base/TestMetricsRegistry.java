@@ -0,0 +1,166 @@
+package com.demo.androidtest.base;
+
+import android.os.Debug;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 进程内测试指标注册表：每个测试页面一个 {@link Session}，记录生命周期时间点和GC/分配增量
+ * <p>
+ * 时间点均为System.nanoTime()（单调时钟）。会话由 {@link BaseTestActivity} 自动创建和结束，
+ * 结束的会话保留最近 {@link #MAX_FINISHED} 个。仅主线程调用。
+ */
+public class TestMetricsRegistry {
+    public static final int MAX_FINISHED = 64;
+
+    /**
+     * 单个测试页面的指标
+     */
+    @SuppressWarnings("deprecation")
+    public static final class Session {
+        public final int id;
+        public final String name;
+        public final long createNs;
+        public long createdNs = -1; // onCreate（含子类）结束
+        public long firstDrawNs = -1;
+        public long resumeNs = -1; // 最近一次onResume
+        public long destroyNs = -1;
+        // 会话开始时的运行时统计基准
+        final long gcCountStart;
+        final long gcTimeStart;
+        final long allocBytesStart;
+        final long allocCountStart;
+        // 会话结束时计算的增量（进行中的会话按当前值计算）
+        public long gcCountDelta;
+        public long gcTimeMsDelta;
+        public long allocBytesDelta;
+        public long allocCountDelta;
+
+        Session(int id, String name, long createNs) {
+            this.id = id;
+            this.name = name;
+            this.createNs = createNs;
+            gcCountStart = runtimeStat("art.gc.gc-count");
+            gcTimeStart = runtimeStat("art.gc.gc-time");
+            allocBytesStart = runtimeStat("art.gc.bytes-allocated");
+            allocCountStart = Debug.getGlobalAllocCount();
+        }
+
+        /**
+         * onCreate → 首次绘制
+         */
+        public long firstDrawMs() {
+            return firstDrawNs < 0 ? -1 : (firstDrawNs - createNs) / 1_000_000;
+        }
+
+        public long createMs() {
+            return createdNs < 0 ? -1 : (createdNs - createNs) / 1_000_000;
+        }
+
+        public boolean isFinished() {
+            return destroyNs >= 0;
+        }
+
+        void updateDeltas() {
+            gcCountDelta = delta(runtimeStat("art.gc.gc-count"), gcCountStart);
+            gcTimeMsDelta = delta(runtimeStat("art.gc.gc-time"), gcTimeStart);
+            allocBytesDelta = delta(runtimeStat("art.gc.bytes-allocated"), allocBytesStart);
+            allocCountDelta = Debug.getGlobalAllocCount() - allocCountStart;
+        }
+
+        /**
+         * 追加单行摘要
+         */
+        public StringBuilder appendTo(StringBuilder sb) {
+            return sb.append(name).append(" create=").append(createMs()).append("ms firstDraw=")
+                    .append(firstDrawMs()).append("ms gc=").append(gcCountDelta).append('/')
+                    .append(gcTimeMsDelta).append("ms alloc=").append(allocBytesDelta / 1024).append("kB/")
+                    .append(allocCountDelta).append(isFinished() ? "" : " (running)");
+        }
+
+        private static long delta(long now, long start) {
+            return now < 0 || start < 0 ? -1 : now - start;
+        }
+    }
+
+    private static TestMetricsRegistry sInstance;
+
+    private final List<Session> mActive = new ArrayList<>();
+    private final List<Session> mFinished = new ArrayList<>();
+    private int mNextId;
+    private boolean mAllocCounting;
+
+    public static TestMetricsRegistry getInstance() {
+        if (sInstance == null) {
+            sInstance = new TestMetricsRegistry();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 开启对象分配计数（有额外开销，默认关闭，关闭时分配个数增量为0）
+     */
+    @SuppressWarnings("deprecation")
+    public void setAllocCountingEnabled(boolean enabled) {
+        if (enabled == mAllocCounting) return;
+        mAllocCounting = enabled;
+        if (enabled) {
+            Debug.startAllocCounting();
+        } else {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    Session begin(String name, long createNs) {
+        Session session = new Session(mNextId++, name, createNs);
+        mActive.add(session);
+        return session;
+    }
+
+    void end(Session session, long destroyNs) {
+        session.destroyNs = destroyNs;
+        session.updateDeltas();
+        mActive.remove(session);
+        mFinished.add(session);
+        if (mFinished.size() > MAX_FINISHED) {
+            mFinished.remove(0);
+        }
+    }
+
+    /**
+     * 所有会话（已结束的在前，按开始顺序），进行中的会话增量按当前值刷新
+     */
+    public List<Session> getSessions() {
+        List<Session> sessions = new ArrayList<>(mFinished.size() + mActive.size());
+        sessions.addAll(mFinished);
+        for (Session session : mActive) {
+            session.updateDeltas();
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    /**
+     * 最近一个指定名称的会话，没有时返回null
+     */
+    public Session findLatest(String name) {
+        for (int i = mActive.size() - 1; i >= 0; i--) {
+            if (mActive.get(i).name.equals(name)) return mActive.get(i);
+        }
+        for (int i = mFinished.size() - 1; i >= 0; i--) {
+            if (mFinished.get(i).name.equals(name)) return mFinished.get(i);
+        }
+        return null;
+    }
+
+    static long runtimeStat(String name) {
+        String value = Debug.getRuntimeStat(name);
+        if (value == null) return -1;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
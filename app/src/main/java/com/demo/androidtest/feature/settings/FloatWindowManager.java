@@ -2,6 +2,7 @@ package com.demo.androidtest.feature.settings;
 
 import android.content.Context;
 import android.graphics.PixelFormat;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
@@ -13,6 +14,10 @@ import com.demo.androidtest.R;
 
 /**
  * 悬浮窗管理类：展示最新Settings修改记录
+ * <p>
+ * 内容更新和拖动都只标记脏状态，由Choreographer在下一帧统一处理：
+ * 每帧最多一次setText（只取最新记录）和一次updateViewLayout。仅主线程调用。
+ * 显示期间以合并策略订阅 {@link SettingsMonitorService#RECORD_EVENTS}。
  */
 public class FloatWindowManager {
     private static FloatWindowManager sInstance;
@@ -24,6 +29,22 @@ public class FloatWindowManager {
     private int mLastX, mLastY;
     private int mStartX, mStartY;
 
+    private Choreographer mChoreographer;
+    private final Choreographer.FrameCallback mFrameCallback = this::onFrame;
+    private boolean mFramePosted;
+    // 待渲染的最新记录序号（-1表示内容无变化）
+    private long mPendingSeq = -1;
+    // 复用的记录载体（仅主线程使用）
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+    // 拖动位置待提交
+    private boolean mLayoutDirty;
+    // 复用的文本缓冲和时间格式化
+    private final StringBuilder mText = new StringBuilder(96);
+    private final RecordTimeFormatter mTimeFormatter = new RecordTimeFormatter();
+    // 新记录订阅（事件总线只弱引用订阅者，由本单例持有）
+    private final SettingsEventBus.Subscriber mRecordSubscriber = this::updateFloatWindowContent;
+    private SettingsEventBus.Subscription mRecordSubscription;
+
     private FloatWindowManager() {}
 
     public static FloatWindowManager getInstance() {
@@ -44,6 +65,7 @@ public class FloatWindowManager {
         if (mWindowManager != null) return;
 
         mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mChoreographer = Choreographer.getInstance();
         mFloatView = LayoutInflater.from(context).inflate(R.layout.float_window_layout, null);
         mContentTv = mFloatView.findViewById(R.id.tv_float_content);
 
@@ -73,9 +95,11 @@ public class FloatWindowManager {
                     mStartY = (int) event.getY();
                     break;
                 case MotionEvent.ACTION_MOVE:
+                    // 只记录位置，布局在下一帧提交
                     mParams.x = (int) event.getRawX() - mStartX;
                     mParams.y = (int) event.getRawY() - mStartY;
-                    mWindowManager.updateViewLayout(mFloatView, mParams);
+                    mLayoutDirty = true;
+                    scheduleFrame();
                     break;
             }
             return true;
@@ -83,25 +107,63 @@ public class FloatWindowManager {
 
         mWindowManager.addView(mFloatView, mParams);
         mContentTv.setText("监听中...");
+        mRecordSubscription = SettingsMonitorService.RECORD_EVENTS.subscribe(mRecordSubscriber,
+                context.getMainExecutor(), SettingsEventBus.Policy.CONFLATE, 1);
     }
 
     /**
-     * 更新悬浮窗内容（最新修改记录）
+     * 更新悬浮窗内容（最新修改记录），实际渲染在下一帧
      */
-    public void updateFloatWindowContent(SettingsMonitorService.SettingsChangeRecord record) {
-        if (mContentTv != null) {
-            mContentTv.setText(record.toString());
-        }
+    public void updateFloatWindowContent(long seq) {
+        if (mContentTv == null || seq < 0) return;
+        mPendingSeq = seq;
+        scheduleFrame();
     }
 
     /**
      * 移除悬浮窗
      */
     public void removeFloatWindow() {
+        if (mRecordSubscription != null) {
+            mRecordSubscription.unsubscribe();
+            mRecordSubscription = null;
+        }
+        if (mFramePosted) {
+            mChoreographer.removeFrameCallback(mFrameCallback);
+            mFramePosted = false;
+        }
+        mPendingSeq = -1;
+        mLayoutDirty = false;
         if (mWindowManager != null && mFloatView != null) {
             mWindowManager.removeView(mFloatView);
             mWindowManager = null;
             mFloatView = null;
+            mContentTv = null;
+        }
+    }
+
+    private void scheduleFrame() {
+        if (mFramePosted) return;
+        mFramePosted = true;
+        mChoreographer.postFrameCallback(mFrameCallback);
+    }
+
+    /**
+     * 每帧处理一次：渲染最新记录，提交拖动位置
+     */
+    private void onFrame(long frameTimeNanos) {
+        mFramePosted = false;
+        if (mFloatView == null) return;
+        long seq = mPendingSeq;
+        // 记录已被覆盖时（更新的记录会随后到达）跳过本次渲染
+        if (seq >= 0 && SettingsMonitorService.CHANGE_RECORDS.read(seq, mRecord)) {
+            mText.setLength(0);
+            mContentTv.setText(mRecord.appendSummary(mText, mTimeFormatter));
+        }
+        mPendingSeq = -1;
+        if (mLayoutDirty) {
+            mLayoutDirty = false;
+            mWindowManager.updateViewLayout(mFloatView, mParams);
         }
     }
 
@@ -0,0 +1,192 @@
+package com.demo.androidtest.feature.settings;
+
+import android.app.ActivityManager;
+import android.app.AppOpsManager;
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Process;
+
+import java.util.List;
+
+/**
+ * 前台应用归属：缓存前台包名，按限定频率轮询UsageStatsManager事件刷新
+ * <p>
+ * 每个修改事件只做O(1)的缓存查询（按事件时间在最近的前台切换记录中查找），
+ * 刷新（IPC）最多每 {@link #DEFAULT_REFRESH_INTERVAL_MS} 一次。
+ * 没有“使用情况访问权限”时退化为查询本应用任务，同样受频率限制，此时归属不可靠（{@link Confidence#UNKNOWN}）。
+ * 陈旧度按事件时间之前（含）最近一次完成的轮询计算：事件处理前的刷新发生在事件之后，不能用来衡量陈旧度。
+ * 只在消费线程调用。
+ */
+public class ForegroundAppTracker {
+    public static final String UNKNOWN_PACKAGE = "未知包名";
+    // 刷新最小间隔
+    public static final long DEFAULT_REFRESH_INTERVAL_MS = 1000;
+    // 权限检查间隔（用户可能中途授予权限）
+    private static final long PERMISSION_CHECK_INTERVAL_MS = 10_000;
+    // 首次轮询回看的时长
+    private static final long INITIAL_LOOKBACK_MS = 60_000;
+    // 保留的前台切换记录数
+    private static final int HISTORY_SIZE = 16;
+    // 保留的轮询完成时间数
+    private static final int POLL_HISTORY_SIZE = 16;
+
+    /**
+     * 归属可信度
+     */
+    public enum Confidence {
+        // 事件前一个刷新间隔内确认过
+        FRESH,
+        // 事件前较久没有确认，前台可能已切换
+        STALE,
+        // 无法确定前台应用（无历史、只能查询本应用任务等）
+        UNKNOWN
+    }
+
+    private final Context mContext;
+    private final UsageStatsManager mUsageStatsManager;
+    private final ActivityManager mActivityManager;
+    private final AppOpsManager mAppOpsManager;
+    private final long mRefreshIntervalMs;
+    // 复用的事件对象，避免轮询时逐条分配
+    private final UsageEvents.Event mEvent = new UsageEvents.Event();
+
+    // 前台切换历史（环形）：切换时间 + 包名
+    private final long[] mSwitchTimes = new long[HISTORY_SIZE];
+    private final String[] mSwitchPackages = new String[HISTORY_SIZE];
+    private int mSwitchCount;
+    // 使用情况事件轮询的完成时间（环形）
+    private final long[] mPollTimes = new long[POLL_HISTORY_SIZE];
+    private int mPollCount;
+
+    private long mLastRefreshTime;
+    private long mLastQueryEnd;
+    private long mLastPermissionCheck = Long.MIN_VALUE / 2;
+    private boolean mHasUsageAccess;
+
+    public ForegroundAppTracker(Context context) {
+        this(context, DEFAULT_REFRESH_INTERVAL_MS);
+    }
+
+    public ForegroundAppTracker(Context context, long refreshIntervalMs) {
+        mContext = context.getApplicationContext();
+        mUsageStatsManager = (UsageStatsManager) mContext.getSystemService(Context.USAGE_STATS_SERVICE);
+        mActivityManager = (ActivityManager) mContext.getSystemService(Context.ACTIVITY_SERVICE);
+        mAppOpsManager = (AppOpsManager) mContext.getSystemService(Context.APP_OPS_SERVICE);
+        mRefreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * 距上次刷新超过间隔时刷新缓存（最多一次IPC）
+     */
+    public void refreshIfDue(long now) {
+        if (now - mLastRefreshTime < mRefreshIntervalMs) return;
+        mLastRefreshTime = now;
+        if (now - mLastPermissionCheck >= PERMISSION_CHECK_INTERVAL_MS) {
+            mLastPermissionCheck = now;
+            mHasUsageAccess = checkUsageAccess();
+        }
+        if (mHasUsageAccess) {
+            pollUsageEvents(now);
+            mPollTimes[mPollCount % POLL_HISTORY_SIZE] = now;
+            mPollCount++;
+        } else {
+            pollOwnTasks(now);
+        }
+    }
+
+    /**
+     * 查询事件发生时的前台包名（O(1)，不做IPC）
+     */
+    public String packageAt(long eventTime) {
+        int index = indexAt(eventTime);
+        return index < 0 ? UNKNOWN_PACKAGE : mSwitchPackages[index];
+    }
+
+    /**
+     * 归属结果的“陈旧度”：事件时间距离其之前（含）最近一次完成的轮询的时长
+     *
+     * @return 无法归属、只能查询本应用任务、或没有事件之前的轮询记录时为-1
+     */
+    public long attributionAge(long eventTime) {
+        if (!mHasUsageAccess || indexAt(eventTime) < 0) return -1;
+        int available = Math.min(mPollCount, POLL_HISTORY_SIZE);
+        for (int i = 1; i <= available; i++) {
+            long pollTime = mPollTimes[(mPollCount - i) % POLL_HISTORY_SIZE];
+            if (pollTime <= eventTime) return eventTime - pollTime;
+        }
+        return -1;
+    }
+
+    /**
+     * 根据陈旧度判断可信度
+     */
+    public static Confidence confidenceOf(long attributionAgeMs) {
+        if (attributionAgeMs < 0) return Confidence.UNKNOWN;
+        return attributionAgeMs <= DEFAULT_REFRESH_INTERVAL_MS ? Confidence.FRESH : Confidence.STALE;
+    }
+
+    /**
+     * 在切换历史中查找事件时间之前最近的一次切换
+     */
+    private int indexAt(long eventTime) {
+        if (mSwitchCount == 0) return -1;
+        int newest = (mSwitchCount - 1) % HISTORY_SIZE;
+        int available = Math.min(mSwitchCount, HISTORY_SIZE);
+        for (int i = 0; i < available; i++) {
+            int index = (newest - i + HISTORY_SIZE) % HISTORY_SIZE;
+            if (mSwitchTimes[index] <= eventTime) return index;
+        }
+        // 事件早于所有已知切换：用最旧的一条近似
+        return (newest - available + 1 + HISTORY_SIZE) % HISTORY_SIZE;
+    }
+
+    private void recordSwitch(long time, String packageName) {
+        if (mSwitchCount > 0) {
+            int newest = (mSwitchCount - 1) % HISTORY_SIZE;
+            if (packageName.equals(mSwitchPackages[newest])) return;
+        }
+        int index = mSwitchCount % HISTORY_SIZE;
+        mSwitchTimes[index] = time;
+        mSwitchPackages[index] = packageName;
+        mSwitchCount++;
+    }
+
+    private boolean checkUsageAccess() {
+        if (mUsageStatsManager == null || mAppOpsManager == null) return false;
+        int mode = mAppOpsManager.unsafeCheckOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                Process.myUid(), mContext.getPackageName());
+        return mode == AppOpsManager.MODE_ALLOWED;
+    }
+
+    /**
+     * 增量轮询上次查询之后的前台切换事件
+     */
+    private void pollUsageEvents(long now) {
+        long begin = mLastQueryEnd > 0 ? mLastQueryEnd : now - INITIAL_LOOKBACK_MS;
+        UsageEvents events = mUsageStatsManager.queryEvents(begin, now);
+        if (events == null) return;
+        while (events.getNextEvent(mEvent)) {
+            if (mEvent.getEventType() == UsageEvents.Event.ACTIVITY_RESUMED) {
+                recordSwitch(mEvent.getTimeStamp(), mEvent.getPackageName());
+            }
+        }
+        mLastQueryEnd = now;
+    }
+
+    /**
+     * 无使用情况访问权限时的降级方案：只能看到本应用的任务
+     */
+    private void pollOwnTasks(long now) {
+        if (mActivityManager == null) return;
+        List<ActivityManager.AppTask> tasks = mActivityManager.getAppTasks();
+        for (int i = 0; i < tasks.size(); i++) {
+            ComponentName top = tasks.get(i).getTaskInfo().topActivity;
+            if (top != null) {
+                recordSwitch(now, top.getPackageName());
+                return;
+            }
+        }
+    }
+}
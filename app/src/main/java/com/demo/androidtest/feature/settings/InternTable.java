@@ -0,0 +1,97 @@
+package com.demo.androidtest.feature.settings;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 字符串驻留表：把重复出现的字符串（字符串类型的字段值、包名等）映射为int编号
+ * <p>
+ * 单写者（消费线程）调用 {@link #intern}，任意线程可通过 {@link #get} 按编号读取。
+ * 编号0保留给null。
+ * <p>
+ * 容量有上限：编号只增不复用，条目按编号环形存放，达到上限后最旧的条目被淘汰（get返回null）。
+ * 距今超过半个容量的编号视为上一代，再次驻留时分配新编号，
+ * 因此intern返回的编号在之后至少 容量/2 次分配内可读（上限应不小于记录存储所需编号数的两倍）。
+ */
+public class InternTable {
+    // 默认容量上限（全局记录存储4096条，每条最多引用首值/最终值两个编号）
+    public static final int DEFAULT_MAX_CAPACITY = 16384;
+
+    private final Map<String, Integer> mIds = new HashMap<>();
+    // 编号 & (长度-1) → 条目；扩容时整体替换后发布
+    private volatile Entry[] mEntries;
+    private final int mMaxCapacity;
+    private int mNextId = 1;
+
+    public InternTable() {
+        this(64, DEFAULT_MAX_CAPACITY);
+    }
+
+    /**
+     * @param maxCapacity 条目数上限（向上取整为2的幂）
+     */
+    public InternTable(int initialCapacity, int maxCapacity) {
+        mMaxCapacity = roundUp(Math.max(2, maxCapacity));
+        mEntries = new Entry[Math.min(roundUp(Math.max(2, initialCapacity)), mMaxCapacity)];
+    }
+
+    /**
+     * 获取字符串编号，不存在（或属于上一代）时分配新编号（仅写者线程调用）
+     */
+    public int intern(String value) {
+        if (value == null) return 0;
+        Integer id = mIds.get(value);
+        if (id != null && mNextId - id <= mMaxCapacity / 2) return id;
+        Entry[] entries = mEntries;
+        if (mNextId >= entries.length && entries.length < mMaxCapacity) {
+            // 首次绕回之前编号都小于数组长度，扩容后位置不变
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        int newId = mNextId++;
+        int slot = newId & (entries.length - 1);
+        Entry evicted = entries[slot];
+        if (evicted != null) {
+            // 淘汰最旧的条目（已提升为新编号的字符串保留映射）
+            Integer current = mIds.get(evicted.value);
+            if (current != null && current == evicted.id) mIds.remove(evicted.value);
+        }
+        entries[slot] = new Entry(newId, value);
+        // volatile写：发布新条目（以及可能扩容后的数组）
+        mEntries = entries;
+        mIds.put(value, newId);
+        return newId;
+    }
+
+    /**
+     * 按编号读取字符串（任意线程），编号无效或已被淘汰时返回null
+     */
+    public String get(int id) {
+        if (id <= 0) return null;
+        Entry[] entries = mEntries;
+        Entry entry = entries[id & (entries.length - 1)];
+        return entry != null && entry.id == id ? entry.value : null;
+    }
+
+    /**
+     * 当前可读取的条目数（不含保留的0）
+     */
+    public int size() {
+        return Math.min(mNextId - 1, mMaxCapacity);
+    }
+
+    private static int roundUp(int capacity) {
+        int size = Integer.highestOneBit(capacity);
+        return size < capacity ? size << 1 : size;
+    }
+
+    private static final class Entry {
+        final int id;
+        final String value;
+
+        Entry(int id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+}
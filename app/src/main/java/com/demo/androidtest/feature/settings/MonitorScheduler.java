@@ -0,0 +1,121 @@
+package com.demo.androidtest.feature.settings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 周期性任务的合并调度（日志组提交、通知刷新等），单线程使用
+ * <p>
+ * 每个任务有一个执行窗口 [最早, 最迟]。调用方只需为最早的“最迟时间”安排一次唤醒
+ * （{@link #nextWakeDelay}），唤醒时窗口已开始的任务全部一起执行；
+ * 线程因其他原因醒来（如处理事件批次）时也可顺带调用 {@link #runDue}，从而尽量减少专门的唤醒。
+ * 时间单位与调用方一致（服务中使用uptimeMillis：深度睡眠期间不推进，周期任务不会唤醒CPU）。
+ */
+public class MonitorScheduler {
+
+    /**
+     * 调度任务
+     */
+    public interface Task {
+        /**
+         * @return 下次执行的延迟（窗口宽度不变），小于0表示不再执行
+         */
+        long run(long now);
+    }
+
+    private static final class Entry {
+        final Task task;
+        long earliest;
+        long latest;
+        long slack;
+
+        Entry(Task task) {
+            this.task = task;
+        }
+    }
+
+    private final List<Entry> mEntries = new ArrayList<>();
+    // 复用的到期任务列表
+    private final List<Entry> mDue = new ArrayList<>();
+    // 有任务执行的唤醒次数（指标用）
+    private long mRunCount;
+
+    /**
+     * 安排任务在 [now + delayMs, now + delayMs + slackMs] 内执行；
+     * 任务已安排时保留两者中较早的窗口（不会把已安排的任务推迟）
+     */
+    public void schedule(Task task, long now, long delayMs, long slackMs) {
+        long earliest = now + Math.max(0, delayMs);
+        long latest = earliest + Math.max(0, slackMs);
+        Entry entry = find(task);
+        if (entry == null) {
+            entry = new Entry(task);
+            mEntries.add(entry);
+        } else if (entry.latest <= latest) {
+            return;
+        }
+        entry.earliest = earliest;
+        entry.latest = latest;
+        entry.slack = Math.max(0, slackMs);
+    }
+
+    public void cancel(Task task) {
+        Entry entry = find(task);
+        if (entry != null) mEntries.remove(entry);
+    }
+
+    public boolean isScheduled(Task task) {
+        return find(task) != null;
+    }
+
+    /**
+     * 执行所有窗口已开始的任务
+     *
+     * @return 执行的任务数
+     */
+    public int runDue(long now) {
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            Entry entry = mEntries.get(i);
+            if (entry.earliest <= now) {
+                mEntries.remove(i);
+                mDue.add(entry);
+            }
+        }
+        int count = mDue.size();
+        if (count > 0) mRunCount++;
+        for (int i = 0; i < count; i++) {
+            Entry entry = mDue.get(i);
+            long next = entry.task.run(now);
+            // 任务执行期间可能被重新安排，此时以新安排为准
+            if (next >= 0 && find(entry.task) == null) {
+                entry.earliest = now + next;
+                entry.latest = entry.earliest + entry.slack;
+                mEntries.add(entry);
+            }
+        }
+        mDue.clear();
+        return count;
+    }
+
+    /**
+     * 距离必须唤醒的时间（所有任务最迟时间的最小值），无任务时返回-1
+     */
+    public long nextWakeDelay(long now) {
+        long wake = Long.MAX_VALUE;
+        for (int i = 0; i < mEntries.size(); i++) {
+            wake = Math.min(wake, mEntries.get(i).latest);
+        }
+        return wake == Long.MAX_VALUE ? -1 : Math.max(0, wake - now);
+    }
+
+    public long getRunCount() {
+        return mRunCount;
+    }
+
+    private Entry find(Task task) {
+        for (int i = 0; i < mEntries.size(); i++) {
+            if (mEntries.get(i).task == task) return mEntries.get(i);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,230 @@
+package com.demo.androidtest.feature.settings;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.provider.Settings;
+
+import java.util.Locale;
+
+/**
+ * 被监听的Settings字段：命名空间 + 键 + 值类型 + 显示名称
+ * <p>
+ * 值以long原始槽位保存：int/long直接存放，float存放其位模式，string存放驻留表编号；
+ * 读取时使用注册时预先选定的解码器，格式化只在展示时进行。
+ */
+public class MonitoredField {
+    // 值读取失败或未设置
+    public static final long VALUE_MISSING = Long.MIN_VALUE;
+
+    /**
+     * Settings命名空间
+     */
+    public enum Namespace {
+        SYSTEM("content://settings/system/"),
+        SECURE("content://settings/secure/"),
+        GLOBAL("content://settings/global/");
+
+        private final String mUriPrefix;
+
+        Namespace(String uriPrefix) {
+            mUriPrefix = uriPrefix;
+        }
+
+        /**
+         * 该命名空间下各键URI的公共前缀（与 {@link #contentUri()} 一致的常量，不依赖框架静态字段）
+         */
+        public String uriPrefix() {
+            return mUriPrefix;
+        }
+
+        public Uri contentUri() {
+            switch (this) {
+                case SECURE:
+                    return Settings.Secure.CONTENT_URI;
+                case GLOBAL:
+                    return Settings.Global.CONTENT_URI;
+                default:
+                    return Settings.System.CONTENT_URI;
+            }
+        }
+
+        public static Namespace parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * 值类型
+     */
+    public enum ValueType {
+        INT, LONG, FLOAT, STRING;
+
+        public static ValueType parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * 预先解析的值解码器：从ContentResolver读取并转为原始槽位
+     */
+    public interface ValueDecoder {
+        long read(ContentResolver resolver, String key, InternTable strings);
+    }
+
+    public final int id; // 注册表中的编号（从0连续分配）
+    public final Namespace namespace;
+    public final String key;
+    public final ValueType type;
+    public final String displayName; // 中文名称
+    public final String unit; // 展示时附加的单位，可为空串
+    public final ValueDecoder decoder;
+    private Uri mUri;
+
+    public MonitoredField(int id, Namespace namespace, String key, ValueType type, String displayName, String unit) {
+        this.id = id;
+        this.namespace = namespace;
+        this.key = key;
+        this.type = type;
+        this.displayName = displayName;
+        this.unit = unit != null ? unit : "";
+        this.decoder = resolveDecoder(namespace, type);
+    }
+
+    /**
+     * 跨命名空间唯一的键，如 system:screen_brightness
+     */
+    public String qualifiedKey() {
+        return namespace.name().toLowerCase(Locale.ROOT) + ":" + key;
+    }
+
+    /**
+     * 字段对应的内容URI（首次调用时计算）
+     */
+    public Uri getUri() {
+        if (mUri == null) {
+            mUri = Uri.withAppendedPath(namespace.contentUri(), key);
+        }
+        return mUri;
+    }
+
+    /**
+     * 读取字段当前值
+     */
+    public long readValue(ContentResolver resolver, InternTable strings) {
+        try {
+            return decoder.read(resolver, key, strings);
+        } catch (RuntimeException e) {
+            return VALUE_MISSING;
+        }
+    }
+
+    /**
+     * 把Settings表中的字符串值转为原始槽位（快照比对用，解析规则与Settings.getXxx一致）
+     */
+    public long parseValue(String raw, InternTable strings) {
+        if (raw == null) return VALUE_MISSING;
+        try {
+            switch (type) {
+                case INT:
+                    return intSlot(Integer.parseInt(raw));
+                case LONG:
+                    return Long.parseLong(raw);
+                case FLOAT:
+                    return floatSlot(Float.parseFloat(raw));
+                default:
+                    return strings.intern(raw);
+            }
+        } catch (NumberFormatException e) {
+            return VALUE_MISSING;
+        }
+    }
+
+    /**
+     * 把原始槽位格式化追加到StringBuilder（含单位）
+     */
+    public StringBuilder appendValue(StringBuilder sb, long raw, InternTable strings) {
+        if (raw == VALUE_MISSING) {
+            return sb.append("获取失败");
+        }
+        switch (type) {
+            case FLOAT:
+                appendFixed2(sb, Float.intBitsToFloat((int) raw));
+                break;
+            case STRING:
+                sb.append(strings.get((int) raw));
+                break;
+            default:
+                sb.append(raw);
+                break;
+        }
+        return sb.append(unit);
+    }
+
+    /**
+     * 保留两位小数，不经过String.format
+     */
+    static void appendFixed2(StringBuilder sb, float value) {
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths < 0) {
+            sb.append('-');
+            hundredths = -hundredths;
+        }
+        long fraction = hundredths % 100;
+        sb.append(hundredths / 100).append('.');
+        if (fraction < 10) sb.append('0');
+        sb.append(fraction);
+    }
+
+    /**
+     * 按命名空间和类型预先选定解码器，读取时不再做字符串比较
+     */
+    private static ValueDecoder resolveDecoder(Namespace namespace, ValueType type) {
+        switch (namespace) {
+            case SECURE:
+                switch (type) {
+                    case INT:
+                        return (r, k, s) -> intSlot(Settings.Secure.getInt(r, k, Integer.MIN_VALUE));
+                    case LONG:
+                        return (r, k, s) -> Settings.Secure.getLong(r, k, VALUE_MISSING);
+                    case FLOAT:
+                        return (r, k, s) -> floatSlot(Settings.Secure.getFloat(r, k, Float.NaN));
+                    default:
+                        return (r, k, s) -> stringSlot(Settings.Secure.getString(r, k), s);
+                }
+            case GLOBAL:
+                switch (type) {
+                    case INT:
+                        return (r, k, s) -> intSlot(Settings.Global.getInt(r, k, Integer.MIN_VALUE));
+                    case LONG:
+                        return (r, k, s) -> Settings.Global.getLong(r, k, VALUE_MISSING);
+                    case FLOAT:
+                        return (r, k, s) -> floatSlot(Settings.Global.getFloat(r, k, Float.NaN));
+                    default:
+                        return (r, k, s) -> stringSlot(Settings.Global.getString(r, k), s);
+                }
+            default:
+                switch (type) {
+                    case INT:
+                        return (r, k, s) -> intSlot(Settings.System.getInt(r, k, Integer.MIN_VALUE));
+                    case LONG:
+                        return (r, k, s) -> Settings.System.getLong(r, k, VALUE_MISSING);
+                    case FLOAT:
+                        return (r, k, s) -> floatSlot(Settings.System.getFloat(r, k, Float.NaN));
+                    default:
+                        return (r, k, s) -> stringSlot(Settings.System.getString(r, k), s);
+                }
+        }
+    }
+
+    private static long intSlot(int value) {
+        return value == Integer.MIN_VALUE ? VALUE_MISSING : value;
+    }
+
+    private static long floatSlot(float value) {
+        return Float.isNaN(value) ? VALUE_MISSING : Float.floatToRawIntBits(value);
+    }
+
+    private static long stringSlot(String value, InternTable strings) {
+        return value == null ? VALUE_MISSING : strings.intern(value);
+    }
+}
@@ -0,0 +1,68 @@
+package com.demo.androidtest.feature.settings;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 记录时间格式化：追加到复用的StringBuilder，按小时缓存日期前缀
+ * <p>
+ * 同一小时内的时间只需计算分秒两位数字，不创建SimpleDateFormat/Date/String。
+ * 非线程安全，每个使用线程持有自己的实例。
+ */
+public class RecordTimeFormatter {
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private final SimpleDateFormat mHourFormat = new SimpleDateFormat("yyyy-MM-dd HH:", Locale.getDefault());
+    private final Calendar mCalendar = Calendar.getInstance();
+    private final Date mDate = new Date();
+    // 当前缓存小时的起止时间与前缀
+    private long mHourStart = Long.MAX_VALUE;
+    private long mHourEnd = Long.MIN_VALUE;
+    private String mHourPrefix = "";
+
+    /**
+     * 追加 yyyy-MM-dd HH:mm:ss
+     */
+    public StringBuilder appendDateTime(StringBuilder sb, long millis) {
+        ensureHour(millis);
+        sb.append(mHourPrefix);
+        return appendMinuteSecond(sb, millis);
+    }
+
+    /**
+     * 追加 HH:mm:ss
+     */
+    public StringBuilder appendTime(StringBuilder sb, long millis) {
+        ensureHour(millis);
+        // 前缀末尾固定为 "HH:"
+        sb.append(mHourPrefix, mHourPrefix.length() - 3, mHourPrefix.length());
+        return appendMinuteSecond(sb, millis);
+    }
+
+    private StringBuilder appendMinuteSecond(StringBuilder sb, long millis) {
+        int seconds = (int) ((millis - mHourStart) / 1000);
+        appendTwoDigits(sb, seconds / 60).append(':');
+        return appendTwoDigits(sb, seconds % 60);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * 按小时（而非按天）缓存，夏令时切换也落在整点，不会算错
+     */
+    private void ensureHour(long millis) {
+        if (millis >= mHourStart && millis < mHourEnd) return;
+        mCalendar.setTimeInMillis(millis);
+        mCalendar.set(Calendar.MINUTE, 0);
+        mCalendar.set(Calendar.SECOND, 0);
+        mCalendar.set(Calendar.MILLISECOND, 0);
+        mHourStart = mCalendar.getTimeInMillis();
+        mHourEnd = mHourStart + HOUR_MS;
+        mDate.setTime(mHourStart);
+        mHourPrefix = mHourFormat.format(mDate);
+    }
+}
@@ -0,0 +1,250 @@
+package com.demo.androidtest.feature.settings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按字段合并突发变更（防抖）：窗口内的连续事件折叠为一次“突发”
+ * <p>
+ * 同一字段两次事件间隔不超过窗口时归入同一突发；静默超过窗口或突发跨度超过上限时关闭突发，
+ * 由调用方读取最终值并生成一条记录。只在消费线程使用，非线程安全。
+ * <p>
+ * 事件按批次到达，读取当前值时本批次的事件都已生效。调用方先用 {@link #notePending} 登记整批事件，
+ * 若突发关闭时该字段还有已生效、未处理的事件，当前值已属于后一个突发，
+ * 此时最终值取 {@link Burst#lastValue}（上一批次结束时读取，见 {@link #refreshLastValues}）。
+ */
+public class SettingsChangeCoalescer {
+    // 默认合并窗口
+    public static final long DEFAULT_WINDOW_MS = 300;
+    // 默认单个突发最长跨度（持续拖动时也定期产出记录）
+    public static final long DEFAULT_MAX_SPAN_MS = 2000;
+
+    /**
+     * 一次突发：首值、事件数、时间跨度
+     */
+    public static final class Burst {
+        public final int fieldId;
+        public final long firstTime;
+        public long lastTime;
+        public int eventCount;
+        // 首个事件时解析的值（原始槽位）和修改者，由调用方填充
+        public long firstValue;
+        public String modifierPkg;
+        public long attributionAgeMs = -1;
+        // 最近一次读取的值：调用方填充首值时同时填充，之后每批次结束时刷新
+        public long lastValue;
+        // 关闭时该字段已有后续事件生效，当前值不属于本突发
+        public boolean superseded;
+        // 已加入本批次的待刷新列表
+        boolean refreshQueued;
+
+        Burst(int fieldId, long time) {
+            this.fieldId = fieldId;
+            this.firstTime = time;
+            this.lastTime = time;
+            this.eventCount = 1;
+        }
+
+        public boolean isNew() {
+            return eventCount == 1;
+        }
+
+        /**
+         * 突发关闭时的最终值：单次事件为首值，已被后续事件覆盖时为最近读取的值，否则读取当前值
+         */
+        public long finalValue(ValueReader reader) {
+            if (eventCount == 1) return firstValue;
+            if (superseded) return lastValue;
+            return reader.read(fieldId);
+        }
+    }
+
+    /**
+     * 读取字段当前值（原始槽位）
+     */
+    public interface ValueReader {
+        long read(int fieldId);
+    }
+
+    /**
+     * 突发关闭回调
+     */
+    public interface Sink {
+        void onBurstClosed(Burst burst);
+    }
+
+    // 按字段编号索引的未结束突发
+    private Burst[] mBurstById = new Burst[16];
+    // 按字段编号索引的本批次已登记、尚未处理的事件数
+    private int[] mPendingById = new int[16];
+    // 本批次延续了已有突发的列表（批次结束时刷新最近值）
+    private final List<Burst> mContinued = new ArrayList<>();
+    // 未结束突发列表（遍历用）
+    private final List<Burst> mOpenBursts = new ArrayList<>();
+    // 复用的待关闭列表，按首个事件时间顺序输出
+    private final List<Burst> mClosing = new ArrayList<>();
+    private long mWindowMs;
+    private long mMaxSpanMs;
+    // 原始事件总数（指标用）
+    private long mRawEventCount;
+    // 产出的合并记录数
+    private long mEmittedCount;
+
+    public SettingsChangeCoalescer() {
+        this(DEFAULT_WINDOW_MS, DEFAULT_MAX_SPAN_MS);
+    }
+
+    public SettingsChangeCoalescer(long windowMs, long maxSpanMs) {
+        setWindow(windowMs, maxSpanMs);
+    }
+
+    /**
+     * 调整合并窗口，窗口为0时每个事件单独成记录
+     */
+    public void setWindow(long windowMs, long maxSpanMs) {
+        mWindowMs = Math.max(0, windowMs);
+        mMaxSpanMs = Math.max(mWindowMs, maxSpanMs);
+    }
+
+    public long getWindowMs() {
+        return mWindowMs;
+    }
+
+    /**
+     * 登记一个已生效、即将按序传入 {@link #onEvent} 的事件（处理批次前对整批调用）
+     */
+    public void notePending(int fieldId) {
+        ensureCapacity(fieldId);
+        mPendingById[fieldId]++;
+    }
+
+    /**
+     * 接收一个原始事件
+     *
+     * @return 事件所属突发；{@link Burst#isNew()} 为true时调用方需解析首值
+     */
+    public Burst onEvent(int fieldId, long time, Sink sink) {
+        mRawEventCount++;
+        ensureCapacity(fieldId);
+        Burst burst = mBurstById[fieldId];
+        if (burst != null && (time - burst.lastTime > mWindowMs || time - burst.firstTime >= mMaxSpanMs)) {
+            // 超出窗口：先关闭旧突发（本事件已生效，当前值属于新突发）
+            mBurstById[fieldId] = null;
+            mOpenBursts.remove(burst);
+            burst.superseded = true;
+            emit(burst, sink);
+            burst = null;
+        }
+        if (mPendingById[fieldId] > 0) {
+            mPendingById[fieldId]--;
+        }
+        if (burst == null) {
+            burst = new Burst(fieldId, time);
+            mBurstById[fieldId] = burst;
+            mOpenBursts.add(burst);
+        } else {
+            burst.lastTime = Math.max(burst.lastTime, time);
+            burst.eventCount++;
+            if (!burst.refreshQueued) {
+                burst.refreshQueued = true;
+                mContinued.add(burst);
+            }
+        }
+        return burst;
+    }
+
+    /**
+     * 批次结束：为本批次延续的未结束突发读取最近值（每个突发每批次一次）
+     */
+    public void refreshLastValues(ValueReader reader) {
+        for (int i = 0; i < mContinued.size(); i++) {
+            Burst burst = mContinued.get(i);
+            burst.refreshQueued = false;
+            if (mBurstById[burst.fieldId] == burst) {
+                burst.lastValue = reader.read(burst.fieldId);
+            }
+        }
+        mContinued.clear();
+    }
+
+    /**
+     * 关闭已静默超过窗口（或跨度达到上限）的突发
+     *
+     * @return 关闭的突发数
+     */
+    public int flushExpired(long now, Sink sink) {
+        for (int i = mOpenBursts.size() - 1; i >= 0; i--) {
+            Burst burst = mOpenBursts.get(i);
+            if (now - burst.lastTime >= mWindowMs || now - burst.firstTime >= mMaxSpanMs) {
+                mOpenBursts.remove(i);
+                mBurstById[burst.fieldId] = null;
+                burst.superseded = mPendingById[burst.fieldId] > 0;
+                mClosing.add(burst);
+            }
+        }
+        return emitClosing(sink);
+    }
+
+    /**
+     * 关闭所有未结束的突发（停止监听时调用）
+     */
+    public int flushAll(Sink sink) {
+        mClosing.addAll(mOpenBursts);
+        for (int i = 0; i < mOpenBursts.size(); i++) {
+            mBurstById[mOpenBursts.get(i).fieldId] = null;
+        }
+        mOpenBursts.clear();
+        return emitClosing(sink);
+    }
+
+    /**
+     * 距离下一个突发到期的时长，无未结束突发时返回-1
+     */
+    public long nextDeadlineDelay(long now) {
+        long deadline = Long.MAX_VALUE;
+        for (int i = 0; i < mOpenBursts.size(); i++) {
+            Burst burst = mOpenBursts.get(i);
+            deadline = Math.min(deadline, Math.min(burst.lastTime + mWindowMs, burst.firstTime + mMaxSpanMs));
+        }
+        return deadline == Long.MAX_VALUE ? -1 : Math.max(0, deadline - now);
+    }
+
+    public boolean hasOpenBursts() {
+        return !mOpenBursts.isEmpty();
+    }
+
+    public long getRawEventCount() {
+        return mRawEventCount;
+    }
+
+    public long getEmittedCount() {
+        return mEmittedCount;
+    }
+
+    private void ensureCapacity(int fieldId) {
+        if (fieldId >= mBurstById.length) {
+            int length = Math.max(fieldId + 1, mBurstById.length * 2);
+            mBurstById = Arrays.copyOf(mBurstById, length);
+            mPendingById = Arrays.copyOf(mPendingById, length);
+        }
+    }
+
+    private int emitClosing(Sink sink) {
+        int count = mClosing.size();
+        if (count > 1) {
+            Collections.sort(mClosing, (a, b) -> Long.compare(a.firstTime, b.firstTime));
+        }
+        for (int i = 0; i < count; i++) {
+            emit(mClosing.get(i), sink);
+        }
+        mClosing.clear();
+        return count;
+    }
+
+    private void emit(Burst burst, Sink sink) {
+        mEmittedCount++;
+        sink.onBurstClosed(burst);
+    }
+}
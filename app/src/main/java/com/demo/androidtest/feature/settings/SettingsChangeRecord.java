@@ -0,0 +1,97 @@
+package com.demo.androidtest.feature.settings;
+
+/**
+ * Settings修改记录实体类
+ * <p>
+ * 记录本身保存在列式存储 {@link SettingsRecordTable} 中，本类只作为写入参数和读取结果的载体，
+ * 可用 {@link #set} 复用同一个对象。不依赖Service，可在JVM基准/单元测试中直接构造。
+ */
+public class SettingsChangeRecord {
+    // 字符串类型字段值的驻留表（写者：消费线程）
+    public static final InternTable VALUE_STRINGS = new InternTable();
+
+    public MonitoredField field; // 字段（中文名称/原始字段名/类型）
+    public long value; // 新值原始槽位（合并后为最终值）
+    public String modifierPkg; // 修改者包名
+    public long time; // 修改时间（合并后为最后一次修改时间）
+    public long firstValue; // 合并突发的首值原始槽位
+    public long firstTime; // 合并突发的首次修改时间
+    public int eventCount; // 合并的原始事件数
+    public long attributionAgeMs = -1; // 修改者归属的陈旧度（-1表示无法归属）
+
+    public SettingsChangeRecord() {
+    }
+
+    public SettingsChangeRecord(MonitoredField field, long value, String modifierPkg, long time) {
+        this(field, value, value, modifierPkg, time, time, 1);
+    }
+
+    public SettingsChangeRecord(MonitoredField field, long firstValue, long value,
+                                String modifierPkg, long firstTime, long time, int eventCount) {
+        set(field, firstValue, value, modifierPkg, firstTime, time, eventCount);
+    }
+
+    /**
+     * 复用本对象（归属陈旧度重置为-1）
+     */
+    public SettingsChangeRecord set(MonitoredField field, long firstValue, long value,
+                                    String modifierPkg, long firstTime, long time, int eventCount) {
+        this.field = field;
+        this.firstValue = firstValue;
+        this.value = value;
+        this.modifierPkg = modifierPkg;
+        this.firstTime = firstTime;
+        this.time = time;
+        this.eventCount = eventCount;
+        this.attributionAgeMs = -1;
+        return this;
+    }
+
+    /**
+     * 追加格式化后的最终值（展示时才格式化）
+     */
+    public StringBuilder appendValue(StringBuilder sb) {
+        return field.appendValue(sb, value, VALUE_STRINGS);
+    }
+
+    /**
+     * 追加格式化后的首值
+     */
+    public StringBuilder appendFirstValue(StringBuilder sb) {
+        return field.appendValue(sb, firstValue, VALUE_STRINGS);
+    }
+
+    /**
+     * 修改者归属的可信度
+     */
+    public ForegroundAppTracker.Confidence attributionConfidence() {
+        return ForegroundAppTracker.confidenceOf(attributionAgeMs);
+    }
+
+    /**
+     * 合并突发的时间跨度
+     */
+    public long spanMillis() {
+        return time - firstTime;
+    }
+
+    /**
+     * 追加单行摘要：[HH:mm:ss] 字段 = 值 (首值 → 值，次数/跨度，修改者)
+     */
+    public StringBuilder appendSummary(StringBuilder sb, RecordTimeFormatter timeFormatter) {
+        timeFormatter.appendTime(sb.append('['), time).append("] ")
+                .append(field.displayName).append(" = ");
+        appendValue(sb);
+        sb.append(" (");
+        if (eventCount > 1) {
+            appendFirstValue(sb).append(" → ");
+            appendValue(sb).append('，').append(eventCount).append("次/").append(spanMillis()).append("ms，");
+        }
+        return sb.append("修改者：").append(modifierPkg).append(')');
+    }
+
+    @Override
+    public String toString() {
+        return appendSummary(new StringBuilder(64), new RecordTimeFormatter()).toString();
+    }
+}
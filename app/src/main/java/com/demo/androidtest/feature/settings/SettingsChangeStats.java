@@ -0,0 +1,252 @@
+package com.demo.androidtest.feature.settings;
+
+import java.util.Arrays;
+
+/**
+ * Settings修改的流式统计：按字段按分钟的滚动窗口计数、修改者Top-K（Space-Saving）、数值字段的值分布
+ * <p>
+ * 全部使用定长基本类型数组，写入不分配对象：
+ * 1. 最近 {@link #WINDOW_MINUTES} 分钟，每个字段每分钟一个计数，分钟槽位环形复用；
+ * 2. 修改者包名用Space-Saving算法保留 {@link #TOP_K} 个计数器，计数的高估上界为其error；
+ * 3. INT/LONG字段的值按对数-线性分桶（每个2的幂区间再分4档），用于亮度、超时等的分布。
+ * 单写者（消费线程）调用 {@link #add}，UI通过 {@link #snapshot} 复制到自己的 {@link Summary}，
+ * 复制量与窗口大小成正比，不遍历原始记录。
+ */
+public class SettingsChangeStats {
+    public static final int WINDOW_MINUTES = 60;
+    // 统计的字段数上限（字段编号超出时只计入总数）
+    public static final int MAX_FIELDS = 128;
+    public static final int TOP_K = 16;
+    // 保留值分布的字段数上限
+    public static final int MAX_HISTOGRAMS = 16;
+    public static final int HISTOGRAM_BUCKETS = 1 + 63 * 4;
+    // 无法归属修改者时的统计键
+    public static final String UNKNOWN_PKG = "（未知）";
+    private static final long MINUTE_MS = 60_000;
+
+    // 分钟计数：[字段编号 * WINDOW_MINUTES + 分钟槽位]
+    private final int[] mCounts = new int[MAX_FIELDS * WINDOW_MINUTES];
+    // 分钟槽位当前对应的分钟数（时间/60000），-1表示空
+    private final long[] mSlotMinutes = new long[WINDOW_MINUTES];
+    private final MonitoredField[] mFields = new MonitoredField[MAX_FIELDS];
+    private long mTotal;
+    // Space-Saving计数器
+    private final String[] mTopKeys = new String[TOP_K];
+    private final long[] mTopCounts = new long[TOP_K];
+    private final long[] mTopErrors = new long[TOP_K];
+    private int mTopSize;
+    // 值分布：[分布下标 * HISTOGRAM_BUCKETS + 桶]
+    private final int[] mHistograms = new int[MAX_HISTOGRAMS * HISTOGRAM_BUCKETS];
+    private final MonitoredField[] mHistogramFields = new MonitoredField[MAX_HISTOGRAMS];
+    private int mHistogramCount;
+
+    public SettingsChangeStats() {
+        Arrays.fill(mSlotMinutes, -1);
+    }
+
+    /**
+     * 计入一条修改记录（合并后的记录按其事件数计入分钟计数）
+     */
+    public synchronized void add(SettingsChangeRecord record) {
+        mTotal++;
+        MonitoredField field = record.field;
+        long minute = record.time / MINUTE_MS;
+        int slot = (int) Math.floorMod(minute, (long) WINDOW_MINUTES);
+        // 比槽位中的分钟还旧（已滚出窗口）的记录不计入分钟计数
+        if (field.id < MAX_FIELDS && mSlotMinutes[slot] <= minute) {
+            if (mSlotMinutes[slot] != minute) {
+                mSlotMinutes[slot] = minute;
+                for (int f = 0; f < MAX_FIELDS; f++) {
+                    mCounts[f * WINDOW_MINUTES + slot] = 0;
+                }
+            }
+            mCounts[field.id * WINDOW_MINUTES + slot] += Math.max(1, record.eventCount);
+            mFields[field.id] = field;
+        }
+        addTop(record.modifierPkg != null ? record.modifierPkg : UNKNOWN_PKG);
+        if (field.type == MonitoredField.ValueType.INT || field.type == MonitoredField.ValueType.LONG) {
+            addValue(field, record.value);
+        }
+    }
+
+    /**
+     * 清空统计
+     */
+    public synchronized void clear() {
+        mTotal = 0;
+        Arrays.fill(mCounts, 0);
+        Arrays.fill(mSlotMinutes, -1);
+        Arrays.fill(mFields, null);
+        Arrays.fill(mTopKeys, null);
+        mTopSize = 0;
+        Arrays.fill(mHistograms, 0);
+        Arrays.fill(mHistogramFields, null);
+        mHistogramCount = 0;
+    }
+
+    /**
+     * 复制当前统计（任意线程）
+     *
+     * @param nowMillis 窗口右端（当前时间）
+     */
+    public synchronized void snapshot(long nowMillis, Summary into) {
+        long nowMinute = nowMillis / MINUTE_MS;
+        into.endMinute = nowMinute;
+        into.total = mTotal;
+        into.rows = 0;
+        into.maxCell = 0;
+        for (int f = 0; f < MAX_FIELDS; f++) {
+            if (mFields[f] == null) continue;
+            int row = into.rows;
+            int rowTotal = 0;
+            for (int age = 0; age < WINDOW_MINUTES; age++) {
+                long minute = nowMinute - age;
+                int slot = (int) Math.floorMod(minute, (long) WINDOW_MINUTES);
+                int count = mSlotMinutes[slot] == minute ? mCounts[f * WINDOW_MINUTES + slot] : 0;
+                into.cells[row * WINDOW_MINUTES + age] = count;
+                into.maxCell = Math.max(into.maxCell, count);
+                rowTotal += count;
+            }
+            // 窗口内没有修改的字段不占行
+            if (rowTotal > 0) {
+                into.rowFields[row] = mFields[f];
+                into.rowTotals[row] = rowTotal;
+                into.rows++;
+            }
+        }
+        into.topSize = mTopSize;
+        for (int i = 0; i < mTopSize; i++) {
+            into.topKeys[i] = mTopKeys[i];
+            into.topCounts[i] = mTopCounts[i];
+            into.topErrors[i] = mTopErrors[i];
+        }
+        sortTop(into);
+        into.histogramCount = mHistogramCount;
+        System.arraycopy(mHistogramFields, 0, into.histogramFields, 0, mHistogramCount);
+        System.arraycopy(mHistograms, 0, into.histograms, 0, mHistogramCount * HISTOGRAM_BUCKETS);
+    }
+
+    /**
+     * Space-Saving：已有计数器加一；否则占用空位，或替换最小计数器（继承其计数作为误差）
+     */
+    private void addTop(String key) {
+        int min = 0;
+        for (int i = 0; i < mTopSize; i++) {
+            if (mTopKeys[i].equals(key)) {
+                mTopCounts[i]++;
+                return;
+            }
+            if (mTopCounts[i] < mTopCounts[min]) min = i;
+        }
+        if (mTopSize < TOP_K) {
+            mTopKeys[mTopSize] = key;
+            mTopCounts[mTopSize] = 1;
+            mTopErrors[mTopSize] = 0;
+            mTopSize++;
+            return;
+        }
+        mTopKeys[min] = key;
+        mTopErrors[min] = mTopCounts[min];
+        mTopCounts[min]++;
+    }
+
+    private void addValue(MonitoredField field, long value) {
+        if (value == MonitoredField.VALUE_MISSING) return;
+        int index = -1;
+        for (int i = 0; i < mHistogramCount; i++) {
+            if (mHistogramFields[i] == field) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            if (mHistogramCount == MAX_HISTOGRAMS) return;
+            index = mHistogramCount++;
+            mHistogramFields[index] = field;
+        }
+        mHistograms[index * HISTOGRAM_BUCKETS + bucketOf(value)]++;
+    }
+
+    /**
+     * 对数-线性分桶：0号桶为 <= 0，其余按最高位所在的2的幂区间再按其后两位分4档
+     * （1、2~3区间不足4个值，多出的档位为空桶）
+     */
+    static int bucketOf(long value) {
+        if (value <= 0) return 0;
+        int octave = 63 - Long.numberOfLeadingZeros(value);
+        int sub = octave >= 2 ? (int) (value >>> (octave - 2)) & 3 : (int) (value - (1L << octave));
+        return 1 + octave * 4 + sub;
+    }
+
+    /**
+     * 桶的下界（含）
+     */
+    public static long bucketLow(int bucket) {
+        if (bucket == 0) return Long.MIN_VALUE;
+        int octave = (bucket - 1) / 4;
+        int sub = (bucket - 1) % 4;
+        return octave >= 2 ? (4L + sub) << (octave - 2) : (1L << octave) + sub;
+    }
+
+    /**
+     * 桶的上界（含），空桶的上界小于下界
+     */
+    public static long bucketHigh(int bucket) {
+        if (bucket == 0) return 0;
+        int octave = (bucket - 1) / 4;
+        int sub = (bucket - 1) % 4;
+        if (octave < 2) return sub < (1 << octave) ? bucketLow(bucket) : bucketLow(bucket) - 1;
+        return bucketLow(bucket) + (1L << (octave - 2)) - 1;
+    }
+
+    private static void sortTop(Summary summary) {
+        // 计数器不超过TOP_K个，插入排序（按计数降序）
+        for (int i = 1; i < summary.topSize; i++) {
+            String key = summary.topKeys[i];
+            long count = summary.topCounts[i];
+            long error = summary.topErrors[i];
+            int j = i - 1;
+            while (j >= 0 && summary.topCounts[j] < count) {
+                summary.topKeys[j + 1] = summary.topKeys[j];
+                summary.topCounts[j + 1] = summary.topCounts[j];
+                summary.topErrors[j + 1] = summary.topErrors[j];
+                j--;
+            }
+            summary.topKeys[j + 1] = key;
+            summary.topCounts[j + 1] = count;
+            summary.topErrors[j + 1] = error;
+        }
+    }
+
+    /**
+     * 统计副本（UI线程复用）
+     */
+    public static final class Summary {
+        // 窗口最右列对应的分钟数
+        public long endMinute;
+        public long total;
+        // 热力图：rows行 × WINDOW_MINUTES列，cells[行 * WINDOW_MINUTES + 距今分钟数]
+        public int rows;
+        public int maxCell;
+        public final MonitoredField[] rowFields = new MonitoredField[MAX_FIELDS];
+        public final int[] rowTotals = new int[MAX_FIELDS];
+        public final int[] cells = new int[MAX_FIELDS * WINDOW_MINUTES];
+        // 修改者Top-K（计数降序），实际次数在 [count - error, count] 之间
+        public int topSize;
+        public final String[] topKeys = new String[TOP_K];
+        public final long[] topCounts = new long[TOP_K];
+        public final long[] topErrors = new long[TOP_K];
+        // 值分布：histograms[下标 * HISTOGRAM_BUCKETS + 桶]
+        public int histogramCount;
+        public final MonitoredField[] histogramFields = new MonitoredField[MAX_HISTOGRAMS];
+        public final int[] histograms = new int[MAX_HISTOGRAMS * HISTOGRAM_BUCKETS];
+
+        public int cell(int row, int age) {
+            return cells[row * WINDOW_MINUTES + age];
+        }
+
+        public int histogram(int index, int bucket) {
+            return histograms[index * HISTOGRAM_BUCKETS + bucket];
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.demo.androidtest.feature.settings;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 进程内的修改记录事件总线：发布记录序号，多个订阅者各自在指定的Executor上接收
+ * <p>
+ * 每个订阅有自己的定长队列和背压策略（{@link Policy}）。发布只在订阅的队列上做O(1)入队，
+ * 不等待任何订阅者处理，慢订阅者按策略合并或丢弃，快订阅者收到每一个事件。
+ * 订阅者只被弱引用：持有者（如Activity）被回收后订阅自动失效，不会因漏掉注销而泄漏；
+ * 因此订阅者对象须由持有者保存在字段中（直接传入临时lambda会很快被回收）。
+ * <p>
+ * 记录内容不随事件传递，订阅者按序号从 {@link SettingsMonitorService#CHANGE_RECORDS} 读取。
+ */
+public class SettingsEventBus {
+    // 每次执行最多投递的事件数，超出后重新提交，避免长时间占用投递线程（如主线程）
+    static final int MAX_DELIVERIES_PER_RUN = 64;
+
+    /**
+     * 订阅者来不及处理时的策略
+     */
+    public enum Policy {
+        // 只保留最新的一个事件（适合只展示最新状态的UI）
+        CONFLATE,
+        // 按序缓存，队列满时覆盖最旧的事件
+        BUFFER,
+        // 按序缓存，队列满时丢弃新事件
+        DROP
+    }
+
+    /**
+     * 订阅者：在订阅时指定的Executor上按发布顺序被调用
+     */
+    public interface Subscriber {
+        void onRecord(long seq);
+    }
+
+    // 订阅（写时复制，发布时无锁遍历）
+    private volatile Subscription[] mSubscriptions = new Subscription[0];
+
+    /**
+     * 订阅
+     *
+     * @param executor 投递线程，如主线程用 Context#getMainExecutor()
+     * @param capacity 队列容量（CONFLATE时忽略）
+     */
+    public Subscription subscribe(Subscriber subscriber, Executor executor, Policy policy, int capacity) {
+        if (policy != Policy.CONFLATE && capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        }
+        Subscription subscription = new Subscription(this, subscriber, executor, policy,
+                policy == Policy.CONFLATE ? 1 : capacity);
+        synchronized (this) {
+            Subscription[] subscriptions = Arrays.copyOf(mSubscriptions, mSubscriptions.length + 1);
+            subscriptions[subscriptions.length - 1] = subscription;
+            mSubscriptions = subscriptions;
+        }
+        return subscription;
+    }
+
+    /**
+     * 发布一条新记录的序号（任意线程，不阻塞）
+     */
+    public void publish(long seq) {
+        Subscription[] subscriptions = mSubscriptions;
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(seq);
+        }
+    }
+
+    /**
+     * 当前有效的订阅数
+     */
+    public int subscriberCount() {
+        int count = 0;
+        for (Subscription subscription : mSubscriptions) {
+            if (!subscription.isCancelled()) count++;
+        }
+        return count;
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        Subscription[] subscriptions = mSubscriptions;
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i] == subscription) {
+                Subscription[] next = new Subscription[subscriptions.length - 1];
+                System.arraycopy(subscriptions, 0, next, 0, i);
+                System.arraycopy(subscriptions, i + 1, next, i, next.length - i);
+                mSubscriptions = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 一个订阅：环形队列 + 是否已提交投递
+     * <p>
+     * 发布线程和投递线程只在入队/出队时短暂持有本对象的锁，回调在锁外执行。
+     */
+    public static final class Subscription implements Runnable {
+        private final SettingsEventBus mBus;
+        private final WeakReference<Subscriber> mSubscriber;
+        private final Executor mExecutor;
+        private final Policy mPolicy;
+        private final long[] mQueue;
+        private int mQueueHead;
+        private int mQueueSize;
+        // 已提交到Executor、尚未执行完
+        private boolean mScheduled;
+        private volatile boolean mCancelled;
+        private volatile long mDroppedCount;
+
+        Subscription(SettingsEventBus bus, Subscriber subscriber, Executor executor, Policy policy, int capacity) {
+            mBus = bus;
+            mSubscriber = new WeakReference<>(subscriber);
+            mExecutor = executor;
+            mPolicy = policy;
+            mQueue = new long[capacity];
+        }
+
+        /**
+         * 取消订阅（任意线程），已入队未投递的事件不再投递
+         */
+        public void unsubscribe() {
+            if (mCancelled) return;
+            mCancelled = true;
+            mBus.remove(this);
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * 因策略被合并或丢弃的事件数（CONFLATE下被新事件取代的也计入）
+         */
+        public long droppedCount() {
+            return mDroppedCount;
+        }
+
+        void offer(long seq) {
+            if (mCancelled) return;
+            if (mSubscriber.get() == null) {
+                // 持有者已被回收
+                unsubscribe();
+                return;
+            }
+            boolean schedule;
+            synchronized (this) {
+                int capacity = mQueue.length;
+                if (mQueueSize == capacity) {
+                    mDroppedCount++;
+                    if (mPolicy == Policy.DROP) return;
+                    // CONFLATE/BUFFER：覆盖最旧的事件
+                    mQueueHead = (mQueueHead + 1) % capacity;
+                    mQueueSize--;
+                }
+                mQueue[(mQueueHead + mQueueSize) % capacity] = seq;
+                mQueueSize++;
+                schedule = !mScheduled;
+                mScheduled = true;
+            }
+            if (schedule) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            try {
+                mExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Executor已关闭：保留队列，下次发布时重试
+                synchronized (this) {
+                    mScheduled = false;
+                }
+            }
+        }
+
+        /**
+         * 投递线程：按序投递队列中的事件
+         */
+        @Override
+        public void run() {
+            for (int delivered = 0; ; delivered++) {
+                long seq;
+                synchronized (this) {
+                    if (mQueueSize == 0 || mCancelled) {
+                        mScheduled = false;
+                        return;
+                    }
+                    if (delivered == MAX_DELIVERIES_PER_RUN) break;
+                    seq = mQueue[mQueueHead];
+                    mQueueHead = (mQueueHead + 1) % mQueue.length;
+                    mQueueSize--;
+                }
+                Subscriber subscriber = mSubscriber.get();
+                if (subscriber == null) {
+                    unsubscribe();
+                    synchronized (this) {
+                        mScheduled = false;
+                    }
+                    return;
+                }
+                try {
+                    subscriber.onRecord(seq);
+                } catch (RuntimeException e) {
+                    // 回调异常抛给Executor；剩余事件在下次发布时重新提交
+                    synchronized (this) {
+                        mScheduled = false;
+                    }
+                    throw e;
+                }
+            }
+            // 仍有积压：让出投递线程，稍后继续
+            submit();
+        }
+    }
+}
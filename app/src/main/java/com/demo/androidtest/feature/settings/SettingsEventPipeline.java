@@ -0,0 +1,203 @@
+package com.demo.androidtest.feature.settings;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Settings变更事件流水线：观察线程入队 → 消费线程批量解析 → 限频投递到UI线程
+ * <p>
+ * 1. 观察线程（ContentObserver回调所在线程）只把原始事件放入队列，不做任何IO；
+ * 2. 消费线程按批次取出事件，交给 {@link BatchConsumer} 解析字段值/修改者并写入记录；
+ * 3. 批次产出的最新结果合并后投递到主线程，投递频率不超过 {@link #UI_INTERVAL_MS}。
+ */
+public class SettingsEventPipeline {
+    // 批次收集窗口：首个事件到达后等待该时长再统一消费
+    public static final long BATCH_DELAY_MS = 50;
+    // UI最小刷新间隔
+    public static final long UI_INTERVAL_MS = 100;
+
+    /**
+     * 原始事件：只包含字段和到达时间
+     */
+    public static final class RawEvent {
+        public final int fieldId; // 注册表中的字段编号
+        public final long time;
+
+        public RawEvent(int fieldId, long time) {
+            this.fieldId = fieldId;
+            this.time = time;
+        }
+    }
+
+    /**
+     * 批量消费者（运行在消费线程）
+     */
+    public interface BatchConsumer {
+        /**
+         * @param batch 本批次原始事件，定时冲刷时为空
+         * @return 本批次产出的最新记录序号，无产出时返回-1
+         */
+        long onBatch(List<RawEvent> batch);
+    }
+
+    /**
+     * UI回调（运行在主线程）
+     */
+    public interface UiCallback {
+        /**
+         * @param latestSeq 最新记录在 {@link SettingsMonitorService#CHANGE_RECORDS} 中的序号
+         */
+        void onRecordsUpdated(long latestSeq);
+    }
+
+    private final BatchConsumer mConsumer;
+    private final UiCallback mUiCallback;
+    private final ConcurrentLinkedQueue<RawEvent> mQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+    private final AtomicBoolean mUiScheduled = new AtomicBoolean();
+    // 仅消费线程使用的批次缓冲，避免每批分配
+    private final List<RawEvent> mBatch = new ArrayList<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread mObserverThread;
+    private HandlerThread mConsumerThread;
+    private Handler mObserverHandler;
+    private Handler mConsumerHandler;
+
+    private volatile long mLatestSeq = -1;
+    private volatile long mLastUiTime;
+    // 已安排的定时冲刷时间（uptime），仅消费线程使用
+    private long mFlushAt = Long.MAX_VALUE;
+
+    private final Runnable mDrainRunnable = this::drain;
+    // 定时冲刷（合并窗口到期），与批次消费共用处理逻辑
+    private final Runnable mFlushRunnable = this::drain;
+    private final Runnable mUiRunnable = this::deliverToUi;
+
+    public SettingsEventPipeline(BatchConsumer consumer, UiCallback uiCallback) {
+        mConsumer = consumer;
+        mUiCallback = uiCallback;
+    }
+
+    /**
+     * 启动观察线程和消费线程
+     */
+    public void start() {
+        if (mObserverThread != null) return;
+        mObserverThread = new HandlerThread("SettingsObserver");
+        mObserverThread.start();
+        mObserverHandler = new Handler(mObserverThread.getLooper());
+        mConsumerThread = new HandlerThread("SettingsConsumer");
+        mConsumerThread.start();
+        mConsumerHandler = new Handler(mConsumerThread.getLooper());
+    }
+
+    /**
+     * ContentObserver应绑定的Handler（观察线程）
+     */
+    public Handler getObserverHandler() {
+        return mObserverHandler;
+    }
+
+    /**
+     * 提交原始事件（观察线程调用，只入队）
+     */
+    public void offer(int fieldId, long time) {
+        mQueue.offer(new RawEvent(fieldId, time));
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mConsumerHandler.postDelayed(mDrainRunnable, BATCH_DELAY_MS);
+        }
+    }
+
+    /**
+     * 保证在指定延时内触发一次消费（批次可能为空），用于合并窗口到期、日志组提交等定时任务
+     * 只在消费线程调用；已安排的冲刷更早时保持不变
+     */
+    public void scheduleDrain(long delayMs) {
+        long at = SystemClock.uptimeMillis() + delayMs;
+        if (at >= mFlushAt) return;
+        mFlushAt = at;
+        mConsumerHandler.removeCallbacks(mFlushRunnable);
+        mConsumerHandler.postAtTime(mFlushRunnable, at);
+    }
+
+    /**
+     * 在消费线程执行任务（如清空记录，保证记录存储的单写者约束）
+     */
+    public void runOnConsumer(Runnable task) {
+        if (mConsumerHandler != null) {
+            mConsumerHandler.post(task);
+        }
+    }
+
+    /**
+     * 延迟在消费线程执行任务，替换同一任务尚未执行的安排
+     */
+    public void runOnConsumerDelayed(Runnable task, long delayMs) {
+        if (mConsumerHandler != null) {
+            mConsumerHandler.removeCallbacks(task);
+            mConsumerHandler.postDelayed(task, delayMs);
+        }
+    }
+
+    /**
+     * 停止流水线：已入队的事件和任务会先执行完
+     */
+    public void quit() {
+        mMainHandler.removeCallbacks(mUiRunnable);
+        if (mObserverThread != null) {
+            mObserverThread.quitSafely();
+            mConsumerThread.quitSafely();
+            mObserverThread = null;
+            mConsumerThread = null;
+        }
+    }
+
+    /**
+     * 消费线程：取出当前所有事件作为一个批次（定时冲刷时批次可能为空）
+     */
+    private void drain() {
+        // 先复位标记，之后到达的事件会调度新的批次
+        mDrainScheduled.set(false);
+        if (mFlushAt <= SystemClock.uptimeMillis()) {
+            mFlushAt = Long.MAX_VALUE;
+        }
+        RawEvent event;
+        while ((event = mQueue.poll()) != null) {
+            mBatch.add(event);
+        }
+        long latestSeq = mConsumer.onBatch(mBatch);
+        mBatch.clear();
+        if (latestSeq >= 0) {
+            publish(latestSeq);
+        }
+    }
+
+    /**
+     * 合并投递：UI线程只看到最新结果，且刷新间隔不小于UI_INTERVAL_MS
+     * 批次之外产出的记录（如启动时回放的历史）也通过这里通知UI
+     */
+    public void publish(long latestSeq) {
+        mLatestSeq = latestSeq;
+        if (mUiScheduled.compareAndSet(false, true)) {
+            long delay = Math.max(0, mLastUiTime + UI_INTERVAL_MS - SystemClock.uptimeMillis());
+            mMainHandler.postDelayed(mUiRunnable, delay);
+        }
+    }
+
+    private void deliverToUi() {
+        mUiScheduled.set(false);
+        mLastUiTime = SystemClock.uptimeMillis();
+        long latestSeq = mLatestSeq;
+        if (latestSeq >= 0) {
+            mUiCallback.onRecordsUpdated(latestSeq);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.demo.androidtest.feature.settings;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 修改记录导出会话：把持久化日志中的记录按长度前缀的二进制帧流式发送给主机端
+ * <p>
+ * 协议（大端序）：
+ * <pre>
+ * 客户端 → 服务端：int 魔数SCX1，long 起始序号，int 初始额度；之后随时可发送 int 追加额度
+ * 服务端 → 客户端：int 帧长度 + 帧内容
+ *   记录帧：byte 1，long 序号，str 限定键，byte 值类型，值×2（首值、最终值），
+ *           str 修改者，long 首次时间，long 最后时间，int 事件数，long 归属陈旧度
+ *           值：字符串类型为str，其余为long原始槽位（FLOAT为位模式）
+ *   追平帧：byte 2，long 下一序号（已发送完所有已提交记录，之后有新记录会继续发送）
+ * str = boolean 是否非null + UTF
+ * </pre>
+ * 每发送一条记录消耗一个额度，额度用完后阻塞等待客户端追加（背压）；
+ * 断开后以最后收到的序号+1作为起始序号重连即可续传。序号不连续表示最旧的日志段已被删除。
+ */
+public class SettingsExportStream {
+    public static final int MAGIC = 0x53435831; // "SCX1"
+    public static final byte FRAME_RECORD = 1;
+    public static final byte FRAME_CAUGHT_UP = 2;
+    // 追平后等待新记录的轮询间隔（有新提交时会提前唤醒）
+    static final long POLL_MS = 1000;
+
+    /**
+     * 记录来源
+     */
+    public interface Source {
+        /**
+         * 读取序号不小于fromSeq的已提交记录
+         */
+        void read(long fromSeq, SettingsRecordJournal.RawVisitor visitor) throws IOException;
+
+        /**
+         * 等待已提交记录数超过seq，超时也返回
+         *
+         * @return 当前已提交的记录数
+         */
+        long awaitCommitted(long seq, long timeoutMs) throws InterruptedException;
+    }
+
+    private final Source mSource;
+    private final DataInputStream mIn;
+    private final DataOutputStream mOut;
+    // 帧内容缓冲（复用）
+    private final ByteArrayOutputStream mFrameBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream mFrame = new DataOutputStream(mFrameBytes);
+    private final SettingsRecordJournal.RawVisitor mWriter = this::writeRecord;
+    private IOException mWriteError;
+
+    private long mNext;
+    private long mCredit;
+    private long mSentCount;
+
+    public SettingsExportStream(Source source, InputStream in, OutputStream out) {
+        mSource = source;
+        mIn = new DataInputStream(in);
+        mOut = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+    }
+
+    /**
+     * 执行会话直到客户端断开（抛出IOException）或线程被中断
+     */
+    public void run() throws IOException, InterruptedException {
+        if (mIn.readInt() != MAGIC) throw new IOException("bad export handshake");
+        mNext = Math.max(0, mIn.readLong());
+        mCredit = Math.max(0, mIn.readInt());
+        boolean caughtUp = false;
+        long committed = mSource.awaitCommitted(mNext, 0);
+        while (!Thread.currentThread().isInterrupted()) {
+            readCredit(mCredit == 0);
+            if (committed <= mNext) {
+                if (!caughtUp) {
+                    caughtUp = true;
+                    writeCaughtUp();
+                }
+                mOut.flush();
+                committed = mSource.awaitCommitted(mNext, POLL_MS);
+                continue;
+            }
+            caughtUp = false;
+            long before = mNext;
+            mSource.read(mNext, mWriter);
+            if (mWriteError != null) throw mWriteError;
+            if (mNext == before) {
+                // 已提交但读不到（日志被重建等）：跳过，避免空转
+                mNext = committed;
+            }
+            mOut.flush();
+        }
+    }
+
+    /**
+     * 已发送的记录数
+     */
+    public long getSentCount() {
+        return mSentCount;
+    }
+
+    /**
+     * 读取客户端追加的额度；block为true时阻塞到至少收到一次
+     */
+    private void readCredit(boolean block) throws IOException {
+        if (block) mOut.flush();
+        while (block || mIn.available() >= 4) {
+            mCredit += Math.max(0, mIn.readInt());
+            block = mCredit == 0;
+        }
+    }
+
+    private boolean writeRecord(SettingsRecordJournal.RawRecord record) {
+        try {
+            mFrameBytes.reset();
+            mFrame.writeByte(FRAME_RECORD);
+            mFrame.writeLong(record.seq);
+            writeString(record.qualifiedKey);
+            mFrame.writeByte(record.type.ordinal());
+            if (record.type == MonitoredField.ValueType.STRING) {
+                writeString(record.firstString);
+                writeString(record.valueString);
+            } else {
+                mFrame.writeLong(record.firstValue);
+                mFrame.writeLong(record.value);
+            }
+            writeString(record.modifierPkg);
+            mFrame.writeLong(record.firstTime);
+            mFrame.writeLong(record.time);
+            mFrame.writeInt(record.eventCount);
+            mFrame.writeLong(record.attributionAgeMs);
+            writeFrame();
+            mNext = record.seq + 1;
+            mSentCount++;
+            if (--mCredit > 0) return true;
+            // 额度用完：阻塞等待客户端追加（背压），期间保持日志段的映射
+            readCredit(true);
+            return true;
+        } catch (IOException e) {
+            mWriteError = e;
+            return false;
+        }
+    }
+
+    private void writeCaughtUp() throws IOException {
+        mFrameBytes.reset();
+        mFrame.writeByte(FRAME_CAUGHT_UP);
+        mFrame.writeLong(mNext);
+        writeFrame();
+    }
+
+    private void writeFrame() throws IOException {
+        mOut.writeInt(mFrameBytes.size());
+        mFrameBytes.writeTo(mOut);
+    }
+
+    private void writeString(String value) throws IOException {
+        mFrame.writeBoolean(value != null);
+        if (value != null) mFrame.writeUTF(value);
+    }
+}
@@ -0,0 +1,215 @@
+package com.demo.androidtest.feature.settings;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 被监听字段注册表：从assets/settings_fields.json加载字段声明
+ * <p>
+ * 每项声明 key / namespace（system|secure|global）/ type（int|long|float|string）/ name / unit，
+ * 字段编号按声明顺序从0分配，重复声明的 namespace:key 以第一个为准。加载后只读，可在任意线程使用。
+ * <p>
+ * 每个命名空间预先建立“键 → 字段编号”的开放寻址表，观察者回调时直接在URI字符串上
+ * 按区间计算哈希并比较，未监听的键不做任何分配即被丢弃。
+ */
+public class SettingsFieldRegistry {
+    public static final String ASSET_NAME = "settings_fields.json";
+
+    private final List<MonitoredField> mFields;
+    private final Map<String, MonitoredField> mByQualifiedKey = new HashMap<>();
+    // 按命名空间序号索引的键表
+    private final KeyIndex[] mIndexes = new KeyIndex[MonitoredField.Namespace.values().length];
+
+    public SettingsFieldRegistry(List<MonitoredField> fields) {
+        mFields = Collections.unmodifiableList(new ArrayList<>(fields));
+        for (MonitoredField field : mFields) {
+            // 与键表一致：重复的键以第一个为准
+            if (!mByQualifiedKey.containsKey(field.qualifiedKey())) {
+                mByQualifiedKey.put(field.qualifiedKey(), field);
+            }
+        }
+        for (MonitoredField.Namespace namespace : MonitoredField.Namespace.values()) {
+            mIndexes[namespace.ordinal()] = new KeyIndex(namespace, mFields);
+        }
+    }
+
+    /**
+     * 从assets加载，配置缺失或损坏时退回内置的默认字段
+     */
+    public static SettingsFieldRegistry load(Context context) {
+        List<MonitoredField> fields = new ArrayList<>();
+        Set<String> qualifiedKeys = new HashSet<>();
+        try {
+            InputStream is = context.getAssets().open(ASSET_NAME);
+            BufferedReader br = new BufferedReader(new InputStreamReader(is));
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) {
+                sb.append(line);
+            }
+            br.close();
+
+            JSONArray jsonArray = new JSONArray(sb.toString());
+            for (int i = 0; i < jsonArray.length(); i++) {
+                JSONObject obj = jsonArray.getJSONObject(i);
+                try {
+                    MonitoredField field = new MonitoredField(
+                            fields.size(),
+                            MonitoredField.Namespace.parse(obj.optString("namespace", "system")),
+                            obj.getString("key"),
+                            MonitoredField.ValueType.parse(obj.optString("type", "string")),
+                            obj.optString("name", obj.getString("key")),
+                            obj.optString("unit", "")
+                    );
+                    // 重复声明只保留第一个，编号保持连续
+                    if (!qualifiedKeys.add(field.qualifiedKey())) {
+                        Log.w(SettingsMonitorService.TAG, "忽略重复的字段声明：" + obj);
+                        continue;
+                    }
+                    fields.add(field);
+                } catch (Exception e) {
+                    // 单个字段声明错误只跳过该字段
+                    Log.w(SettingsMonitorService.TAG, "忽略无效的字段声明：" + obj, e);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fields.clear();
+        }
+        if (fields.isEmpty()) {
+            fields = defaultFields();
+        }
+        return new SettingsFieldRegistry(fields);
+    }
+
+    /**
+     * 内置默认字段（原硬编码的三个System字段）
+     */
+    public static List<MonitoredField> defaultFields() {
+        List<MonitoredField> fields = new ArrayList<>();
+        fields.add(new MonitoredField(0, MonitoredField.Namespace.SYSTEM, "screen_brightness",
+                MonitoredField.ValueType.INT, "屏幕亮度", " (0-255)"));
+        fields.add(new MonitoredField(1, MonitoredField.Namespace.SYSTEM, "font_scale",
+                MonitoredField.ValueType.FLOAT, "字体缩放", ""));
+        fields.add(new MonitoredField(2, MonitoredField.Namespace.SYSTEM, "screen_off_timeout",
+                MonitoredField.ValueType.INT, "屏幕超时", " ms"));
+        return fields;
+    }
+
+    public List<MonitoredField> getFields() {
+        return mFields;
+    }
+
+    public int size() {
+        return mFields.size();
+    }
+
+    public MonitoredField get(int id) {
+        return mFields.get(id);
+    }
+
+    /**
+     * 按 namespace:key 查找，不存在时返回null
+     */
+    public MonitoredField findByQualifiedKey(String qualifiedKey) {
+        return mByQualifiedKey.get(qualifiedKey);
+    }
+
+    /**
+     * 命名空间内被监听的字段（用于按命名空间注册观察者），没有时返回false
+     */
+    public boolean hasFields(MonitoredField.Namespace namespace) {
+        return mIndexes[namespace.ordinal()].mSize > 0;
+    }
+
+    /**
+     * 把观察者回调的URI解析为字段编号（不分配对象），不是被监听的键时返回-1
+     *
+     * @param namespace 回调所属观察者的命名空间
+     * @param uri       回调URI的字符串形式，如 content://settings/system/screen_brightness
+     */
+    public int findIdByUri(MonitoredField.Namespace namespace, String uri) {
+        return uri == null ? -1 : mIndexes[namespace.ordinal()].find(uri);
+    }
+
+    /**
+     * 单个命名空间的键表：线性探测的开放寻址表，容量为2的幂
+     */
+    private static final class KeyIndex {
+        // "content://settings/system/" 的长度，键从这里开始
+        private final int mKeyStart;
+        private final String mPrefix;
+        private final String[] mKeys;
+        private final int[] mIds;
+        private final int mMask;
+        private int mSize;
+
+        KeyIndex(MonitoredField.Namespace namespace, List<MonitoredField> fields) {
+            mPrefix = namespace.uriPrefix();
+            mKeyStart = mPrefix.length();
+            int count = 0;
+            for (MonitoredField field : fields) {
+                if (field.namespace == namespace) count++;
+            }
+            // 装载因子不超过0.5
+            int capacity = Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;
+            mKeys = new String[capacity];
+            mIds = new int[capacity];
+            mMask = capacity - 1;
+            for (MonitoredField field : fields) {
+                if (field.namespace == namespace) put(field.key, field.id);
+            }
+        }
+
+        private void put(String key, int id) {
+            int slot = hash(key, 0, key.length()) & mMask;
+            while (mKeys[slot] != null) {
+                if (mKeys[slot].equals(key)) return; // 重复声明以第一个为准
+                slot = (slot + 1) & mMask;
+            }
+            mKeys[slot] = key;
+            mIds[slot] = id;
+            mSize++;
+        }
+
+        int find(String uri) {
+            int length = uri.length() - mKeyStart;
+            // 键不能为空，也不能再含有子路径
+            if (length <= 0 || uri.indexOf('/', mKeyStart) >= 0
+                    || !uri.regionMatches(0, mPrefix, 0, mKeyStart)) {
+                return -1;
+            }
+            int slot = hash(uri, mKeyStart, uri.length()) & mMask;
+            String key;
+            while ((key = mKeys[slot]) != null) {
+                if (key.length() == length && uri.regionMatches(mKeyStart, key, 0, length)) {
+                    return mIds[slot];
+                }
+                slot = (slot + 1) & mMask;
+            }
+            return -1;
+        }
+
+        private static int hash(String s, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + s.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
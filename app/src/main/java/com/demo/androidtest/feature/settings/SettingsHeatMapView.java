@@ -0,0 +1,100 @@
+package com.demo.androidtest.feature.settings;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.TypedValue;
+import android.view.View;
+
+/**
+ * 修改频率热力图：每行一个字段，每列一分钟（最新在最右），颜色深浅表示该分钟的修改次数
+ * <p>
+ * 直接绘制 {@link SettingsChangeStats.Summary}，绘制量为 行数 × 窗口分钟数；
+ * 画笔在创建时分配，onDraw中不分配对象。
+ */
+public class SettingsHeatMapView extends View {
+    private static final int COLOR_HOT = Color.parseColor("#FF6600");
+    private static final int COLOR_EMPTY = Color.parseColor("#F5F5F5");
+    private static final String AXIS_END_LABEL = "现在";
+
+    private final Paint mCellPaint = new Paint();
+    private final Paint mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float mRowHeight;
+    private final float mLabelWidth;
+    private final float mAxisEndWidth;
+    private SettingsChangeStats.Summary mSummary;
+    // 时间轴标注：列数变化时（setSummary中）重建，onDraw只绘制
+    private int mAxisColumns = -1;
+    private String mAxisStartLabel;
+
+    public SettingsHeatMapView(Context context) {
+        super(context);
+        mLabelPaint.setColor(Color.DKGRAY);
+        mLabelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 11,
+                context.getResources().getDisplayMetrics()));
+        mRowHeight = mLabelPaint.getTextSize() * 1.6f;
+        mLabelWidth = mLabelPaint.getTextSize() * 7;
+        mAxisEndWidth = mLabelPaint.measureText(AXIS_END_LABEL);
+    }
+
+    /**
+     * 设置要绘制的统计（调用方复用同一个Summary时，更新后再次调用即可重绘）
+     */
+    public void setSummary(SettingsChangeStats.Summary summary) {
+        boolean resize = mSummary == null || mSummary.rows != summary.rows;
+        mSummary = summary;
+        int columns = SettingsChangeStats.WINDOW_MINUTES;
+        if (columns != mAxisColumns) {
+            mAxisColumns = columns;
+            mAxisStartLabel = columns + "分钟前";
+        }
+        if (resize) requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int rows = mSummary != null ? Math.max(1, mSummary.rows) : 1;
+        // 末行下方留出时间轴标注
+        int height = (int) (mRowHeight * (rows + 1)) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        SettingsChangeStats.Summary summary = mSummary;
+        if (summary == null) return;
+        float left = getPaddingLeft() + mLabelWidth;
+        float top = getPaddingTop();
+        float width = getWidth() - getPaddingRight() - left;
+        if (width <= 0) return;
+        int columns = mAxisColumns;
+        float cellWidth = width / columns;
+        float textOffset = (mRowHeight + mLabelPaint.getTextSize()) / 2 - mLabelPaint.descent();
+        for (int row = 0; row < summary.rows; row++) {
+            float y = top + row * mRowHeight;
+            canvas.drawText(summary.rowFields[row].displayName, getPaddingLeft(), y + textOffset, mLabelPaint);
+            for (int age = 0; age < columns; age++) {
+                int count = summary.cell(row, age);
+                mCellPaint.setColor(count == 0 ? COLOR_EMPTY : heatColor(count, summary.maxCell));
+                float x = left + (columns - 1 - age) * cellWidth;
+                canvas.drawRect(x + 1, y + 1, x + cellWidth - 1, y + mRowHeight - 1, mCellPaint);
+            }
+        }
+        float axisY = top + summary.rows * mRowHeight + textOffset;
+        canvas.drawText(mAxisStartLabel, left, axisY, mLabelPaint);
+        canvas.drawText(AXIS_END_LABEL, left + width - mAxisEndWidth, axisY, mLabelPaint);
+    }
+
+    /**
+     * 次数按对数映射到透明度，单次修改也清晰可见
+     */
+    private static int heatColor(int count, int max) {
+        float ratio = max <= 1 ? 1f : (float) (Math.log(count) / Math.log(max));
+        int alpha = (int) (64 + 191 * Math.min(1f, ratio));
+        return (alpha << 24) | (COLOR_HOT & 0xFFFFFF);
+    }
+}
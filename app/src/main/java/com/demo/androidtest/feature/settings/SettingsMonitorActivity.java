@@ -1,51 +1,74 @@
 package com.demo.androidtest.feature.settings;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.LinearLayout;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.util.TypedValue;
 
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.demo.androidtest.base.BaseTestActivity;
 import com.demo.androidtest.R;
 
-import java.text.SimpleDateFormat;
-import java.util.Locale;
-import java.util.List;
-
 /**
  * Settings监控页面：展示所有修改记录，控制监听服务启停
  */
 public class SettingsMonitorActivity extends BaseTestActivity {
-    private LinearLayout mRecordsLayout;
-    // 用于通知UI刷新的回调
-    private static OnRefreshListener sOnRefreshListener;
+    private RecyclerView mRecordsView;
+    private LinearLayoutManager mLayoutManager;
+    private SettingsRecordAdapter mRecordAdapter;
+    private TextView mEmptyTv;
+    private TextView mRecordsTitle;
+    // 筛选条件（字段名/键或修改者包名，为空时展示全部）
+    private String mFilter = "";
+    private final SettingsRecordIndex.Query mQuery = new SettingsRecordIndex.Query();
+    private final long[] mFilteredSeqs = new long[SettingsMonitorService.RECORD_CAPACITY];
+    // 统计面板（热力图 + Top修改者/值分布），由聚合结果绘制，不遍历记录
+    private LinearLayout mSummaryLayout;
+    private SettingsHeatMapView mHeatMapView;
+    private TextView mSummaryTv;
+    private final SettingsChangeStats.Summary mSummary = new SettingsChangeStats.Summary();
+    private final StringBuilder mSummaryText = new StringBuilder();
+    // 与监控进程的连接（记录经共享内存复制到本进程）
+    private SettingsMonitorClient mClient;
+    // 新记录订阅：合并到主线程，主线程忙时只刷新一次（事件总线只弱引用订阅者，由页面持有）
+    private final SettingsEventBus.Subscriber mRecordSubscriber = seq -> refreshRecords();
+    private SettingsEventBus.Subscription mRecordSubscription;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         initUI();
-        // 注册刷新回调
-        sOnRefreshListener = this::refreshRecords;
-        // 启动监听服务
-        startService(new Intent(this, SettingsMonitorService.class));
+        // 订阅新记录
+        mRecordSubscription = SettingsMonitorService.RECORD_EVENTS.subscribe(mRecordSubscriber,
+                getMainExecutor(), SettingsEventBus.Policy.CONFLATE, 1);
+        // 启动监听服务（前台模式，常驻通知）
+        requestNotificationPermission();
+        SettingsMonitorService.start(this, true);
+        mClient = new SettingsMonitorClient(this);
+        mClient.bind();
         // 初始刷新记录
         refreshRecords();
     }
 
     /**
-     * 初始化UI：启停按钮 + 修改记录列表
+     * 初始化UI：启停按钮 + 修改记录列表（RecyclerView复用条目）
      */
     private void initUI() {
-        ScrollView scrollView = new ScrollView(this);
-        scrollView.setBackgroundColor(Color.WHITE);
-
         LinearLayout rootLayout = new LinearLayout(this);
+        rootLayout.setBackgroundColor(Color.WHITE);
         rootLayout.setOrientation(LinearLayout.VERTICAL);
         rootLayout.setPadding(32, 32, 32, 32);
 
@@ -65,7 +88,7 @@ public class SettingsMonitorActivity extends BaseTestActivity {
 
         Button startBtn = new Button(this);
         startBtn.setText("启动监听");
-        startBtn.setOnClickListener(v -> startService(new Intent(this, SettingsMonitorService.class)));
+        startBtn.setOnClickListener(v -> SettingsMonitorService.start(this, true));
         btnLayout.addView(startBtn);
 
         Button stopBtn = new Button(this);
@@ -73,10 +96,34 @@ public class SettingsMonitorActivity extends BaseTestActivity {
 //        stopBtn.setMarginStart(16);
         stopBtn.setOnClickListener(v -> stopService(new Intent(this, SettingsMonitorService.class)));
         btnLayout.addView(stopBtn);
+
+        Button statsBtn = new Button(this);
+        statsBtn.setText("统计");
+        statsBtn.setOnClickListener(v -> {
+            boolean show = mSummaryLayout.getVisibility() != View.VISIBLE;
+            mSummaryLayout.setVisibility(show ? View.VISIBLE : View.GONE);
+            if (show) refreshSummary();
+        });
+        btnLayout.addView(statsBtn);
         rootLayout.addView(btnLayout);
 
+        // 统计面板（默认隐藏）：最近一小时各字段每分钟修改次数，Top修改者，数值字段的值分布
+        mSummaryLayout = new LinearLayout(this);
+        mSummaryLayout.setOrientation(LinearLayout.VERTICAL);
+        mSummaryLayout.setPadding(0, 0, 0, 24);
+        mSummaryLayout.setVisibility(View.GONE);
+        mHeatMapView = new SettingsHeatMapView(this);
+        mSummaryLayout.addView(mHeatMapView);
+        mSummaryTv = new TextView(this);
+        mSummaryTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
+        mSummaryTv.setTextColor(Color.DKGRAY);
+        mSummaryTv.setTypeface(Typeface.MONOSPACE);
+        mSummaryLayout.addView(mSummaryTv);
+        rootLayout.addView(mSummaryLayout);
+
         // 3. 修改记录标题
         TextView recordsTitle = new TextView(this);
+        mRecordsTitle = recordsTitle;
         recordsTitle.setText("修改记录（最新在前）");
         recordsTitle.setTextSize(TypedValue.COMPLEX_UNIT_SP, 18);
         recordsTitle.setTextColor(Color.BLACK);
@@ -84,85 +131,140 @@ public class SettingsMonitorActivity extends BaseTestActivity {
         recordsTitle.setTypeface(Typeface.DEFAULT_BOLD);
         rootLayout.addView(recordsTitle);
 
-        // 4. 修改记录列表
-        mRecordsLayout = new LinearLayout(this);
-        mRecordsLayout.setOrientation(LinearLayout.VERTICAL);
-        rootLayout.addView(mRecordsLayout);
+        // 4. 筛选框：输入字段名/键时按字段筛选，否则按修改者包名筛选
+        EditText filterEt = new EditText(this);
+        filterEt.setHint("筛选：字段名/键 或 修改者包名");
+        filterEt.setSingleLine(true);
+        filterEt.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+        filterEt.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                mFilter = s.toString().trim();
+                refreshRecords();
+            }
+        });
+        rootLayout.addView(filterEt);
+
+        // 5. 空列表提示
+        mEmptyTv = new TextView(this);
+        mEmptyTv.setText("暂无修改记录，可修改屏幕亮度/字体大小测试");
+        mEmptyTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+        mEmptyTv.setTextColor(Color.GRAY);
+        rootLayout.addView(mEmptyTv);
+
+        // 6. 修改记录列表（占满剩余高度）
+        mRecordsView = new RecyclerView(this);
+        mLayoutManager = new LinearLayoutManager(this);
+        mRecordsView.setLayoutManager(mLayoutManager);
+        // 高频插入时关闭条目动画
+        mRecordsView.setItemAnimator(null);
+        mRecordAdapter = new SettingsRecordAdapter(SettingsMonitorService.CHANGE_RECORDS.snapshot());
+        mRecordsView.setAdapter(mRecordAdapter);
+        rootLayout.addView(mRecordsView, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, 0, 1f));
 
-        scrollView.addView(rootLayout);
-        setContentView(scrollView);
+        setContentView(rootLayout);
     }
 
     /**
-     * 刷新修改记录列表
+     * 刷新修改记录列表：只通知新增/被覆盖的区间
      */
     private void refreshRecords() {
         runOnUiThread(() -> {
-            mRecordsLayout.removeAllViews();
-            List<SettingsMonitorService.SettingsChangeRecord> records = SettingsMonitorService.CHANGE_RECORDS;
-            if (records.isEmpty()) {
-                TextView emptyTv = new TextView(this);
-                emptyTv.setText("暂无修改记录，可修改屏幕亮度/字体大小测试");
-                emptyTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
-                emptyTv.setTextColor(Color.GRAY);
-                mRecordsLayout.addView(emptyTv);
-                return;
+            if (mRecordAdapter == null) return;
+            mRecordsTitle.setText(String.format("修改记录（最新在前，原始事件%d次）",
+                    SettingsMonitorClient.getRawEventCount()));
+            // 停留在顶部时，插入后保持显示最新记录
+            boolean atTop = mLayoutManager.findFirstCompletelyVisibleItemPosition() <= 0;
+            int inserted = mRecordAdapter.update(SettingsMonitorService.CHANGE_RECORDS.snapshot());
+            if (mFilter.isEmpty()) {
+                mRecordAdapter.setFiltered(null, 0);
+            } else {
+                // 通过二级索引查询，不遍历全部记录
+                SettingsRecordIndex index = SettingsMonitorService.CHANGE_RECORDS.index();
+                MonitoredField field = index.findField(mFilter);
+                mQuery.reset();
+                if (field != null) {
+                    mQuery.field(field);
+                } else {
+                    mQuery.modifierPkg(mFilter);
+                }
+                int count = index.select(mQuery, mFilteredSeqs);
+                mRecordAdapter.setFiltered(mFilteredSeqs, count);
+                mRecordsTitle.setText(String.format("修改记录（筛选：%s，%d条）", mFilter, count));
             }
-
-            // 遍历展示所有记录
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-            for (SettingsMonitorService.SettingsChangeRecord record : records) {
-                LinearLayout recordItem = new LinearLayout(this);
-                recordItem.setOrientation(LinearLayout.VERTICAL);
-                recordItem.setPadding(0, 16, 0, 16);
-                recordItem.setBackgroundColor(Color.parseColor("#F5F5F5"));
-//                recordItem.setMarginBottom(8);
-
-                // 时间
-                TextView timeTv = new TextView(this);
-                timeTv.setText(String.format("时间：%s", sdf.format(record.time)));
-                timeTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
-                timeTv.setTextColor(Color.parseColor("#666666"));
-                recordItem.addView(timeTv);
-
-                // 字段+值
-                TextView fieldTv = new TextView(this);
-                fieldTv.setText(String.format("字段：%s = %s", record.chineseName, record.value));
-                fieldTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
-                fieldTv.setTextColor(Color.BLACK);
-                recordItem.addView(fieldTv);
-
-                // 修改者
-                TextView pkgTv = new TextView(this);
-                pkgTv.setText(String.format("修改者：%s", record.modifierPkg));
-                pkgTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
-                pkgTv.setTextColor(Color.parseColor("#FF6600"));
-                recordItem.addView(pkgTv);
-
-                mRecordsLayout.addView(recordItem);
+            if (atTop && inserted > 0) {
+                mRecordsView.scrollToPosition(0);
+            }
+            boolean empty = mRecordAdapter.getItemCount() == 0;
+            mEmptyTv.setVisibility(empty ? View.VISIBLE : View.GONE);
+            if (mSummaryLayout.getVisibility() == View.VISIBLE) {
+                refreshSummary();
             }
         });
     }
 
     /**
-     * 通知Activity刷新（由Service调用）
+     * 刷新统计面板（UI线程）：复制聚合结果，工作量与窗口大小成正比
+     */
+    private void refreshSummary() {
+        SettingsMonitorService.CHANGE_STATS.snapshot(System.currentTimeMillis(), mSummary);
+        mHeatMapView.setSummary(mSummary);
+        StringBuilder text = mSummaryText;
+        text.setLength(0);
+        if (SettingsMonitorClient.isStatsWindowed()) {
+            // 统计由UI进程从共享环复制的记录累计，环容量之前的记录不计入
+            text.append("（仅统计最近").append(SettingsMonitorClient.statsWindowSize()).append("条记录）\n");
+        }
+        text.append("累计").append(mSummary.total).append("条，Top修改者：");
+        for (int i = 0; i < mSummary.topSize; i++) {
+            text.append("\n  ").append(mSummary.topKeys[i]).append("  ").append(mSummary.topCounts[i]);
+            // Space-Saving的计数可能高估，附上误差上界
+            if (mSummary.topErrors[i] > 0) text.append("（±").append(mSummary.topErrors[i]).append("）");
+        }
+        for (int h = 0; h < mSummary.histogramCount; h++) {
+            text.append("\n").append(mSummary.histogramFields[h].displayName).append("取值分布：");
+            for (int bucket = 0; bucket < SettingsChangeStats.HISTOGRAM_BUCKETS; bucket++) {
+                int count = mSummary.histogram(h, bucket);
+                if (count == 0) continue;
+                long low = SettingsChangeStats.bucketLow(bucket);
+                long high = SettingsChangeStats.bucketHigh(bucket);
+                text.append("\n  ");
+                if (bucket == 0) {
+                    text.append("≤0");
+                } else if (low == high) {
+                    text.append(low);
+                } else {
+                    text.append(low).append('~').append(high);
+                }
+                text.append("  ").append(count);
+            }
+        }
+        mSummaryTv.setText(text);
+    }
+
+    /**
+     * Android 13起显示常驻通知需要通知权限（拒绝时服务仍以前台模式运行，只是通知不显示）
      */
-    public static void notifyRefresh() {
-        if (sOnRefreshListener != null) {
-            sOnRefreshListener.onRefresh();
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.POST_NOTIFICATIONS}, 0);
         }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        sOnRefreshListener = null;
-    }
-
-    /**
-     * 刷新回调接口
-     */
-    public interface OnRefreshListener {
-        void onRefresh();
+        mClient.unbind();
+        mRecordSubscription.unsubscribe();
     }
 }
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.demo.androidtest.feature.settings;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.Process;
+import android.os.RemoteException;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * UI进程与监控进程（:monitor）之间的连接：记录经共享内存环传递，Messenger只传递唤醒
+ * <p>
+ * 绑定后监控服务回复一次环（{@link SettingsRecordRing}，只读映射），之后每次发布只发送一条
+ * 带最新序号的消息；本类在后台镜像线程把新记录复制到本进程的 {@link SettingsMonitorService#CHANGE_RECORDS}
+ * 和 {@link SettingsMonitorService#CHANGE_STATS}，并在 {@link SettingsMonitorService#RECORD_EVENTS} 上发布
+ * （镜像线程是本进程记录存储的唯一写者），订阅者按各自的Executor接收，不感知跨进程。
+ * 本进程的统计只由环中复制来的记录累计，环容量之前的历史不计入（见 {@link #isStatsWindowed}）。
+ * 镜像状态是静态的（与记录存储同生命周期），页面重建后从上次的位置继续；
+ * 监控进程重启后环编号改变，镜像清空后从新环重新复制（新环包含从日志回放的历史）。
+ * 监控服务与UI在同一进程时记录和事件已在本进程中，不做复制。
+ */
+public class SettingsMonitorClient {
+    // 客户端 → 服务：注册/注销唤醒（replyTo为客户端Messenger）
+    static final int MSG_REGISTER = 1;
+    static final int MSG_UNREGISTER = 2;
+    // 服务 → 客户端：共享内存环（data），arg1/arg2为已发布序号的低/高32位
+    static final int MSG_RING = 3;
+    // 服务 → 客户端：有新记录，arg1/arg2为已发布序号的低/高32位
+    static final int MSG_UPDATED = 4;
+    static final String KEY_RING = "ring";
+    static final String KEY_PID = "pid";
+
+    // 镜像线程：接收唤醒消息并复制记录，进程内共用
+    private static HandlerThread sMirrorThread;
+    // 镜像状态（仅镜像线程写入）
+    private static volatile SettingsRecordRing sRing;
+    private static ByteBuffer sMapping;
+    private static long sRingId;
+    private static long sNextSeq;
+    private static volatile boolean sSameProcess;
+    // 镜像刚被清空，需要通知订阅者刷新
+    private static boolean sCleared;
+    private static SettingsFieldRegistry sRegistry;
+    // 注册表之外的字段（快照比对发现的键），本进程按键分配编号
+    private static final Map<String, MonitoredField> sDynamicFields = new HashMap<>();
+    private static final SettingsChangeRecord sRecord = new SettingsChangeRecord();
+
+    private final Context mContext;
+    private final Messenger mReplyMessenger;
+    private Messenger mService;
+    private boolean mBound;
+
+    private final ServiceConnection mConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            mService = new Messenger(binder);
+            send(MSG_REGISTER);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // 监控进程退出：保留已复制的记录，重新连接后按环编号判断是否需要重建
+            mService = null;
+        }
+    };
+
+    public SettingsMonitorClient(Context context) {
+        mContext = context.getApplicationContext();
+        synchronized (SettingsMonitorClient.class) {
+            if (sRegistry == null) {
+                sRegistry = SettingsFieldRegistry.load(mContext);
+            }
+            if (sMirrorThread == null) {
+                sMirrorThread = new HandlerThread("settings-mirror", Process.THREAD_PRIORITY_BACKGROUND);
+                sMirrorThread.start();
+            }
+        }
+        mReplyMessenger = new Messenger(new Handler(sMirrorThread.getLooper(), this::handleMessage));
+    }
+
+    /**
+     * 绑定监控服务（不负责启动，服务由 {@link SettingsMonitorService#start} 启动后自动连接）
+     */
+    public void bind() {
+        if (mBound) return;
+        mBound = mContext.bindService(new Intent(mContext, SettingsMonitorService.class), mConnection, 0);
+    }
+
+    public void unbind() {
+        if (!mBound) return;
+        send(MSG_UNREGISTER);
+        mContext.unbindService(mConnection);
+        mBound = false;
+        mService = null;
+    }
+
+    /**
+     * 监控进程的原始事件总数（合并前）
+     */
+    public static long getRawEventCount() {
+        if (sSameProcess) return SettingsMonitorService.getRawEventCount();
+        SettingsRecordRing ring = sRing;
+        return ring != null ? ring.rawEventCount() : 0;
+    }
+
+    /**
+     * 本进程的统计是否只覆盖环中的记录（监控服务在其他进程时为true，更早的历史不计入）
+     */
+    public static boolean isStatsWindowed() {
+        return !sSameProcess && sRing != null;
+    }
+
+    /**
+     * 统计覆盖的记录数上限（环容量），统计不受限时返回-1
+     */
+    public static int statsWindowSize() {
+        SettingsRecordRing ring = sRing;
+        return !sSameProcess && ring != null ? ring.capacity() : -1;
+    }
+
+    private void send(int what) {
+        if (mService == null) return;
+        Message msg = Message.obtain(null, what);
+        msg.replyTo = mReplyMessenger;
+        try {
+            mService.send(msg);
+        } catch (RemoteException e) {
+            mService = null;
+        }
+    }
+
+    private boolean handleMessage(Message msg) {
+        long head = (msg.arg1 & 0xFFFFFFFFL) | ((long) msg.arg2 << 32);
+        switch (msg.what) {
+            case MSG_RING:
+                Bundle data = msg.getData();
+                sSameProcess = data.getInt(KEY_PID) == Process.myPid();
+                if (!sSameProcess) {
+                    attach(data.getParcelable(KEY_RING));
+                }
+                break;
+            case MSG_UPDATED:
+                break;
+            default:
+                return false;
+        }
+        if (!sSameProcess) {
+            drain(head);
+        }
+        return true;
+    }
+
+    /**
+     * 映射服务发来的环；环编号改变说明监控进程已重启，清空镜像
+     */
+    private static void attach(SharedMemory memory) {
+        if (memory == null) return;
+        try {
+            ByteBuffer mapping = memory.mapReadOnly();
+            SettingsRecordRing ring = SettingsRecordRing.attach(mapping,
+                    SettingsMonitorClient::resolveField, SettingsChangeRecord.VALUE_STRINGS);
+            if (sMapping != null) {
+                SharedMemory.unmap(sMapping);
+            }
+            sMapping = mapping;
+            sRing = ring;
+            if (ring.ringId() != sRingId) {
+                sRingId = ring.ringId();
+                sNextSeq = 0;
+                SettingsMonitorService.CHANGE_RECORDS.clear();
+                SettingsMonitorService.CHANGE_STATS.clear();
+                // 旧环的字段不再被任何记录引用
+                sDynamicFields.clear();
+                sCleared = true;
+            }
+        } catch (ErrnoException | IllegalArgumentException e) {
+            Log.w(SettingsMonitorService.TAG, "无法映射记录环", e);
+        } finally {
+            // 映射在关闭文件描述符后仍然有效
+            memory.close();
+        }
+    }
+
+    /**
+     * 把 [上次位置, head) 的记录复制到本进程（落后超过一圈时从环中最旧的记录开始）
+     */
+    private static void drain(long head) {
+        SettingsRecordRing ring = sRing;
+        if (ring == null) return;
+        long from = Math.max(sNextSeq, head - ring.capacity());
+        for (long seq = from; seq < head; seq++) {
+            if (ring.read(seq, sRecord)) {
+                long localSeq = SettingsMonitorService.CHANGE_RECORDS.append(sRecord);
+                SettingsMonitorService.CHANGE_STATS.add(sRecord);
+                SettingsMonitorService.RECORD_EVENTS.publish(localSeq);
+                sCleared = false;
+            }
+        }
+        sNextSeq = Math.max(sNextSeq, head);
+        if (sCleared) {
+            // 新环为空：发布一个已不可读的序号，订阅者据此刷新为空列表
+            sCleared = false;
+            SettingsMonitorService.RECORD_EVENTS.publish(SettingsMonitorService.CHANGE_RECORDS.headSequence() - 1);
+        }
+    }
+
+    /**
+     * 环中首次出现的字段编号：注册表字段按键对应，其余按键生成本进程字段
+     */
+    private static MonitoredField resolveField(int fieldId, MonitoredField.Namespace namespace, String key,
+                                               MonitoredField.ValueType type) {
+        String qualifiedKey = namespace.name().toLowerCase(Locale.ROOT) + ":" + key;
+        MonitoredField field = sRegistry.findByQualifiedKey(qualifiedKey);
+        if (field != null) return field;
+        field = sDynamicFields.get(qualifiedKey);
+        if (field == null) {
+            String displayName = SettingsSnapshotScanner.OVERFLOW_KEY.equals(key)
+                    ? SettingsSnapshotScanner.OVERFLOW_NAME : key;
+            field = new MonitoredField(sRegistry.size() + sDynamicFields.size(), namespace, key, type, displayName, "");
+            sDynamicFields.put(qualifiedKey, field);
+        }
+        return field;
+    }
+}
@@ -1,185 +1,623 @@
 package com.demo.androidtest.feature.settings;
 
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.app.Service;
-import android.content.ComponentName;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.database.ContentObserver;
 import android.net.Uri;
-import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
-import android.os.Looper;
 import android.os.IBinder;
-import android.provider.Settings;
-import android.content.pm.ActivityInfo;
-import android.content.Context;
-import android.app.ActivityManager;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.Process;
+import android.os.RemoteException;
+import android.os.SharedMemory;
+import android.os.SystemClock;
+import android.system.ErrnoException;
+import android.system.OsConstants;
 import android.util.Log;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.HashMap;
-import java.util.Map;
+import com.demo.androidtest.R;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 后台监听Settings字段修改的Service（可独立运行）
+ * <p>
+ * 前台模式（{@link #EXTRA_FOREGROUND}）下显示常驻通知，避免长时间监听时被系统回收；
+ * 返回START_STICKY，被杀后由系统重启并按上次的模式恢复，历史记录从持久化日志回放。
+ * 日志组提交、通知刷新等周期性工作统一由 {@link MonitorScheduler} 在消费线程合并执行，
+ * 使用uptime计时，设备深度睡眠期间不会为它们唤醒；字段修改本身由ContentObserver投递，不会遗漏。
+ * <p>
+ * 运行在独立的:monitor进程，与测试页面隔离。记录同时写入共享内存环 {@link SettingsRecordRing}，
+ * UI进程通过 {@link SettingsMonitorClient} 绑定后读取；每次发布只向绑定的客户端发送一条唤醒消息。
  */
 public class SettingsMonitorService extends Service {
     public static final String TAG = "SettingsMonitor";
-    // 监听的系统字段（可扩展）
-    private static final Map<String, String> MONITOR_FIELDS = new HashMap<>();
-    static {
-        MONITOR_FIELDS.put(Settings.System.SCREEN_BRIGHTNESS, "屏幕亮度");
-        MONITOR_FIELDS.put(Settings.System.FONT_SCALE, "字体缩放");
-        MONITOR_FIELDS.put(Settings.System.SCREEN_OFF_TIMEOUT, "屏幕超时");
-    }
+    // 字符串类型字段值的驻留表（写者：消费线程）
+    public static final InternTable VALUE_STRINGS = SettingsChangeRecord.VALUE_STRINGS;
+    // 监听的字段（从assets/settings_fields.json加载）
+    private SettingsFieldRegistry mRegistry;
+
+    // 记录存储容量（超出后按策略覆盖最旧记录）
+    public static final int RECORD_CAPACITY = 4096;
+    // 修改记录（全局共享，列式存储；单写者：消费线程；多读者：UI等）
+    public static final SettingsRecordTable CHANGE_RECORDS =
+            new SettingsRecordTable(RECORD_CAPACITY, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+    // 修改统计（分钟计数、修改者Top-K、值分布；消费线程写入，UI复制）
+    public static final SettingsChangeStats CHANGE_STATS = new SettingsChangeStats();
+    // 新记录事件（发布记录序号；监控进程由消费线程发布，UI进程由SettingsMonitorClient发布）
+    public static final SettingsEventBus RECORD_EVENTS = new SettingsEventBus();
+    // 跨进程记录环（进程内只创建一次，服务重启时沿用；写者：消费线程；创建失败时为null）
+    private static SharedMemory sRingMemory;
+    private static SettingsRecordRing sRing;
+    // 内容观察者（每个命名空间一个，监听其下所有键）
+    private final List<SettingsContentObserver> mContentObservers = new ArrayList<>();
+    // 事件流水线：观察线程入队，消费线程批量解析，限频通知UI
+    private SettingsEventPipeline mPipeline;
+    // 按字段合并突发变更（仅消费线程使用）
+    private final SettingsChangeCoalescer mCoalescer = new SettingsChangeCoalescer();
+    private final SettingsChangeCoalescer.Sink mBurstSink = this::onBurstClosed;
+    private final SettingsChangeCoalescer.ValueReader mValueReader =
+            fieldId -> mRegistry.get(fieldId).readValue(getContentResolver(), VALUE_STRINGS);
+    // 当前批次产出的最新记录序号（仅消费线程使用）
+    private long mBatchLatestSeq;
+    // 复用的记录载体：写入记录存储/日志前填充（仅消费线程使用）
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+    // 日志文本缓冲（仅消费线程使用）
+    private final StringBuilder mLogText = new StringBuilder(96);
+    private final RecordTimeFormatter mLogTimeFormatter = new RecordTimeFormatter();
+    // 原始事件总数（合并前，指标用）
+    private static volatile long sRawEventCount;
 
-    // 修改记录（全局共享）
-    public static final List<SettingsChangeRecord> CHANGE_RECORDS = new ArrayList<>();
-    // 内容观察者
-    private SettingsContentObserver mContentObserver;
+    // 前台应用归属缓存（仅消费线程使用）
+    private ForegroundAppTracker mForegroundTracker;
+    // 持久化日志目录（filesDir下）
+    private static final String JOURNAL_DIR = "settings_journal";
+    // 持久化日志（仅消费线程使用，打开失败时为null）
+    private SettingsRecordJournal mJournal;
+    // 修改记录导出（LocalSocket，主机端经adb forward批量拉取）
+    private SettingsRecordExporter mExporter;
+
+    // 合并窗口参数（Intent可选传入）
+    public static final String EXTRA_COALESCE_WINDOW_MS = "COALESCE_WINDOW_MS";
+    public static final String EXTRA_COALESCE_MAX_SPAN_MS = "COALESCE_MAX_SPAN_MS";
+    // 快照比对间隔（毫秒，0表示关闭），见 SettingsSnapshotScanner
+    public static final String EXTRA_SNAPSHOT_INTERVAL_MS = "SNAPSHOT_INTERVAL_MS";
+    // 前台模式（常驻通知），未传入时沿用上次的模式
+    public static final String EXTRA_FOREGROUND = "FOREGROUND";
+    // 通知中的“停止”操作
+    public static final String ACTION_STOP = "com.demo.androidtest.action.STOP_SETTINGS_MONITOR";
+
+    private static final String PREFS_NAME = "settings_monitor";
+    private static final String PREF_FOREGROUND = "foreground";
+    private static final String CHANNEL_ID = "settings_monitor";
+    private static final int NOTIFICATION_ID = 1001;
+    // 通知内容刷新周期与可推迟的宽度（与其他周期任务合并执行）
+    private static final long NOTIFICATION_INTERVAL_MS = 60_000;
+    private static final long NOTIFICATION_SLACK_MS = 60_000;
+    // 内存中已包含的日志序号上界（同进程内重启服务时只回放之后的记录）
+    private static volatile long sJournalSeqInMemory = -1;
+
+    private volatile boolean mForeground;
+    // 周期任务调度（仅消费线程使用）
+    private final MonitorScheduler mScheduler = new MonitorScheduler();
+    private final Runnable mSchedulerRunnable = this::runScheduledTasks;
+    private final MonitorScheduler.Task mJournalCommitTask = this::onJournalCommitDue;
+    private final MonitorScheduler.Task mNotificationTask = this::onNotificationDue;
+    // 定期全量快照比对（仅消费线程使用）
+    private SettingsSnapshotScanner mSnapshotScanner;
+    private final MonitorScheduler.Task mSnapshotTask = this::onSnapshotDue;
+    private final SettingsSnapshotScanner.RecordSink mSnapshotSink = this::appendRecord;
+    // 通知上次显示时的记录序号（仅消费线程使用）
+    private long mNotifiedHead = -1;
+    // 绑定的UI进程客户端（仅主线程使用）
+    private final List<Messenger> mClients = new ArrayList<>();
+    private final Messenger mMessenger = new Messenger(new Handler(Looper.getMainLooper(), this::handleClientMessage));
+
+    /**
+     * 启动监听服务
+     *
+     * @param foreground 是否以前台模式运行（常驻通知）
+     */
+    public static void start(Context context, boolean foreground) {
+        Intent intent = new Intent(context, SettingsMonitorService.class)
+                .putExtra(EXTRA_FOREGROUND, foreground);
+        if (foreground) {
+            context.startForegroundService(intent);
+        } else {
+            context.startService(intent);
+        }
+    }
 
     @Override
     public void onCreate() {
         super.onCreate();
-        // 注册多字段监听
-        mContentObserver = new SettingsContentObserver(new Handler(Looper.getMainLooper()));
-        for (String field : MONITOR_FIELDS.keySet()) {
+        mRegistry = SettingsFieldRegistry.load(this);
+        mForegroundTracker = new ForegroundAppTracker(this);
+        createRing();
+        mPipeline = new SettingsEventPipeline(this::consumeBatch, this::onRecordsUpdated);
+        mPipeline.start();
+        // 打开持久化日志并回放历史
+        mPipeline.runOnConsumer(this::openJournal);
+        mExporter = new SettingsRecordExporter(new File(getFilesDir(), JOURNAL_DIR));
+        mExporter.start();
+        // 加载上次的快照，稍后开始比对（补齐服务未运行期间的修改）
+        mSnapshotScanner = new SettingsSnapshotScanner(getContentResolver(), mRegistry, getFilesDir());
+        mPipeline.runOnConsumer(this::startSnapshotScan);
+        // 每个命名空间注册一个后代观察者（回调运行在观察线程，不占用主线程）
+        for (MonitoredField.Namespace namespace : MonitoredField.Namespace.values()) {
+            if (!mRegistry.hasFields(namespace)) continue;
+            SettingsContentObserver observer = new SettingsContentObserver(mPipeline.getObserverHandler(), namespace);
             getContentResolver().registerContentObserver(
-                    Settings.System.getUriFor(field),
-                    false,
-                    mContentObserver
+                    namespace.contentUri(),
+                    true,
+                    observer
             );
+            mContentObservers.add(observer);
         }
         // 启动悬浮窗
 //        FloatWindowManager.getInstance().showFloatWindow(this);
     }
 
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit().putBoolean(PREF_FOREGROUND, false).apply();
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        // intent为null：被杀后由系统重启，沿用上次的模式
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        boolean foreground = intent != null && intent.hasExtra(EXTRA_FOREGROUND)
+                ? intent.getBooleanExtra(EXTRA_FOREGROUND, false)
+                : prefs.getBoolean(PREF_FOREGROUND, mForeground);
+        if (foreground != prefs.getBoolean(PREF_FOREGROUND, false)) {
+            prefs.edit().putBoolean(PREF_FOREGROUND, foreground).apply();
+        }
+        setForegroundMode(foreground);
+        if (intent != null && intent.hasExtra(EXTRA_COALESCE_WINDOW_MS)) {
+            long windowMs = intent.getLongExtra(EXTRA_COALESCE_WINDOW_MS, SettingsChangeCoalescer.DEFAULT_WINDOW_MS);
+            long maxSpanMs = intent.getLongExtra(EXTRA_COALESCE_MAX_SPAN_MS, SettingsChangeCoalescer.DEFAULT_MAX_SPAN_MS);
+            mPipeline.runOnConsumer(() -> mCoalescer.setWindow(windowMs, maxSpanMs));
+        }
+        if (intent != null && intent.hasExtra(EXTRA_SNAPSHOT_INTERVAL_MS)) {
+            long intervalMs = intent.getLongExtra(EXTRA_SNAPSHOT_INTERVAL_MS, SettingsSnapshotScanner.DEFAULT_INTERVAL_MS);
+            mPipeline.runOnConsumer(() -> {
+                mSnapshotScanner.setInterval(intervalMs);
+                mScheduler.cancel(mSnapshotTask);
+                if (intervalMs > 0) {
+                    mScheduler.schedule(mSnapshotTask, SystemClock.uptimeMillis(), intervalMs, intervalMs / 2);
+                }
+                runScheduledTasks();
+            });
+        }
+        return START_STICKY;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 内存紧张时进程随时可能被杀：提交未落盘的日志
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mPipeline.runOnConsumer(this::flushJournal);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        mPipeline.runOnConsumer(this::flushJournal);
+    }
+
+    /**
+     * 合并前的原始事件总数
+     */
+    public static long getRawEventCount() {
+        return sRawEventCount;
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return mMessenger.getBinder();
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
         // 注销观察者
-        if (mContentObserver != null) {
-            getContentResolver().unregisterContentObserver(mContentObserver);
+        for (SettingsContentObserver observer : mContentObservers) {
+            getContentResolver().unregisterContentObserver(observer);
         }
+        mContentObservers.clear();
+        mClients.clear();
         // 关闭悬浮窗
         FloatWindowManager.getInstance().removeFloatWindow();
-        CHANGE_RECORDS.clear();
+        setForegroundMode(false);
+        mExporter.stop();
+        // 在消费线程结束未关闭的突发并落盘；内存中的记录保留，重启服务时不必重新回放
+        mPipeline.runOnConsumer(() -> {
+            mCoalescer.flushAll(mBurstSink);
+            closeJournal();
+        });
+        mPipeline.quit();
     }
 
     /**
-     * 内容观察者：监听所有目标字段修改
+     * 内容观察者：监听一个命名空间下所有键的修改
      */
     private class SettingsContentObserver extends ContentObserver {
-        public SettingsContentObserver(Handler handler) {
+        private final MonitoredField.Namespace mNamespace;
+
+        public SettingsContentObserver(Handler handler, MonitoredField.Namespace namespace) {
             super(handler);
+            mNamespace = namespace;
         }
 
         @Override
         public void onChange(boolean selfChange, Uri uri) {
-            super.onChange(selfChange, uri);
-            // 解析修改的字段名
-            String fieldName = uri.getLastPathSegment();
-            if (!MONITOR_FIELDS.containsKey(fieldName)) return;
-
-            // 1. 获取字段新值
-            String fieldValue = getFieldValue(fieldName);
-            // 2. 获取修改者包名（前台应用）
-            String modifierPkg = getForegroundPackageName();
-            // 3. 生成修改记录
-            SettingsChangeRecord record = new SettingsChangeRecord(
-                    MONITOR_FIELDS.get(fieldName), // 中文名称
-                    fieldName, // 原始字段名
-                    fieldValue, // 新值
-                    modifierPkg, // 修改者包名
-                    System.currentTimeMillis() // 修改时间
-            );
-            // 4. 添加到全局记录
-            CHANGE_RECORDS.add(0, record); // 最新记录放最前面
-            Log.d(TAG, "Settings修改：" + record.toString());
+            // 解析修改的字段编号，未监听的键直接丢弃
+            int fieldId = mRegistry.findIdByUri(mNamespace, uri != null ? uri.toString() : null);
+            if (fieldId < 0) return;
+            // 只入队，字段值和修改者由消费线程批量解析
+            mPipeline.offer(fieldId, System.currentTimeMillis());
+        }
+    }
 
-            // 5. 更新悬浮窗
-            FloatWindowManager.getInstance().updateFloatWindowContent(record);
-            // 6. 通知Activity刷新UI
-            SettingsMonitorActivity.notifyRefresh();
+    /**
+     * 消费线程：批量处理事件，按字段合并突发
+     * 突发开始时解析首值和修改者，突发结束时解析最终值并生成一条记录
+     * （处理每个事件前先关闭按事件时间已到期的突发，使其不吸收后续事件）
+     *
+     * @return 本批次最新的记录序号
+     */
+    private long consumeBatch(List<SettingsEventPipeline.RawEvent> batch) {
+        mBatchLatestSeq = -1;
+        if (!batch.isEmpty()) {
+            // 前台应用缓存按限定频率刷新，单个事件不做IPC
+            mForegroundTracker.refreshIfDue(System.currentTimeMillis());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            mCoalescer.notePending(batch.get(i).fieldId);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            SettingsEventPipeline.RawEvent event = batch.get(i);
+            mCoalescer.flushExpired(event.time, mBurstSink);
+            SettingsChangeCoalescer.Burst burst = mCoalescer.onEvent(event.fieldId, event.time, mBurstSink);
+            if (burst.isNew()) {
+                // 1. 修改者包名（前台应用）：按事件时间从缓存归属
+                burst.modifierPkg = mForegroundTracker.packageAt(event.time);
+                burst.attributionAgeMs = mForegroundTracker.attributionAge(event.time);
+                // 2. 获取字段首值
+                burst.firstValue = mValueReader.read(event.fieldId);
+                burst.lastValue = burst.firstValue;
+            }
+        }
+        // 延续中的突发记下本批次生效后的值，下一批次被后续事件关闭时作为最终值
+        mCoalescer.refreshLastValues(mValueReader);
+        sRawEventCount = mCoalescer.getRawEventCount();
+        if (sRing != null) {
+            sRing.setRawEventCount(sRawEventCount);
+        }
+        // 关闭已静默的突发，并为剩余突发安排到期冲刷
+        long now = System.currentTimeMillis();
+        mCoalescer.flushExpired(now, mBurstSink);
+        long delay = mCoalescer.nextDeadlineDelay(now);
+        if (delay >= 0) {
+            mPipeline.scheduleDrain(delay);
+        }
+        // 消费线程已被事件唤醒：顺带执行窗口已开始的周期任务
+        runScheduledTasks();
+        return mBatchLatestSeq;
+    }
+
+    /**
+     * 消费线程：突发结束，生成合并后的记录
+     */
+    private void onBurstClosed(SettingsChangeCoalescer.Burst burst) {
+        // 3. 只有一次事件时首值即最终值，无需再查询；已被后续事件覆盖时取最近读取的值
+        MonitoredField field = mRegistry.get(burst.fieldId);
+        long lastValue = burst.finalValue(mValueReader);
+        SettingsChangeRecord record = mRecord.set(
+                field, // 字段
+                burst.firstValue, // 首值
+                lastValue, // 最终值
+                burst.modifierPkg, // 修改者包名
+                burst.firstTime, // 首次修改时间
+                burst.lastTime, // 最后修改时间
+                burst.eventCount // 合并的事件数
+        );
+        record.attributionAgeMs = burst.attributionAgeMs;
+        // 已记录的修改，下一轮快照比对不再重复报告
+        mSnapshotScanner.markObserved(field);
+        appendRecord(record);
+    }
+
+    /**
+     * 消费线程：写入全局记录和持久化日志
+     */
+    private void appendRecord(SettingsChangeRecord record) {
+        // 4. 添加到全局记录（按列复制，快照按最新在前遍历）
+        long seq = CHANGE_RECORDS.append(record);
+        CHANGE_STATS.add(record);
+        if (sRing != null) {
+            sRing.append(record);
+        }
+        // 逐条日志只在开启调试级别时输出（adb shell setprop log.tag.SettingsMonitor DEBUG），完整记录走导出
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            mLogText.setLength(0);
+            Log.d(TAG, record.appendSummary(mLogText.append("Settings修改："), mLogTimeFormatter).toString());
+        }
+        if (seq >= 0) {
+            mBatchLatestSeq = seq;
+            RECORD_EVENTS.publish(seq);
+        }
+        // 5. 写入持久化日志（组提交）
+        if (mJournal != null) {
+            try {
+                sJournalSeqInMemory = mJournal.append(record) + 1;
+            } catch (IOException e) {
+                Log.e(TAG, "写入日志失败，停止持久化", e);
+                closeJournal();
+            }
         }
     }
 
     /**
-     * 获取字段当前值
+     * 消费线程：打开日志，把最近的历史回放到内存记录
      */
-    private String getFieldValue(String field) {
+    private void openJournal() {
+        SettingsRecordJournal journal = new SettingsRecordJournal(
+                new File(getFilesDir(), JOURNAL_DIR), mRegistry, VALUE_STRINGS);
         try {
-            if (field.equals(Settings.System.SCREEN_BRIGHTNESS)) {
-                int value = Settings.System.getInt(getContentResolver(), field, -1);
-                return value + " (0-255)";
-            } else if (field.equals(Settings.System.FONT_SCALE)) {
-                float value = Settings.System.getFloat(getContentResolver(), field, 1.0f);
-                return String.format("%.2f", value);
-            } else if (field.equals(Settings.System.SCREEN_OFF_TIMEOUT)) {
-                int value = Settings.System.getInt(getContentResolver(), field, -1);
-                return value + " ms";
+            journal.open();
+            // 同进程内重启时内存中已有之前的记录，只回放之后的部分
+            long fromSeq = Math.max(Math.max(0, journal.nextSequence() - RECORD_CAPACITY), sJournalSeqInMemory);
+            final long[] latestSeq = {-1};
+            journal.replay(fromSeq, (seq, record) -> {
+                latestSeq[0] = CHANGE_RECORDS.append(record);
+                CHANGE_STATS.add(record);
+                if (sRing != null) {
+                    sRing.append(record);
+                }
+                return true;
+            });
+            mJournal = journal;
+            sJournalSeqInMemory = journal.nextSequence();
+            mExporter.onCommitted(journal.committedSequence());
+            if (latestSeq[0] >= 0) {
+                // 回放的历史只发布最新的一条
+                RECORD_EVENTS.publish(latestSeq[0]);
+                mPipeline.publish(latestSeq[0]);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "打开日志失败，本次不做持久化", e);
+            try {
+                journal.close();
+            } catch (IOException ignored) {
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return "获取失败";
     }
 
     /**
-     * 获取前台应用包名（修改者）
+     * 消费线程：加载快照并安排首轮比对
+     */
+    private void startSnapshotScan() {
+        mSnapshotScanner.load();
+        long interval = mSnapshotScanner.getInterval();
+        if (interval > 0) {
+            // 首轮尽快进行，补齐服务未运行期间的修改
+            mScheduler.schedule(mSnapshotTask, SystemClock.uptimeMillis(), 0, interval / 2);
+            runScheduledTasks();
+        }
+    }
+
+    /**
+     * 消费线程：比对一个命名空间，差异直接写入记录（窗口宽度为间隔的一半，可与其他任务合并）
+     */
+    private long onSnapshotDue(long now) {
+        // 可能在批次末尾执行：保留批次已产出的序号
+        long batchLatestSeq = mBatchLatestSeq;
+        mBatchLatestSeq = -1;
+        long next = mSnapshotScanner.scanNext(System.currentTimeMillis(), mSnapshotSink);
+        if (mBatchLatestSeq >= 0) {
+            mPipeline.publish(mBatchLatestSeq);
+        } else {
+            mBatchLatestSeq = batchLatestSeq;
+        }
+        return next;
+    }
+
+    /**
+     * 消费线程：执行窗口已开始的周期任务，并为剩余任务安排一次唤醒
+     */
+    private void runScheduledTasks() {
+        long now = SystemClock.uptimeMillis();
+        if (mJournal != null && mJournal.hasPending()) {
+            // 组提交：最早在提交间隔后，最迟再推迟一个间隔，可与其他任务合并
+            long interval = mJournal.getCommitIntervalMs();
+            mScheduler.schedule(mJournalCommitTask, now, interval, interval);
+        }
+        mScheduler.runDue(now);
+        long delay = mScheduler.nextWakeDelay(now);
+        if (delay >= 0) {
+            mPipeline.runOnConsumerDelayed(mSchedulerRunnable, delay);
+        }
+    }
+
+    /**
+     * 消费线程：组提交日志
+     */
+    private long onJournalCommitDue(long now) {
+        flushJournal();
+        return -1;
+    }
+
+    /**
+     * 消费线程：立即提交未落盘的日志
      */
-    private String getForegroundPackageName() {
+    private void flushJournal() {
+        mScheduler.cancel(mJournalCommitTask);
+        if (mJournal == null) return;
         try {
-            ActivityManager am = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                for (ActivityManager.AppTask task : am.getAppTasks()) {
-                    ComponentName info = task.getTaskInfo().topActivity;
-                    if (info != null) return info.getPackageName();
+            mJournal.commit();
+            mExporter.onCommitted(mJournal.committedSequence());
+        } catch (IOException e) {
+            Log.e(TAG, "提交日志失败，停止持久化", e);
+            closeJournal();
+        }
+    }
+
+    /**
+     * 消费线程：提交剩余记录并关闭日志
+     */
+    private void closeJournal() {
+        if (mJournal == null) return;
+        try {
+            mJournal.close();
+        } catch (IOException e) {
+            Log.e(TAG, "关闭日志失败", e);
+        }
+        mJournal = null;
+    }
+
+    // ========== 前台模式 ==========
+
+    /**
+     * 切换前台模式：前台时显示常驻通知，并定期刷新通知中的统计
+     */
+    private void setForegroundMode(boolean foreground) {
+        if (foreground == mForeground) return;
+        mForeground = foreground;
+        if (foreground) {
+            startForeground(NOTIFICATION_ID, buildNotification());
+            mPipeline.runOnConsumer(() -> {
+                mScheduler.schedule(mNotificationTask, SystemClock.uptimeMillis(),
+                        NOTIFICATION_INTERVAL_MS, NOTIFICATION_SLACK_MS);
+                runScheduledTasks();
+            });
+        } else {
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            mPipeline.runOnConsumer(() -> mScheduler.cancel(mNotificationTask));
+        }
+    }
+
+    /**
+     * 消费线程：记录有变化时刷新通知
+     */
+    private long onNotificationDue(long now) {
+        if (!mForeground) return -1;
+        long head = CHANGE_RECORDS.headSequence();
+        if (head != mNotifiedHead) {
+            mNotifiedHead = head;
+            getSystemService(NotificationManager.class).notify(NOTIFICATION_ID, buildNotification());
+        }
+        return NOTIFICATION_INTERVAL_MS;
+    }
+
+    private Notification buildNotification() {
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager.getNotificationChannel(CHANNEL_ID) == null) {
+            manager.createNotificationChannel(new NotificationChannel(
+                    CHANNEL_ID, "Settings监听", NotificationManager.IMPORTANCE_LOW));
+        }
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0,
+                new Intent(this, SettingsMonitorActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent stopIntent = PendingIntent.getService(this, 0,
+                new Intent(this, SettingsMonitorService.class).setAction(ACTION_STOP), PendingIntent.FLAG_IMMUTABLE);
+        return new Notification.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle("Settings监听中")
+                .setContentText("记录" + CHANGE_RECORDS.size() + "条，原始事件" + sRawEventCount + "次")
+                .setContentIntent(contentIntent)
+                .addAction(new Notification.Action.Builder(null, "停止", stopIntent).build())
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setShowWhen(false)
+                .build();
+    }
+
+    /**
+     * 主线程：批次结果合并后唤醒UI进程的客户端（限频），客户端收到后从环中复制
+     * （本进程内的订阅者如悬浮窗经 {@link #RECORD_EVENTS} 接收）
+     */
+    private void onRecordsUpdated(long latestSeq) {
+        if (sRing != null) {
+            long head = sRing.headSequence();
+            for (int i = mClients.size() - 1; i >= 0; i--) {
+                if (!sendToClient(mClients.get(i), SettingsMonitorClient.MSG_UPDATED, head, null)) {
+                    mClients.remove(i);
                 }
             }
-            // 兼容低版本（需GET_TASKS权限）
-            ActivityManager.RunningTaskInfo taskInfo = am.getRunningTasks(1).get(0);
-            return taskInfo.topActivity.getPackageName();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "未知包名";
         }
     }
 
+    // ========== 跨进程传递 ==========
+
     /**
-     * Settings修改记录实体类
+     * 创建共享内存记录环（进程内只创建一次）；客户端只能只读映射
      */
-    public static class SettingsChangeRecord {
-        public String chineseName; // 字段中文名称
-        public String fieldName; // 原始字段名
-        public String value; // 新值
-        public String modifierPkg; // 修改者包名
-        public long time; // 修改时间
+    private static void createRing() {
+        if (sRingMemory != null) return;
+        try {
+            SharedMemory memory = SharedMemory.create("settings_records", SettingsRecordRing.bytesFor(RECORD_CAPACITY));
+            ByteBuffer mapping = memory.mapReadWrite();
+            memory.setProtect(OsConstants.PROT_READ);
+            sRing = SettingsRecordRing.create(mapping, RECORD_CAPACITY,
+                    SystemClock.elapsedRealtimeNanos() ^ ((long) Process.myPid() << 40), VALUE_STRINGS);
+            sRingMemory = memory;
+        } catch (ErrnoException e) {
+            Log.e(TAG, "创建共享内存失败，UI进程将收不到记录", e);
+        }
+    }
 
-        public SettingsChangeRecord(String chineseName, String fieldName, String value, String modifierPkg, long time) {
-            this.chineseName = chineseName;
-            this.fieldName = fieldName;
-            this.value = value;
-            this.modifierPkg = modifierPkg;
-            this.time = time;
+    /**
+     * 主线程：客户端注册时回复记录环和当前已发布的序号
+     */
+    private boolean handleClientMessage(Message msg) {
+        switch (msg.what) {
+            case SettingsMonitorClient.MSG_REGISTER:
+                if (msg.replyTo == null || mClients.contains(msg.replyTo)) return true;
+                Bundle data = new Bundle();
+                data.putInt(SettingsMonitorClient.KEY_PID, Process.myPid());
+                data.putParcelable(SettingsMonitorClient.KEY_RING, sRingMemory);
+                long head = sRing != null ? sRing.headSequence() : 0;
+                if (sendToClient(msg.replyTo, SettingsMonitorClient.MSG_RING, head, data)) {
+                    mClients.add(msg.replyTo);
+                }
+                return true;
+            case SettingsMonitorClient.MSG_UNREGISTER:
+                mClients.remove(msg.replyTo);
+                return true;
+            default:
+                return false;
         }
+    }
 
-        @Override
-        public String toString() {
-            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-            return String.format("[%s] %s = %s (修改者：%s)",
-                    sdf.format(new Date(time)),
-                    chineseName,
-                    value,
-                    modifierPkg);
+    /**
+     * 发送消息（序号拆为arg1/arg2），客户端已退出时返回false
+     */
+    private static boolean sendToClient(Messenger client, int what, long head, Bundle data) {
+        Message msg = Message.obtain(null, what, (int) head, (int) (head >>> 32));
+        if (data != null) msg.setData(data);
+        try {
+            client.send(msg);
+            return true;
+        } catch (RemoteException e) {
+            return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,178 @@
+package com.demo.androidtest.feature.settings;
+
+import android.graphics.Color;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 修改记录列表适配器：直接读取记录存储快照，新增记录按位置增量通知
+ * <p>
+ * 下标0为最新记录；刷新时只通知顶部新增和尾部被覆盖的区间，单条新记录的UI开销为O(1)。
+ * 绑定时把记录解码到复用的载体对象，文本写入ViewHolder复用的StringBuilder，时间格式化按小时缓存。
+ * 筛选模式下只展示索引查询得到的序号列表（同样最新在前），每次刷新整体替换。
+ */
+public class SettingsRecordAdapter extends RecyclerView.Adapter<SettingsRecordAdapter.ViewHolder> {
+    private static final int COLOR_ITEM_BG = Color.parseColor("#F5F5F5");
+    private static final int COLOR_TIME = Color.parseColor("#666666");
+    private static final int COLOR_PKG = Color.parseColor("#FF6600");
+
+    private SettingsRecordTable.Snapshot mSnapshot;
+    // 仅UI线程使用
+    private final RecordTimeFormatter mTimeFormatter = new RecordTimeFormatter();
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+    // 筛选结果（最新在前），为null时展示全部记录
+    private long[] mFilteredSeqs;
+    private int mFilteredCount;
+
+    public SettingsRecordAdapter(SettingsRecordTable.Snapshot snapshot) {
+        mSnapshot = snapshot;
+        setHasStableIds(true);
+    }
+
+    /**
+     * 切换到新快照，并按序号差计算增量通知
+     *
+     * @return 顶部新增的记录数
+     */
+    public int update(SettingsRecordTable.Snapshot snapshot) {
+        SettingsRecordTable.Snapshot old = mSnapshot;
+        mSnapshot = snapshot;
+        if (mFilteredSeqs != null) return 0;
+        int oldSize = old.size();
+        long inserted = snapshot.headSequence() - old.headSequence();
+        long removed = snapshot.oldestSequence() - old.oldestSequence();
+        if (inserted < 0 || removed < 0 || removed >= oldSize) {
+            // 记录被清空或全部被覆盖：整体刷新
+            notifyDataSetChanged();
+            return (int) Math.max(0, inserted);
+        }
+        if (removed > 0) {
+            notifyItemRangeRemoved(oldSize - (int) removed, (int) removed);
+        }
+        if (inserted > 0) {
+            notifyItemRangeInserted(0, (int) inserted);
+        }
+        return (int) inserted;
+    }
+
+    /**
+     * 展示筛选结果（seqs前count个，最新在前）；seqs为null时恢复展示全部记录
+     */
+    public void setFiltered(long[] seqs, int count) {
+        if (seqs == null && mFilteredSeqs == null) return;
+        mFilteredSeqs = seqs;
+        mFilteredCount = seqs != null ? count : 0;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new ViewHolder(parent);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        boolean found = mFilteredSeqs != null
+                ? SettingsMonitorService.CHANGE_RECORDS.read(mFilteredSeqs[position], mRecord)
+                : mSnapshot.get(position, mRecord);
+        holder.bind(found ? mRecord : null, mTimeFormatter);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        // 记录序号即稳定ID
+        return mFilteredSeqs != null ? mFilteredSeqs[position] : mSnapshot.headSequence() - 1 - position;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mFilteredSeqs != null ? mFilteredCount : mSnapshot.size();
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        private final TextView mTimeTv;
+        private final TextView mFieldTv;
+        private final TextView mPkgTv;
+        // 复用的文本缓冲
+        private final StringBuilder mText = new StringBuilder(64);
+
+        ViewHolder(ViewGroup parent) {
+            super(createItemView(parent));
+            LinearLayout recordItem = (LinearLayout) itemView;
+            mTimeTv = (TextView) recordItem.getChildAt(0);
+            mFieldTv = (TextView) recordItem.getChildAt(1);
+            mPkgTv = (TextView) recordItem.getChildAt(2);
+        }
+
+        private static LinearLayout createItemView(ViewGroup parent) {
+            LinearLayout recordItem = new LinearLayout(parent.getContext());
+            recordItem.setOrientation(LinearLayout.VERTICAL);
+            recordItem.setPadding(0, 16, 0, 16);
+            recordItem.setBackgroundColor(COLOR_ITEM_BG);
+            RecyclerView.LayoutParams params = new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            params.bottomMargin = 8;
+            recordItem.setLayoutParams(params);
+
+            // 时间
+            TextView timeTv = new TextView(parent.getContext());
+            timeTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
+            timeTv.setTextColor(COLOR_TIME);
+            recordItem.addView(timeTv);
+
+            // 字段+值
+            TextView fieldTv = new TextView(parent.getContext());
+            fieldTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+            fieldTv.setTextColor(Color.BLACK);
+            recordItem.addView(fieldTv);
+
+            // 修改者
+            TextView pkgTv = new TextView(parent.getContext());
+            pkgTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+            pkgTv.setTextColor(COLOR_PKG);
+            recordItem.addView(pkgTv);
+            return recordItem;
+        }
+
+        void bind(SettingsChangeRecord record, RecordTimeFormatter timeFormatter) {
+            if (record == null) {
+                // 快照之后被写者覆盖（极端高频时才会出现）
+                mTimeTv.setText("");
+                mFieldTv.setText("（记录已被覆盖）");
+                mPkgTv.setText("");
+                return;
+            }
+            StringBuilder sb = mText;
+            sb.setLength(0);
+            timeFormatter.appendDateTime(sb.append("时间："), record.time);
+            mTimeTv.setText(sb);
+
+            sb.setLength(0);
+            sb.append("字段：").append(record.field.displayName).append(" = ");
+            record.appendValue(sb);
+            if (record.eventCount > 1) {
+                sb.append("（");
+                record.appendFirstValue(sb).append(" → ");
+                record.appendValue(sb).append("，合并").append(record.eventCount).append("次，跨度")
+                        .append(record.spanMillis()).append("ms）");
+            }
+            mFieldTv.setText(sb);
+
+            sb.setLength(0);
+            sb.append("修改者：").append(record.modifierPkg);
+            ForegroundAppTracker.Confidence confidence = record.attributionConfidence();
+            if (confidence == ForegroundAppTracker.Confidence.STALE) {
+                sb.append("（归属可能过期：").append(record.attributionAgeMs / 1000).append("秒前确认）");
+            } else if (confidence == ForegroundAppTracker.Confidence.UNKNOWN
+                    && !ForegroundAppTracker.UNKNOWN_PACKAGE.equals(record.modifierPkg)
+                    && !SettingsSnapshotScanner.MODIFIER.equals(record.modifierPkg)) {
+                sb.append("（归属不可靠）");
+            }
+            mPkgTv.setText(sb);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.demo.androidtest.feature.settings;
+
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+import android.os.Process;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 修改记录导出服务：在抽象命名空间的LocalSocket上提供 {@link SettingsExportStream} 会话
+ * <p>
+ * 主机端通过 adb forward tcp:&lt;端口&gt; localabstract:{@link #SOCKET_NAME} 连接，
+ * 只接受shell和本应用的连接。数据来自持久化日志（只读，不经过logcat和UI），
+ * 每个连接一个线程，连接数不超过 {@link #MAX_CONNECTIONS}。
+ */
+public class SettingsRecordExporter implements SettingsExportStream.Source {
+    public static final String SOCKET_NAME = "com.demo.androidtest.settings_export";
+    public static final int MAX_CONNECTIONS = 4;
+
+    // 只读实例：readRaw不依赖注册表
+    private final SettingsRecordJournal mReader;
+    private final Object mLock = new Object();
+    private final List<LocalSocket> mConnections = new ArrayList<>();
+    private volatile long mCommittedSeq;
+    private LocalServerSocket mServer;
+    private Thread mAcceptThread;
+
+    public SettingsRecordExporter(File journalDir) {
+        mReader = new SettingsRecordJournal(journalDir, null, null);
+    }
+
+    /**
+     * 开始监听（失败时只记录日志，不影响监听服务）
+     */
+    public void start() {
+        if (mServer != null) return;
+        try {
+            mServer = new LocalServerSocket(SOCKET_NAME);
+        } catch (IOException e) {
+            Log.w(SettingsMonitorService.TAG, "导出端口不可用：" + SOCKET_NAME, e);
+            return;
+        }
+        LocalServerSocket server = mServer;
+        mAcceptThread = new Thread(() -> acceptLoop(server), "SettingsExport");
+        mAcceptThread.start();
+    }
+
+    /**
+     * 停止监听并断开所有连接
+     */
+    public void stop() {
+        if (mServer == null) return;
+        try {
+            // close()不会唤醒阻塞中的accept()，先关闭底层描述符的读写
+            Os.shutdown(mServer.getFileDescriptor(), OsConstants.SHUT_RDWR);
+        } catch (ErrnoException ignored) {
+        }
+        try {
+            mServer.close();
+        } catch (IOException ignored) {
+        }
+        mServer = null;
+        mAcceptThread.interrupt();
+        mAcceptThread = null;
+        synchronized (mLock) {
+            for (LocalSocket socket : mConnections) {
+                closeQuietly(socket);
+            }
+            mConnections.clear();
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * 日志提交后调用（消费线程），唤醒等待新记录的会话
+     */
+    public void onCommitted(long committedSeq) {
+        if (committedSeq <= mCommittedSeq) return;
+        synchronized (mLock) {
+            mCommittedSeq = committedSeq;
+            mLock.notifyAll();
+        }
+    }
+
+    @Override
+    public void read(long fromSeq, SettingsRecordJournal.RawVisitor visitor) throws IOException {
+        long committed = mCommittedSeq;
+        // 只发送已提交的记录：日志文件中可能有正在写入的尾部
+        mReader.readRaw(fromSeq, record -> record.seq < committed && visitor.onRecord(record));
+    }
+
+    @Override
+    public long awaitCommitted(long seq, long timeoutMs) throws InterruptedException {
+        synchronized (mLock) {
+            if (mCommittedSeq <= seq && timeoutMs > 0) {
+                mLock.wait(timeoutMs);
+            }
+            return mCommittedSeq;
+        }
+    }
+
+    private void acceptLoop(LocalServerSocket server) {
+        while (!Thread.currentThread().isInterrupted()) {
+            LocalSocket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                // 服务关闭
+                return;
+            }
+            int uid;
+            try {
+                uid = socket.getPeerCredentials().getUid();
+            } catch (IOException e) {
+                closeQuietly(socket);
+                continue;
+            }
+            synchronized (mLock) {
+                if ((uid != Process.SHELL_UID && uid != Process.myUid()) || mConnections.size() >= MAX_CONNECTIONS) {
+                    Log.w(SettingsMonitorService.TAG, "拒绝导出连接：uid=" + uid);
+                    closeQuietly(socket);
+                    continue;
+                }
+                mConnections.add(socket);
+            }
+            new Thread(() -> serve(socket), "SettingsExport-" + uid).start();
+        }
+    }
+
+    private void serve(LocalSocket socket) {
+        SettingsExportStream stream = null;
+        try {
+            stream = new SettingsExportStream(this, socket.getInputStream(), socket.getOutputStream());
+            stream.run();
+        } catch (IOException | InterruptedException e) {
+            // 客户端断开或服务停止
+        } finally {
+            synchronized (mLock) {
+                mConnections.remove(socket);
+            }
+            closeQuietly(socket);
+            if (stream != null) {
+                Log.d(SettingsMonitorService.TAG, "导出连接结束，已发送" + stream.getSentCount() + "条");
+            }
+        }
+    }
+
+    private static void closeQuietly(LocalSocket socket) {
+        try {
+            // 先关闭读写，唤醒阻塞在该连接上的会话线程
+            socket.shutdownInput();
+            socket.shutdownOutput();
+        } catch (IOException ignored) {
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
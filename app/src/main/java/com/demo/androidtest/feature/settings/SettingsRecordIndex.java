@@ -0,0 +1,267 @@
+package com.demo.androidtest.feature.settings;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 修改记录的二级索引：按字段、按修改者包名的倒排表（记录序号升序），支持时间区间筛选和计数
+ * <p>
+ * 主顺序即记录序号：{@link SettingsRecordTable} 为每行保存单调不减的时间序键，
+ * 时间区间先在序键上二分得到候选区间（按最大乱序程度放宽上界），再逐条核对实际时间。
+ * 只有一个条件（且无乱序）时计数为O(log n)，其余查询只扫描最小倒排表在时间区间内的部分。
+ * <p>
+ * 由记录存储在追加时维护（单写者，追加不分配对象，扩容时顺带丢弃已被覆盖的序号）；
+ * 查询可在任意线程进行，无锁：倒排表以不可变容量的块发布，扩容/压缩时整体替换。
+ */
+public class SettingsRecordIndex {
+
+    /**
+     * 查询条件（可复用），未设置的条件不限
+     */
+    public static final class Query {
+        MonitoredField field;
+        String modifierPkg;
+        long fromTime = Long.MIN_VALUE;
+        long toTime = Long.MAX_VALUE;
+
+        public Query field(MonitoredField field) {
+            this.field = field;
+            return this;
+        }
+
+        public Query modifierPkg(String modifierPkg) {
+            this.modifierPkg = modifierPkg;
+            return this;
+        }
+
+        /**
+         * 时间区间 [fromTime, toTime]（毫秒，含两端）
+         */
+        public Query timeRange(long fromTime, long toTime) {
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            return this;
+        }
+
+        public Query reset() {
+            field = null;
+            modifierPkg = null;
+            fromTime = Long.MIN_VALUE;
+            toTime = Long.MAX_VALUE;
+            return this;
+        }
+    }
+
+    /**
+     * 倒排表：单写者追加，读者读取当前块
+     */
+    static final class PostingList {
+        static final class Block {
+            final long[] seqs;
+            volatile int size;
+
+            Block(int capacity) {
+                seqs = new long[capacity];
+            }
+        }
+
+        final int key; // 字段编号或包名编号
+        volatile Block block = new Block(16);
+
+        PostingList(int key) {
+            this.key = key;
+        }
+
+        /**
+         * 追加序号（仅写者）；块已满时丢弃小于oldest的序号后换用新块
+         */
+        void add(long seq, long oldest) {
+            Block current = block;
+            int size = current.size;
+            if (size == current.seqs.length) {
+                int from = lowerBound(current.seqs, 0, size, oldest);
+                int live = size - from;
+                Block next = new Block(Math.max(16, live * 2));
+                System.arraycopy(current.seqs, from, next.seqs, 0, live);
+                next.seqs[live] = seq;
+                next.size = live + 1;
+                // volatile写：发布新块（之后的读者不再看到旧块）
+                block = next;
+                return;
+            }
+            current.seqs[size] = seq;
+            // volatile写：发布新条目
+            current.size = size + 1;
+        }
+    }
+
+    private final SettingsRecordTable mTable;
+    // 字段编号 → 倒排表（写者遇到新字段时扩容后发布）
+    private volatile PostingList[] mByField = new PostingList[16];
+    private final ConcurrentHashMap<String, PostingList> mByPackage = new ConcurrentHashMap<>();
+
+    SettingsRecordIndex(SettingsRecordTable table) {
+        mTable = table;
+    }
+
+    /**
+     * 记录已写入存储后调用（仅写者线程）
+     */
+    void add(long seq, int fieldId, int pkgId, String modifierPkg) {
+        long oldest = mTable.oldestSequence();
+        PostingList[] byField = mByField;
+        if (fieldId >= byField.length) {
+            byField = Arrays.copyOf(byField, Math.max(fieldId + 1, byField.length * 2));
+        }
+        PostingList fieldList = byField[fieldId];
+        if (fieldList == null) {
+            fieldList = new PostingList(fieldId);
+            byField[fieldId] = fieldList;
+            // volatile写：发布新倒排表（以及可能扩容后的数组）
+            mByField = byField;
+        }
+        fieldList.add(seq, oldest);
+        if (modifierPkg != null) {
+            PostingList pkgList = mByPackage.get(modifierPkg);
+            if (pkgList == null) {
+                pkgList = new PostingList(pkgId);
+                mByPackage.put(modifierPkg, pkgList);
+            }
+            pkgList.add(seq, oldest);
+        }
+    }
+
+    /**
+     * 按键名（key、namespace:key或显示名称）查找已有记录的字段，没有时返回null
+     */
+    public MonitoredField findField(String name) {
+        MonitoredField[] fields = mTable.fields();
+        for (MonitoredField field : fields) {
+            if (field != null && (field.key.equals(name) || field.displayName.equals(name)
+                    || field.qualifiedKey().equals(name))) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 满足条件的记录数
+     */
+    public int count(Query query) {
+        return run(query, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按最新在前把满足条件的记录序号写入out
+     *
+     * @return 写入的个数（不超过out.length）
+     */
+    public int select(Query query, long[] out) {
+        return run(query, out, out.length);
+    }
+
+    private int run(Query query, long[] out, int limit) {
+        long oldest = mTable.oldestSequence();
+        long head = mTable.headSequence();
+        // 选择驱动表：条件中最短的倒排表；没有条件时按序号遍历
+        PostingList fieldList = null;
+        PostingList pkgList = null;
+        if (query.field != null) {
+            PostingList[] byField = mByField;
+            fieldList = query.field.id < byField.length ? byField[query.field.id] : null;
+            if (fieldList == null) return 0;
+        }
+        if (query.modifierPkg != null) {
+            pkgList = mByPackage.get(query.modifierPkg);
+            if (pkgList == null) return 0;
+        }
+        PostingList driver = fieldList;
+        if (pkgList != null && (driver == null || pkgList.block.size < driver.block.size)) {
+            driver = pkgList;
+        }
+        int fieldId = fieldList != null && fieldList != driver ? fieldList.key : -1;
+        int pkgId = pkgList != null && pkgList != driver ? pkgList.key : -1;
+        boolean timeBounded = query.fromTime != Long.MIN_VALUE || query.toTime != Long.MAX_VALUE;
+        long lag = mTable.maxTimeLag();
+        // 序键 >= fromTime 的第一条之前全部早于fromTime；序键 > toTime + lag 的都晚于toTime
+        long upperKey = query.toTime > Long.MAX_VALUE - lag ? Long.MAX_VALUE : query.toTime + lag;
+
+        long[] seqs = null;
+        long start;
+        long end;
+        if (driver == null) {
+            start = oldest;
+            end = head;
+        } else {
+            PostingList.Block block = driver.block;
+            seqs = block.seqs;
+            start = lowerBound(seqs, 0, block.size, oldest);
+            end = block.size;
+        }
+        if (timeBounded) {
+            start = lowerBoundByTime(seqs, start, end, query.fromTime);
+            end = upperBoundByTime(seqs, start, end, upperKey);
+        }
+        boolean exact = fieldId < 0 && pkgId < 0 && (!timeBounded || lag == 0);
+        if (out == null && exact) {
+            return (int) (end - start);
+        }
+        int count = 0;
+        for (long i = end - 1; i >= start && count < limit; i--) {
+            long seq = seqs == null ? i : seqs[(int) i];
+            if (exact || mTable.matches(seq, fieldId, pkgId, query.fromTime, query.toTime)) {
+                if (out != null) out[count] = seq;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 第一个时间序键 >= time 的位置（seqs为null时位置即序号）
+     */
+    private long lowerBoundByTime(long[] seqs, long from, long to, long time) {
+        while (from < to) {
+            long mid = (from + to) >>> 1;
+            long seq = seqs == null ? mid : seqs[(int) mid];
+            if (mTable.orderTimeAt(seq) < time) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * 第一个时间序键 > time 的位置
+     */
+    private long upperBoundByTime(long[] seqs, long from, long to, long time) {
+        while (from < to) {
+            long mid = (from + to) >>> 1;
+            long seq = seqs == null ? mid : seqs[(int) mid];
+            if (mTable.orderTimeAt(seq) <= time) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * 有序数组中第一个 >= value 的位置
+     */
+    static int lowerBound(long[] values, int from, int to, long value) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (values[mid] < value) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+}
@@ -0,0 +1,626 @@
+package com.demo.androidtest.feature.settings;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Settings修改记录的追加式二进制日志（持久化历史）
+ * <p>
+ * 文件格式：目录下按起始序号命名的分段文件 seg-&lt;起始序号&gt;.jrnl，每段包含
+ * 段头（魔数/版本/起始序号/起始时间）和若干帧；帧 = u16长度 + 内容 + CRC32。
+ * 帧内容分三类：字符串字典帧（包名、字符串类型的值，段内编号）、字段帧（字段键和值类型，段内编号）
+ * 和记录帧。记录帧中时间相对上一条记录做增量，数值型的值相对同一字段上一条记录做增量，
+ * 首值相对最终值做增量，全部以zigzag varint编码。
+ * <p>
+ * 写入先进入缓冲区，{@link #commit()} 时一次性写入FileChannel并落盘（组提交）；
+ * 读取使用MappedByteBuffer；打开时校验最后一段，截断不完整/损坏的尾部帧。
+ * 写操作只能在单一线程调用；{@link #replay} 只读取已提交的数据，可在任意线程调用；
+ * {@link #readRaw} 不依赖注册表、不驻留字符串，供导出等其他线程读取。
+ */
+public class SettingsRecordJournal implements Closeable {
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+    public static final long DEFAULT_COMMIT_INTERVAL_MS = 1000;
+
+    private static final int MAGIC = 0x53434A31; // "SCJ1"
+    private static final short VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 8;
+    private static final int FRAME_OVERHEAD = 2 + 4;
+    private static final int MAX_PAYLOAD = 0xFFFF;
+    // 单个字典字符串的最大字节数
+    private static final int MAX_STRING_BYTES = 1024;
+    private static final byte TYPE_DICT = 1;
+    private static final byte TYPE_RECORD = 2;
+    private static final byte TYPE_FIELD = 3;
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".jrnl";
+
+    /**
+     * 回放访问者
+     */
+    public interface Visitor {
+        /**
+         * @return false 停止回放
+         */
+        boolean onRecord(long seq, SettingsChangeRecord record);
+    }
+
+    /**
+     * 原始记录访问者（导出用）
+     */
+    public interface RawVisitor {
+        /**
+         * @param record 复用的记录载体，回调返回后内容失效
+         * @return false 停止读取
+         */
+        boolean onRecord(RawRecord record);
+    }
+
+    /**
+     * 日志中的原始记录：字段以限定键表示，字符串类型的值直接给出字符串
+     */
+    public static final class RawRecord {
+        public long seq;
+        public String qualifiedKey; // 如 system:screen_brightness
+        public MonitoredField.ValueType type;
+        public long firstValue; // 数值型的原始槽位（字符串类型时无意义）
+        public long value;
+        public String firstString; // 字符串类型的值，未设置时为null
+        public String valueString;
+        public String modifierPkg;
+        public long firstTime;
+        public long time;
+        public int eventCount;
+        public long attributionAgeMs;
+    }
+
+    private final File mDir;
+    private final SettingsFieldRegistry mRegistry;
+    private final InternTable mValueStrings;
+    private final int mSegmentBytes;
+    private final int mMaxSegments;
+    private final long mCommitIntervalMs;
+
+    // 待提交的帧
+    private final ByteBuffer mPending = ByteBuffer.allocate(64 * 1024);
+    // 当前帧内容
+    private final ByteBuffer mPayload = ByteBuffer.allocate(MAX_PAYLOAD);
+    private final CRC32 mCrc = new CRC32();
+    // 当前段的字符串字典（0保留给null）
+    private final Map<String, Integer> mDict = new HashMap<>();
+    // 当前段的字段表：限定键 → 段内字段编号
+    private final Map<String, Integer> mFieldIds = new HashMap<>();
+    // 当前段的解码状态（字段类型、各字段上一条记录的值）
+    private final SegmentState mState = new SegmentState();
+
+    private RandomAccessFile mFile;
+    private FileChannel mChannel;
+    // 当前段已提交的字节数
+    private long mSegmentSize;
+    // 已落盘的记录数（其他线程读取）
+    private volatile long mCommittedSeq;
+
+    public SettingsRecordJournal(File dir, SettingsFieldRegistry registry, InternTable valueStrings) {
+        this(dir, registry, valueStrings, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS, DEFAULT_COMMIT_INTERVAL_MS);
+    }
+
+    public SettingsRecordJournal(File dir, SettingsFieldRegistry registry, InternTable valueStrings,
+                                 int segmentBytes, int maxSegments, long commitIntervalMs) {
+        mDir = dir;
+        mRegistry = registry;
+        mValueStrings = valueStrings;
+        mSegmentBytes = Math.max(segmentBytes, HEADER_BYTES + 2 * MAX_PAYLOAD);
+        mMaxSegments = Math.max(1, maxSegments);
+        mCommitIntervalMs = commitIntervalMs;
+    }
+
+    /**
+     * 打开日志：恢复最后一段的尾部并继续追加
+     */
+    public void open() throws IOException {
+        if (mChannel != null) return;
+        if (!mDir.isDirectory() && !mDir.mkdirs()) {
+            throw new IOException("cannot create journal dir " + mDir);
+        }
+        File[] segments = listSegments(mDir);
+        File last = null;
+        // 从最新一段向前找到第一个段头有效的段，段头损坏（或旧版本格式）的段直接删除
+        for (int i = segments.length - 1; i >= 0 && last == null; i--) {
+            if (readHeaderBaseSeq(segments[i]) >= 0) {
+                last = segments[i];
+            } else {
+                segments[i].delete();
+            }
+        }
+        if (last == null) {
+            openNewSegment(0, 0);
+        } else {
+            recoverSegment(last);
+        }
+        mCommittedSeq = mState.seq;
+    }
+
+    /**
+     * 追加一条记录（写入缓冲，commit后落盘）
+     *
+     * @return 记录在日志中的序号
+     */
+    public long append(SettingsChangeRecord record) throws IOException {
+        ensureOpen();
+        // 预估最大帧长度，超出段大小时先轮转
+        if (mSegmentSize + mPending.position() + 4 * (MAX_STRING_BYTES + 32) > mSegmentBytes) {
+            rotate(record.firstTime);
+        }
+        MonitoredField field = record.field;
+        int fieldId = internField(field);
+        boolean isString = field.type == MonitoredField.ValueType.STRING;
+        long valueCode = isString ? intern(stringValue(record.value)) : record.value;
+        long firstCode = isString ? intern(stringValue(record.firstValue)) : record.firstValue;
+        int pkgId = intern(record.modifierPkg);
+
+        mPayload.clear();
+        mPayload.put(TYPE_RECORD);
+        putVarLong(mPayload, zigZag(record.time - mState.time));
+        putVarLong(mPayload, Math.max(0, record.time - record.firstTime));
+        putVarLong(mPayload, Math.max(1, record.eventCount));
+        putVarLong(mPayload, fieldId);
+        if (isString) {
+            putVarLong(mPayload, valueCode);
+            putVarLong(mPayload, firstCode);
+        } else {
+            putVarLong(mPayload, zigZag(valueCode - mState.lastValues[fieldId]));
+            putVarLong(mPayload, zigZag(firstCode - valueCode));
+        }
+        putVarLong(mPayload, pkgId);
+        // 归属陈旧度：+1编码，0表示无法归属
+        putVarLong(mPayload, Math.max(-1, record.attributionAgeMs) + 1);
+        writeFrame();
+
+        mState.time = record.time;
+        if (!isString) {
+            mState.lastValues[fieldId] = valueCode;
+        }
+        return mState.seq++;
+    }
+
+    /**
+     * 组提交：把缓冲的帧写入文件并落盘
+     */
+    public void commit() throws IOException {
+        if (mChannel == null || mPending.position() == 0) return;
+        mPending.flip();
+        while (mPending.hasRemaining()) {
+            mSegmentSize += mChannel.write(mPending, mSegmentSize);
+        }
+        mPending.clear();
+        mChannel.force(false);
+        mCommittedSeq = mState.seq;
+    }
+
+    public boolean hasPending() {
+        return mPending.position() > 0;
+    }
+
+    public long getCommitIntervalMs() {
+        return mCommitIntervalMs;
+    }
+
+    /**
+     * 下一条记录的序号（即已写入的记录总数）
+     */
+    public long nextSequence() {
+        return mState.seq;
+    }
+
+    /**
+     * 已落盘的记录数（{@link #readRaw} 可读到的序号上界），可在任意线程调用
+     */
+    public long committedSequence() {
+        return mCommittedSeq;
+    }
+
+    /**
+     * 回放序号不小于fromSeq的已提交记录（按写入顺序），读取通过内存映射完成
+     * 字符串类型的值会驻留到值驻留表，须在其写者线程调用
+     */
+    public void replay(long fromSeq, Visitor visitor) throws IOException {
+        readRaw(fromSeq, raw -> {
+            // 注册表已删除（或类型已改变）的字段跳过其记录
+            MonitoredField field = mRegistry.findByQualifiedKey(raw.qualifiedKey);
+            if (field == null || field.type != raw.type) return true;
+            long value = raw.value;
+            long firstValue = raw.firstValue;
+            if (field.type == MonitoredField.ValueType.STRING) {
+                value = internValue(raw.valueString);
+                firstValue = internValue(raw.firstString);
+            }
+            SettingsChangeRecord record = new SettingsChangeRecord(
+                    field, firstValue, value, raw.modifierPkg, raw.firstTime, raw.time, raw.eventCount);
+            record.attributionAgeMs = raw.attributionAgeMs;
+            return visitor.onRecord(raw.seq, record);
+        });
+    }
+
+    /**
+     * 按写入顺序读取序号不小于fromSeq的已提交记录，可在任意线程调用
+     * 最旧的段已被删除时从现存最早的记录开始（调用方可由序号发现缺口）
+     */
+    public void readRaw(long fromSeq, RawVisitor visitor) throws IOException {
+        File[] segments = listSegments(mDir);
+        RawRecord record = new RawRecord();
+        for (int i = 0; i < segments.length; i++) {
+            // 下一段的起始序号不大于fromSeq时，本段可整段跳过
+            if (i + 1 < segments.length && parseBaseSeq(segments[i + 1]) <= fromSeq) continue;
+            if (!readSegment(segments[i], fromSeq, record, visitor)) return;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mChannel == null) return;
+        try {
+            commit();
+        } finally {
+            mChannel.close();
+            mFile.close();
+            mChannel = null;
+            mFile = null;
+        }
+    }
+
+    // ========== 写入 ==========
+
+    private void ensureOpen() throws IOException {
+        if (mChannel == null) throw new IOException("journal not open");
+    }
+
+    private String stringValue(long raw) {
+        return raw == MonitoredField.VALUE_MISSING ? null : mValueStrings.get((int) raw);
+    }
+
+    private int intern(String value) throws IOException {
+        if (value == null) return 0;
+        // 字典中保存截断后的字符串，与回放得到的一致
+        value = truncateUtf8(value, MAX_STRING_BYTES);
+        Integer id = mDict.get(value);
+        if (id != null) return id;
+        int newId = mDict.size() + 1;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        mPayload.clear();
+        mPayload.put(TYPE_DICT);
+        putVarLong(mPayload, newId);
+        putVarLong(mPayload, bytes.length);
+        mPayload.put(bytes);
+        writeFrame();
+        mDict.put(value, newId);
+        mState.putString(newId, value);
+        return newId;
+    }
+
+    /**
+     * UTF-8编码超过maxBytes时在字符边界截断（不拆分代理对）
+     */
+    static String truncateUtf8(String value, int maxBytes) {
+        // 每个char最多3字节：短字符串无需计算
+        if (value.length() * 3 <= maxBytes) return value;
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            int size;
+            if (c < 0x80) {
+                size = 1;
+            } else if (c < 0x800) {
+                size = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                size = 4;
+            } else {
+                size = 3;
+            }
+            if (bytes + size > maxBytes) return value.substring(0, i);
+            bytes += size;
+            if (size == 4) i++;
+        }
+        return value;
+    }
+
+    private int internField(MonitoredField field) throws IOException {
+        String key = field.qualifiedKey();
+        Integer id = mFieldIds.get(key);
+        if (id != null) return id;
+        int newId = mFieldIds.size();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        mPayload.clear();
+        mPayload.put(TYPE_FIELD);
+        putVarLong(mPayload, newId);
+        mPayload.put((byte) field.type.ordinal());
+        putVarLong(mPayload, bytes.length);
+        mPayload.put(bytes);
+        writeFrame();
+        mFieldIds.put(key, newId);
+        mState.putField(newId, key, field.type);
+        return newId;
+    }
+
+    private void writeFrame() throws IOException {
+        mPayload.flip();
+        int length = mPayload.remaining();
+        if (mPending.remaining() < length + FRAME_OVERHEAD) {
+            commit();
+        }
+        mCrc.reset();
+        mCrc.update(mPayload.array(), 0, length);
+        mPending.putShort((short) length);
+        mPending.put(mPayload);
+        mPending.putInt((int) mCrc.getValue());
+    }
+
+    private void rotate(long baseTime) throws IOException {
+        close();
+        openNewSegment(mState.seq, baseTime);
+        // 超出保留段数时删除最旧的段
+        File[] segments = listSegments(mDir);
+        for (int i = 0; i < segments.length - mMaxSegments; i++) {
+            segments[i].delete();
+        }
+    }
+
+    private void openNewSegment(long baseSeq, long baseTime) throws IOException {
+        File file = new File(mDir, segmentName(baseSeq));
+        mFile = new RandomAccessFile(file, "rw");
+        mChannel = mFile.getChannel();
+        mChannel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putShort(VERSION).putLong(baseSeq).putLong(baseTime).flip();
+        mChannel.write(header, 0);
+        mChannel.force(false);
+        mSegmentSize = HEADER_BYTES;
+        mState.reset(baseSeq, baseTime);
+        mDict.clear();
+        mFieldIds.clear();
+    }
+
+    /**
+     * 扫描最后一段：重建字典、字段表和序号，截断第一个无效帧之后的内容
+     */
+    private void recoverSegment(File file) throws IOException {
+        mFile = new RandomAccessFile(file, "rw");
+        mChannel = mFile.getChannel();
+        MappedByteBuffer buffer = mChannel.map(FileChannel.MapMode.READ_ONLY, 0, mChannel.size());
+        buffer.getInt();
+        buffer.getShort();
+        mState.reset(buffer.getLong(), buffer.getLong());
+        mDict.clear();
+        mFieldIds.clear();
+
+        int frameStart = buffer.position();
+        while (mState.decodeFrame(buffer, mCrc)) {
+            if (mState.type == TYPE_DICT) {
+                mDict.put(mState.strings.get(mState.lastDictId), mState.lastDictId);
+            } else if (mState.type == TYPE_FIELD) {
+                mFieldIds.put(mState.fieldKeys.get(mState.fieldId), mState.fieldId);
+            }
+            frameStart = buffer.position();
+        }
+        // 截断损坏或未写完的尾部
+        mSegmentSize = frameStart;
+        if (mChannel.size() > mSegmentSize) {
+            mChannel.truncate(mSegmentSize);
+            mChannel.force(false);
+        }
+    }
+
+    // ========== 读取 ==========
+
+    private boolean readSegment(File file, long fromSeq, RawRecord record, RawVisitor visitor)
+            throws IOException {
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(file, "r");
+        } catch (FileNotFoundException e) {
+            // 读取期间被轮转删除
+            return true;
+        }
+        try (FileChannel channel = raf.getChannel()) {
+            if (channel.size() < HEADER_BYTES) return true;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) return true;
+            SegmentState state = new SegmentState();
+            state.reset(buffer.getLong(), buffer.getLong());
+            CRC32 crc = new CRC32();
+            while (state.decodeFrame(buffer, crc)) {
+                if (state.type != TYPE_RECORD || state.seq - 1 < fromSeq) continue;
+                record.seq = state.seq - 1;
+                record.qualifiedKey = state.fieldKeys.get(state.fieldId);
+                record.type = state.fieldTypes[state.fieldId];
+                record.value = state.value;
+                record.firstValue = state.firstValue;
+                boolean isString = record.type == MonitoredField.ValueType.STRING;
+                record.valueString = isString ? state.lookup((int) state.value) : null;
+                record.firstString = isString ? state.lookup((int) state.firstValue) : null;
+                record.modifierPkg = state.lookup(state.pkgId);
+                record.firstTime = state.time - state.span;
+                record.time = state.time;
+                record.eventCount = state.eventCount;
+                record.attributionAgeMs = state.attributionAge;
+                if (!visitor.onRecord(record)) return false;
+            }
+        } finally {
+            raf.close();
+        }
+        return true;
+    }
+
+    private long internValue(String value) {
+        return value == null ? MonitoredField.VALUE_MISSING : mValueStrings.intern(value);
+    }
+
+    /**
+     * 段解码状态：字典、字段表、时间/值增量基准；逐帧校验长度和CRC，无效帧视为段尾
+     */
+    private static final class SegmentState {
+        long seq;
+        long time;
+        final List<String> strings = new ArrayList<>();
+        final List<String> fieldKeys = new ArrayList<>();
+        MonitoredField.ValueType[] fieldTypes = new MonitoredField.ValueType[16];
+        long[] lastValues = new long[16];
+
+        // 最近一帧的解码结果
+        byte type;
+        int lastDictId;
+        int fieldId;
+        long span;
+        int eventCount;
+        long value;
+        long firstValue;
+        int pkgId;
+        long attributionAge;
+
+        void reset(long baseSeq, long baseTime) {
+            seq = baseSeq;
+            time = baseTime;
+            strings.clear();
+            strings.add(null);
+            fieldKeys.clear();
+        }
+
+        void putString(int id, String value) {
+            while (strings.size() <= id) strings.add(null);
+            strings.set(id, value);
+        }
+
+        void putField(int id, String key, MonitoredField.ValueType valueType) {
+            while (fieldKeys.size() <= id) fieldKeys.add(null);
+            fieldKeys.set(id, key);
+            if (id >= fieldTypes.length) {
+                fieldTypes = Arrays.copyOf(fieldTypes, Math.max(id + 1, fieldTypes.length * 2));
+                lastValues = Arrays.copyOf(lastValues, fieldTypes.length);
+            }
+            fieldTypes[id] = valueType;
+            lastValues[id] = 0;
+        }
+
+        String lookup(int id) {
+            return id > 0 && id < strings.size() ? strings.get(id) : null;
+        }
+
+        boolean decodeFrame(ByteBuffer buffer, CRC32 crc) {
+            if (buffer.remaining() < FRAME_OVERHEAD) return false;
+            int start = buffer.position();
+            int length = buffer.getShort(start) & 0xFFFF;
+            if (length == 0 || buffer.remaining() < length + FRAME_OVERHEAD) return false;
+            ByteBuffer payload = buffer.duplicate();
+            payload.limit(start + 2 + length);
+            payload.position(start + 2);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(start + 2 + length)) return false;
+
+            int end = start + 2 + length;
+            buffer.position(start + 2);
+            type = buffer.get();
+            if (type == TYPE_DICT) {
+                lastDictId = (int) getVarLong(buffer);
+                byte[] bytes = new byte[(int) getVarLong(buffer)];
+                buffer.get(bytes);
+                putString(lastDictId, new String(bytes, StandardCharsets.UTF_8));
+            } else if (type == TYPE_FIELD) {
+                fieldId = (int) getVarLong(buffer);
+                MonitoredField.ValueType valueType = MonitoredField.ValueType.values()[buffer.get()];
+                byte[] bytes = new byte[(int) getVarLong(buffer)];
+                buffer.get(bytes);
+                putField(fieldId, new String(bytes, StandardCharsets.UTF_8), valueType);
+            } else if (type == TYPE_RECORD) {
+                time += unZigZag(getVarLong(buffer));
+                span = getVarLong(buffer);
+                eventCount = (int) getVarLong(buffer);
+                fieldId = (int) getVarLong(buffer);
+                if (fieldId >= fieldKeys.size()) return false;
+                if (fieldTypes[fieldId] == MonitoredField.ValueType.STRING) {
+                    value = getVarLong(buffer);
+                    firstValue = getVarLong(buffer);
+                } else {
+                    value = lastValues[fieldId] + unZigZag(getVarLong(buffer));
+                    firstValue = value + unZigZag(getVarLong(buffer));
+                    lastValues[fieldId] = value;
+                }
+                pkgId = (int) getVarLong(buffer);
+                attributionAge = buffer.position() < end ? getVarLong(buffer) - 1 : -1;
+                seq++;
+            }
+            // 跳到帧尾（兼容未来扩展字段）
+            buffer.position(end + 4);
+            return true;
+        }
+    }
+
+    // ========== 工具方法 ==========
+
+    static File[] listSegments(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) return new File[0];
+        // 文件名中的序号为定长十六进制，按名称排序即按序号排序
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static String segmentName(long baseSeq) {
+        return String.format(Locale.ROOT, "%s%016x%s", SEGMENT_PREFIX, baseSeq, SEGMENT_SUFFIX);
+    }
+
+    private static long parseBaseSeq(File file) {
+        String name = file.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()), 16);
+    }
+
+    private static long readHeaderBaseSeq(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < HEADER_BYTES) return -1;
+            if (raf.readInt() != MAGIC || raf.readShort() != VERSION) return -1;
+            return raf.readLong();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,356 @@
+package com.demo.androidtest.feature.settings;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 跨进程传递修改记录的共享内存环：监控进程单写者，UI进程读取，不为每条记录打包Parcel
+ * <p>
+ * 布局：64字节头部（魔数、版本、容量、槽位大小、环编号、已发布的下一个序号、原始事件总数），
+ * 之后是容量个定长槽位。槽位保存记录的各列，以及读者所在进程无法还原的部分：
+ * 字段的命名空间/键（非注册表字段）、修改者包名、字符串类型的首值/最终值（UTF-8，超长时截断）。
+ * <p>
+ * 并发：每槽位序号检查，写者先把序号置为-1再写入，最后写回序号；读者读取前后检查序号，
+ * 读者落后超过一圈、槽位被重新写入时视为读取失败。
+ * 槽位是普通内存访问，序号检查本身不保证顺序：写者在置-1之后、写回序号之前，
+ * 读者在再次读取序号之前各做一次全屏障（{@link #fullFence}），否则写者的负载写入可能先于-1可见、
+ * 读者的负载读取可能晚于第二次序号读取，落后一圈的读者会拿到撕裂的记录。
+ * 读者只读取唤醒消息中告知的序号之前的槽位（消息经Binder传递，之前的写入对读者已可见）。
+ * <p>
+ * 只依赖ByteBuffer，不依赖Android（共享内存由调用方映射），可在JVM单元测试中直接构造。
+ */
+public class SettingsRecordRing {
+    private static final int MAGIC = 0x53524E47; // "SRNG"
+    private static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int SLOT_SIZE = 384;
+    // 写入中的槽位
+    private static final long SEQ_WRITING = -1;
+    // 屏障用：volatile写后紧跟volatile读，ART为其生成dmb ish（minSdk低于VarHandle.fullFence的API 33）
+    private static volatile int sFence;
+
+    // 头部偏移
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_SLOT_SIZE = 12;
+    private static final int H_RING_ID = 16;
+    private static final int H_HEAD = 24;
+    private static final int H_RAW_EVENTS = 32;
+    // 槽位内偏移
+    private static final int S_SEQ = 0;
+    private static final int S_TIME = 8;
+    private static final int S_FIRST_VALUE = 16;
+    private static final int S_VALUE = 24;
+    private static final int S_FIELD_ID = 32;
+    private static final int S_EVENT_COUNT = 36;
+    private static final int S_SPAN = 40;
+    private static final int S_ATTRIBUTION_AGE = 44;
+    private static final int S_NAMESPACE = 48;
+    private static final int S_TYPE = 49;
+    // 字符串区：2字节长度（-1表示null）+ UTF-8字节
+    private static final int S_KEY = 64;
+    private static final int S_PKG = 128;
+    private static final int S_FIRST_STRING = 192;
+    private static final int S_VALUE_STRING = 288;
+    private static final int KEY_BYTES = 64;
+    private static final int PKG_BYTES = 64;
+    private static final int VALUE_BYTES = 96;
+
+    /**
+     * 读者所在进程的字段解析：按字段编号和命名空间/键得到本进程的字段
+     */
+    public interface FieldResolver {
+        MonitoredField resolve(int fieldId, MonitoredField.Namespace namespace, String key,
+                               MonitoredField.ValueType type);
+    }
+
+    private final ByteBuffer mBuffer;
+    private final int mCapacity;
+    private final int mMask;
+    // 写者：下一个写入序号（volatile，同进程内其他线程据此决定通知读者的范围）
+    private volatile long mHead;
+    // 读者：远端字段编号 → 本进程字段
+    private MonitoredField[] mFields = new MonitoredField[16];
+    private FieldResolver mResolver;
+    private final byte[] mScratch = new byte[VALUE_BYTES];
+    private final InternTable mStrings;
+
+    private SettingsRecordRing(ByteBuffer buffer, int capacity, InternTable strings) {
+        mBuffer = buffer;
+        mCapacity = capacity;
+        mMask = capacity - 1;
+        mStrings = strings;
+    }
+
+    /**
+     * 容纳capacity条记录所需的字节数（capacity向上取整为2的幂）
+     */
+    public static int bytesFor(int capacity) {
+        return HEADER_SIZE + roundUp(capacity) * SLOT_SIZE;
+    }
+
+    /**
+     * 写者：在buffer上初始化一个空环
+     *
+     * @param ringId 环编号，读者据此判断写者是否换了一个环（监控进程重启）
+     * @param strings 写入记录时解析字符串类型值的驻留表
+     */
+    public static SettingsRecordRing create(ByteBuffer buffer, int capacity, long ringId, InternTable strings) {
+        int size = roundUp(capacity);
+        if (buffer.capacity() < HEADER_SIZE + size * SLOT_SIZE) {
+            throw new IllegalArgumentException("buffer too small: " + buffer.capacity());
+        }
+        SettingsRecordRing ring = new SettingsRecordRing(buffer, size, strings);
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(ring.slot(i) + S_SEQ, SEQ_WRITING);
+        }
+        buffer.putInt(H_CAPACITY, size);
+        buffer.putInt(H_SLOT_SIZE, SLOT_SIZE);
+        buffer.putLong(H_RING_ID, ringId);
+        buffer.putLong(H_HEAD, 0);
+        buffer.putLong(H_RAW_EVENTS, 0);
+        buffer.putInt(H_VERSION, VERSION);
+        buffer.putInt(H_MAGIC, MAGIC);
+        return ring;
+    }
+
+    /**
+     * 读者：附着到写者初始化的环
+     *
+     * @param strings 读取字符串类型值时驻留到的本进程驻留表（仅读取线程使用）
+     */
+    public static SettingsRecordRing attach(ByteBuffer buffer, FieldResolver resolver, InternTable strings) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(H_MAGIC) != MAGIC
+                || buffer.getInt(H_VERSION) != VERSION || buffer.getInt(H_SLOT_SIZE) != SLOT_SIZE) {
+            throw new IllegalArgumentException("not a record ring");
+        }
+        int capacity = buffer.getInt(H_CAPACITY);
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1
+                || buffer.capacity() < HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+            throw new IllegalArgumentException("bad ring capacity: " + capacity);
+        }
+        SettingsRecordRing ring = new SettingsRecordRing(buffer, capacity, strings);
+        ring.mResolver = resolver;
+        return ring;
+    }
+
+    public int capacity() {
+        return mCapacity;
+    }
+
+    public long ringId() {
+        return mBuffer.getLong(H_RING_ID);
+    }
+
+    /**
+     * 写者进程：已写入的下一个序号
+     */
+    public long headSequence() {
+        return mHead;
+    }
+
+    /**
+     * 读者进程：头部记录的下一个序号（可能比唤醒消息中的新，新出的部分不保证可见）
+     */
+    public long sharedHeadSequence() {
+        return mBuffer.getLong(H_HEAD);
+    }
+
+    public long rawEventCount() {
+        return mBuffer.getLong(H_RAW_EVENTS);
+    }
+
+    /**
+     * 写者：更新原始事件总数
+     */
+    public void setRawEventCount(long count) {
+        mBuffer.putLong(H_RAW_EVENTS, count);
+    }
+
+    /**
+     * 写者：追加一条记录（仅写者线程调用，不分配对象）
+     *
+     * @return 记录序号
+     */
+    public long append(SettingsChangeRecord record) {
+        long seq = mHead;
+        int base = slot((int) (seq & mMask));
+        ByteBuffer buffer = mBuffer;
+        buffer.putLong(base + S_SEQ, SEQ_WRITING);
+        // -1先于负载可见
+        fullFence();
+        MonitoredField field = record.field;
+        buffer.putLong(base + S_TIME, record.time);
+        buffer.putLong(base + S_FIRST_VALUE, record.firstValue);
+        buffer.putLong(base + S_VALUE, record.value);
+        buffer.putInt(base + S_FIELD_ID, field.id);
+        buffer.putInt(base + S_EVENT_COUNT, record.eventCount);
+        buffer.putInt(base + S_SPAN, (int) Math.min(Integer.MAX_VALUE, Math.max(0, record.spanMillis())));
+        buffer.putInt(base + S_ATTRIBUTION_AGE,
+                (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, record.attributionAgeMs)));
+        buffer.put(base + S_NAMESPACE, (byte) field.namespace.ordinal());
+        buffer.put(base + S_TYPE, (byte) field.type.ordinal());
+        putString(base + S_KEY, KEY_BYTES, field.key);
+        putString(base + S_PKG, PKG_BYTES, record.modifierPkg);
+        boolean strings = field.type == MonitoredField.ValueType.STRING;
+        putString(base + S_FIRST_STRING, VALUE_BYTES, strings ? stringOf(record.firstValue) : null);
+        putString(base + S_VALUE_STRING, VALUE_BYTES, strings ? stringOf(record.value) : null);
+        // 负载先于序号可见
+        fullFence();
+        buffer.putLong(base + S_SEQ, seq);
+        buffer.putLong(H_HEAD, seq + 1);
+        mHead = seq + 1;
+        return seq;
+    }
+
+    /**
+     * 读者：把指定序号的记录解码到into（仅读取线程调用）
+     *
+     * @return false 槽位已被覆盖或尚未写入，此时into的内容无效
+     */
+    public boolean read(long seq, SettingsChangeRecord into) {
+        if (seq < 0) return false;
+        int base = slot((int) (seq & mMask));
+        ByteBuffer buffer = mBuffer;
+        if (buffer.getLong(base + S_SEQ) != seq) return false;
+        long time = buffer.getLong(base + S_TIME);
+        long firstValue = buffer.getLong(base + S_FIRST_VALUE);
+        long value = buffer.getLong(base + S_VALUE);
+        int fieldId = buffer.getInt(base + S_FIELD_ID);
+        int eventCount = buffer.getInt(base + S_EVENT_COUNT);
+        int span = buffer.getInt(base + S_SPAN);
+        int attributionAge = buffer.getInt(base + S_ATTRIBUTION_AGE);
+        MonitoredField field = fieldAt(base, seq, fieldId);
+        String pkg = getString(base + S_PKG, PKG_BYTES);
+        String firstString = null;
+        String valueString = null;
+        if (field != null && field.type == MonitoredField.ValueType.STRING) {
+            firstString = getString(base + S_FIRST_STRING, VALUE_BYTES);
+            valueString = getString(base + S_VALUE_STRING, VALUE_BYTES);
+        }
+        // 负载读取先于第二次序号读取完成
+        fullFence();
+        if (buffer.getLong(base + S_SEQ) != seq || field == null) return false;
+        if (field.type == MonitoredField.ValueType.STRING) {
+            // 字符串值按本进程的驻留表重新编号
+            firstValue = firstValue == MonitoredField.VALUE_MISSING ? firstValue : mStrings.intern(firstString);
+            value = value == MonitoredField.VALUE_MISSING ? value : mStrings.intern(valueString);
+        }
+        into.set(field, firstValue, value, pkg, time - span, time, eventCount);
+        into.attributionAgeMs = attributionAge;
+        return true;
+    }
+
+    private MonitoredField fieldAt(int base, long seq, int fieldId) {
+        if (fieldId < 0) return null;
+        MonitoredField[] fields = mFields;
+        if (fieldId < fields.length && fields[fieldId] != null) return fields[fieldId];
+        // 首次遇到该编号：按命名空间/键解析为本进程字段
+        MonitoredField.Namespace[] namespaces = MonitoredField.Namespace.values();
+        MonitoredField.ValueType[] types = MonitoredField.ValueType.values();
+        int namespace = mBuffer.get(base + S_NAMESPACE);
+        int type = mBuffer.get(base + S_TYPE);
+        String key = getString(base + S_KEY, KEY_BYTES);
+        if (namespace < 0 || namespace >= namespaces.length || type < 0 || type >= types.length || key == null) {
+            return null;
+        }
+        // 读取期间被覆盖时不缓存（可能是新记录的键）
+        fullFence();
+        if (mBuffer.getLong(base + S_SEQ) != seq) return null;
+        MonitoredField field = mResolver.resolve(fieldId, namespaces[namespace], key, types[type]);
+        if (field == null) return null;
+        if (fieldId >= fields.length) {
+            fields = Arrays.copyOf(fields, Math.max(fieldId + 1, fields.length * 2));
+            mFields = fields;
+        }
+        fields[fieldId] = field;
+        return field;
+    }
+
+    /**
+     * 全屏障：volatile写与其后的volatile读之间不能重排，之前的读写不会越过写，之后的读写不会越过读
+     */
+    private static void fullFence() {
+        sFence = 0;
+        int ignored = sFence;
+    }
+
+    private String stringOf(long raw) {
+        return raw == MonitoredField.VALUE_MISSING ? null : mStrings.get((int) raw);
+    }
+
+    /**
+     * 按UTF-8写入，超出max时在字符边界截断（逐字符编码，不分配对象）
+     */
+    private void putString(int offset, int max, String value) {
+        if (value == null) {
+            mBuffer.putShort(offset, (short) -1);
+            return;
+        }
+        int limit = max - 2;
+        int pos = offset + 2;
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int c = value.charAt(i);
+            int bytes;
+            if (c < 0x80) {
+                bytes = 1;
+            } else if (c < 0x800) {
+                bytes = 2;
+            } else if (Character.isHighSurrogate((char) c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes = 4;
+            } else {
+                bytes = 3;
+            }
+            if (length + bytes > limit) break;
+            switch (bytes) {
+                case 1:
+                    mBuffer.put(pos + length, (byte) c);
+                    break;
+                case 2:
+                    mBuffer.put(pos + length, (byte) (0xC0 | (c >> 6)));
+                    mBuffer.put(pos + length + 1, (byte) (0x80 | (c & 0x3F)));
+                    break;
+                case 3:
+                    mBuffer.put(pos + length, (byte) (0xE0 | (c >> 12)));
+                    mBuffer.put(pos + length + 1, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                    mBuffer.put(pos + length + 2, (byte) (0x80 | (c & 0x3F)));
+                    break;
+                default:
+                    int cp = Character.toCodePoint((char) c, value.charAt(++i));
+                    mBuffer.put(pos + length, (byte) (0xF0 | (cp >> 18)));
+                    mBuffer.put(pos + length + 1, (byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    mBuffer.put(pos + length + 2, (byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    mBuffer.put(pos + length + 3, (byte) (0x80 | (cp & 0x3F)));
+                    break;
+            }
+            length += bytes;
+        }
+        mBuffer.putShort(offset, (short) length);
+    }
+
+    private String getString(int offset, int max) {
+        int length = mBuffer.getShort(offset);
+        if (length < 0) return null;
+        length = Math.min(length, max - 2);
+        for (int i = 0; i < length; i++) {
+            mScratch[i] = mBuffer.get(offset + 2 + i);
+        }
+        return new String(mScratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int slot(int row) {
+        return HEADER_SIZE + row * SLOT_SIZE;
+    }
+
+    private static int roundUp(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        return size < capacity ? size << 1 : size;
+    }
+}
@@ -0,0 +1,218 @@
+package com.demo.androidtest.feature.settings;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 定长环形记录存储：单写者 / 多读者，追加O(1)，按最新在前遍历，读取无锁
+ * <p>
+ * 写者只能有一个线程（监听线程），读者可以在任意线程调用 {@link #snapshot()}。
+ * 每个槽位保存记录时同时写入其序号，读者读取槽位后校验序号，
+ * 若已被写者覆盖则视为超出快照范围，从而保证快照内容一致。
+ */
+public class SettingsRecordStore<T> implements Iterable<T> {
+
+    /**
+     * 存满后的处理策略
+     */
+    public enum OverwritePolicy {
+        // 覆盖最旧的记录（默认）
+        OVERWRITE_OLDEST,
+        // 丢弃新记录，保留已有历史
+        DROP_NEWEST
+    }
+
+    private final int mCapacity;
+    private final int mMask;
+    private final OverwritePolicy mPolicy;
+    // 槽位：记录 + 序号（Slot一经发布不再修改）
+    private final AtomicReferenceArray<Slot<T>> mSlots;
+    // 下一个写入序号（volatile发布点）
+    private volatile long mHead;
+    // 清空点：序号小于该值的记录对读者不可见
+    private volatile long mTail;
+    // 因DROP_NEWEST被丢弃的记录数
+    private volatile long mDroppedCount;
+
+    public SettingsRecordStore(int capacity, OverwritePolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        }
+        // 向上取整为2的幂，方便用掩码取槽位
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        mCapacity = capacity;
+        mMask = size - 1;
+        mPolicy = policy != null ? policy : OverwritePolicy.OVERWRITE_OLDEST;
+        mSlots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * 追加一条记录（仅写者线程调用）
+     *
+     * @return 记录序号；DROP_NEWEST策略下存满时返回-1
+     */
+    public long append(T record) {
+        long seq = mHead;
+        if (seq - mTail >= mCapacity && mPolicy == OverwritePolicy.DROP_NEWEST) {
+            mDroppedCount++;
+            return -1;
+        }
+        mSlots.set((int) (seq & mMask), new Slot<>(seq, record));
+        mHead = seq + 1;
+        return seq;
+    }
+
+    /**
+     * 清空记录（仅写者线程调用），已发布的快照不受影响
+     */
+    public void clear() {
+        mTail = mHead;
+    }
+
+    /**
+     * 获取当前记录的一致性快照（任意线程，无锁，不拷贝）
+     */
+    public Snapshot<T> snapshot() {
+        long head = mHead;
+        long oldest = Math.max(mTail, head - mCapacity);
+        return new Snapshot<>(this, head, oldest);
+    }
+
+    /**
+     * 当前可见记录数
+     */
+    public int size() {
+        long head = mHead;
+        return (int) (head - Math.max(mTail, head - mCapacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mCapacity;
+    }
+
+    public OverwritePolicy policy() {
+        return mPolicy;
+    }
+
+    /**
+     * 已写入的总序号（含已被覆盖的）
+     */
+    public long headSequence() {
+        return mHead;
+    }
+
+    public long droppedCount() {
+        return mDroppedCount;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * 读取指定序号的记录，已被覆盖或尚未写入时返回null
+     */
+    T read(long seq) {
+        Slot<T> slot = mSlots.get((int) (seq & mMask));
+        if (slot == null || slot.seq != seq) return null;
+        return slot.record;
+    }
+
+    private static final class Slot<T> {
+        final long seq;
+        final T record;
+
+        Slot(long seq, T record) {
+            this.seq = seq;
+            this.record = record;
+        }
+    }
+
+    /**
+     * 记录快照：序号区间 [oldest, head)，下标0为最新记录
+     * <p>
+     * 快照创建后写者继续覆盖旧槽位时，被覆盖的记录会从快照尾部“截断”，
+     * 遍历到此处即结束，不会读到快照之后写入的新记录。
+     */
+    public static final class Snapshot<T> implements Iterable<T> {
+        private final SettingsRecordStore<T> mStore;
+        private final long mHead;
+        private final long mOldest;
+
+        Snapshot(SettingsRecordStore<T> store, long head, long oldest) {
+            mStore = store;
+            mHead = head;
+            mOldest = oldest;
+        }
+
+        public int size() {
+            return (int) (mHead - mOldest);
+        }
+
+        public boolean isEmpty() {
+            return mHead == mOldest;
+        }
+
+        /**
+         * 快照中最新一条记录的下一个序号
+         */
+        public long headSequence() {
+            return mHead;
+        }
+
+        /**
+         * 快照中最旧一条记录的序号
+         */
+        public long oldestSequence() {
+            return mOldest;
+        }
+
+        /**
+         * 按最新在前的下标读取，已被覆盖时返回null
+         */
+        public T get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+            }
+            return mStore.read(mHead - 1 - index);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private long mNext = mHead - 1;
+                private T mPending = advance();
+
+                private T advance() {
+                    if (mNext < mOldest) return null;
+                    T record = mStore.read(mNext--);
+                    if (record == null) {
+                        // 已被覆盖：更旧的记录也必然被覆盖，直接结束
+                        mNext = mOldest - 1;
+                    }
+                    return record;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return mPending != null;
+                }
+
+                @Override
+                public T next() {
+                    if (mPending == null) throw new NoSuchElementException();
+                    T record = mPending;
+                    mPending = advance();
+                    return record;
+                }
+            };
+        }
+    }
+}
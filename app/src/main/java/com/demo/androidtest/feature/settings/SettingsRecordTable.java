@@ -0,0 +1,303 @@
+package com.demo.androidtest.feature.settings;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 修改记录的列式环形存储：单写者 / 多读者，追加不分配对象，读取无锁
+ * <p>
+ * 每条记录按列保存为基本类型：字段编号、修改者包名编号（驻留表）、首值/最终值原始槽位、时间、
+ * 跨度、事件数、归属陈旧度，每行约52字节，不再为每条记录持有对象和槽位包装。
+ * 读者通过 {@link #read(long, SettingsChangeRecord)} 把一行解码到自己复用的记录对象，
+ * 文本只在展示时格式化。
+ * <p>
+ * 并发：每行有一个序号列。写者先把序号置为-1，再写入各列，最后写入新序号；
+ * 读者读取前后各检查一次序号，不一致说明该行读取期间被覆盖，视为读取失败。
+ * 快照语义与 {@link SettingsRecordStore} 一致。
+ * <p>
+ * 追加时同步维护 {@link SettingsRecordIndex}（按字段/包名/时间筛选）。
+ */
+public class SettingsRecordTable {
+    // 写入中的行
+    private static final long SEQ_WRITING = -1;
+
+    private final int mCapacity;
+    private final int mMask;
+    private final SettingsRecordStore.OverwritePolicy mPolicy;
+    // 列
+    private final AtomicLongArray mSeqs;
+    private final AtomicLongArray mTimes;
+    private final AtomicLongArray mFirstValues;
+    private final AtomicLongArray mValues;
+    private final AtomicIntegerArray mFieldIds;
+    private final AtomicIntegerArray mPkgIds;
+    private final AtomicIntegerArray mSpans;
+    private final AtomicIntegerArray mEventCounts;
+    private final AtomicIntegerArray mAttributionAges;
+    // 时间序键：到该行为止的最大时间，随序号单调不减，用于按时间二分查找
+    private final AtomicLongArray mOrderTimes;
+    // 时间序键与实际时间的最大差（乱序到达的程度），时间查询按此放宽边界
+    private volatile long mMaxTimeLag;
+    private long mLastOrderTime = Long.MIN_VALUE;
+    private final SettingsRecordIndex mIndex = new SettingsRecordIndex(this);
+    // 修改者包名驻留表
+    private final InternTable mPackages = new InternTable();
+    // 字段编号 → 字段（写者遇到新字段时扩容后发布）
+    private volatile MonitoredField[] mFields = new MonitoredField[16];
+    // 下一个写入序号（volatile发布点）
+    private volatile long mHead;
+    // 清空点：序号小于该值的记录对读者不可见
+    private volatile long mTail;
+    // 因DROP_NEWEST被丢弃的记录数
+    private volatile long mDroppedCount;
+
+    public SettingsRecordTable(int capacity, SettingsRecordStore.OverwritePolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        }
+        // 向上取整为2的幂，方便用掩码取行
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        mCapacity = capacity;
+        mMask = size - 1;
+        mPolicy = policy != null ? policy : SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST;
+        mSeqs = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mSeqs.lazySet(i, SEQ_WRITING);
+        }
+        mTimes = new AtomicLongArray(size);
+        mFirstValues = new AtomicLongArray(size);
+        mValues = new AtomicLongArray(size);
+        mFieldIds = new AtomicIntegerArray(size);
+        mPkgIds = new AtomicIntegerArray(size);
+        mSpans = new AtomicIntegerArray(size);
+        mEventCounts = new AtomicIntegerArray(size);
+        mAttributionAges = new AtomicIntegerArray(size);
+        mOrderTimes = new AtomicLongArray(size);
+    }
+
+    /**
+     * 追加一条记录（仅写者线程调用），记录内容被复制，调用方可继续复用该对象
+     *
+     * @return 记录序号；DROP_NEWEST策略下存满时返回-1
+     */
+    public long append(SettingsChangeRecord record) {
+        long seq = mHead;
+        if (seq - mTail >= mCapacity && mPolicy == SettingsRecordStore.OverwritePolicy.DROP_NEWEST) {
+            mDroppedCount++;
+            return -1;
+        }
+        int row = (int) (seq & mMask);
+        // volatile写：之后各列的写入对读者可见前，读者一定先看到-1
+        mSeqs.set(row, SEQ_WRITING);
+        int fieldId = registerField(record.field);
+        int pkgId = mPackages.intern(record.modifierPkg);
+        mLastOrderTime = Math.max(mLastOrderTime, record.time);
+        if (mLastOrderTime - record.time > mMaxTimeLag) {
+            mMaxTimeLag = mLastOrderTime - record.time;
+        }
+        mFieldIds.lazySet(row, fieldId);
+        mPkgIds.lazySet(row, pkgId);
+        mOrderTimes.lazySet(row, mLastOrderTime);
+        mFirstValues.lazySet(row, record.firstValue);
+        mValues.lazySet(row, record.value);
+        mTimes.lazySet(row, record.time);
+        mSpans.lazySet(row, clampToInt(record.spanMillis()));
+        mEventCounts.lazySet(row, record.eventCount);
+        mAttributionAges.lazySet(row, clampToInt(record.attributionAgeMs));
+        mSeqs.lazySet(row, seq);
+        mHead = seq + 1;
+        mIndex.add(seq, fieldId, pkgId, record.modifierPkg);
+        return seq;
+    }
+
+    /**
+     * 把指定序号的记录解码到into（任意线程）
+     *
+     * @return false 记录已被覆盖或尚未写入，此时into的内容无效
+     */
+    public boolean read(long seq, SettingsChangeRecord into) {
+        if (seq < 0) return false;
+        int row = (int) (seq & mMask);
+        if (mSeqs.get(row) != seq) return false;
+        int fieldId = mFieldIds.get(row);
+        int pkgId = mPkgIds.get(row);
+        long firstValue = mFirstValues.get(row);
+        long value = mValues.get(row);
+        long time = mTimes.get(row);
+        int span = mSpans.get(row);
+        int eventCount = mEventCounts.get(row);
+        int attributionAge = mAttributionAges.get(row);
+        if (mSeqs.get(row) != seq) return false;
+        MonitoredField[] fields = mFields;
+        into.set(fieldId < fields.length ? fields[fieldId] : null, firstValue, value,
+                mPackages.get(pkgId), time - span, time, eventCount);
+        into.attributionAgeMs = attributionAge;
+        return into.field != null;
+    }
+
+    /**
+     * 二级索引（任意线程查询）
+     */
+    public SettingsRecordIndex index() {
+        return mIndex;
+    }
+
+    /**
+     * 清空记录（仅写者线程调用），已发布的快照不受影响
+     */
+    public void clear() {
+        mTail = mHead;
+    }
+
+    /**
+     * 获取当前记录的快照（任意线程，无锁，不拷贝）
+     */
+    public Snapshot snapshot() {
+        long head = mHead;
+        long oldest = Math.max(mTail, head - mCapacity);
+        return new Snapshot(this, head, oldest);
+    }
+
+    /**
+     * 当前可见记录数
+     */
+    public int size() {
+        long head = mHead;
+        return (int) (head - Math.max(mTail, head - mCapacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mCapacity;
+    }
+
+    public SettingsRecordStore.OverwritePolicy policy() {
+        return mPolicy;
+    }
+
+    /**
+     * 已写入的总序号（含已被覆盖的）
+     */
+    public long headSequence() {
+        return mHead;
+    }
+
+    public long droppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * 当前可见的最旧序号
+     */
+    long oldestSequence() {
+        long head = mHead;
+        return Math.max(mTail, head - mCapacity);
+    }
+
+    long maxTimeLag() {
+        return mMaxTimeLag;
+    }
+
+    /**
+     * 指定序号的时间序键；记录已被覆盖时返回Long.MIN_VALUE（视为最旧）
+     */
+    long orderTimeAt(long seq) {
+        int row = (int) (seq & mMask);
+        long orderTime = mOrderTimes.get(row);
+        return mSeqs.get(row) == seq ? orderTime : Long.MIN_VALUE;
+    }
+
+    /**
+     * 指定序号的记录是否满足条件（fieldId/pkgId小于0表示不限），记录已被覆盖时返回false
+     */
+    boolean matches(long seq, int fieldId, int pkgId, long fromTime, long toTime) {
+        int row = (int) (seq & mMask);
+        if (mSeqs.get(row) != seq) return false;
+        int rowFieldId = mFieldIds.get(row);
+        int rowPkgId = mPkgIds.get(row);
+        long time = mTimes.get(row);
+        if (mSeqs.get(row) != seq) return false;
+        return (fieldId < 0 || rowFieldId == fieldId) && (pkgId < 0 || rowPkgId == pkgId)
+                && time >= fromTime && time <= toTime;
+    }
+
+    /**
+     * 已登记的字段（下标为字段编号，可能含null）
+     */
+    MonitoredField[] fields() {
+        return mFields;
+    }
+
+    private int registerField(MonitoredField field) {
+        MonitoredField[] fields = mFields;
+        if (field.id >= fields.length) {
+            fields = Arrays.copyOf(fields, Math.max(field.id + 1, fields.length * 2));
+        }
+        if (fields[field.id] != field) {
+            fields[field.id] = field;
+            // volatile写：发布新字段（以及可能扩容后的数组）
+            mFields = fields;
+        }
+        return field.id;
+    }
+
+    private static int clampToInt(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    /**
+     * 记录快照：序号区间 [oldest, head)，下标0为最新记录
+     * <p>
+     * 快照创建后写者继续覆盖旧行时，被覆盖的记录读取失败，不会读到快照之后写入的新记录。
+     */
+    public static final class Snapshot {
+        private final SettingsRecordTable mTable;
+        private final long mHead;
+        private final long mOldest;
+
+        Snapshot(SettingsRecordTable table, long head, long oldest) {
+            mTable = table;
+            mHead = head;
+            mOldest = oldest;
+        }
+
+        public int size() {
+            return (int) (mHead - mOldest);
+        }
+
+        public boolean isEmpty() {
+            return mHead == mOldest;
+        }
+
+        /**
+         * 快照中最新一条记录的下一个序号
+         */
+        public long headSequence() {
+            return mHead;
+        }
+
+        /**
+         * 快照中最旧一条记录的序号
+         */
+        public long oldestSequence() {
+            return mOldest;
+        }
+
+        /**
+         * 按最新在前的下标读取到into
+         *
+         * @return false 记录已被覆盖
+         */
+        public boolean get(int index, SettingsChangeRecord into) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+            }
+            return mTable.read(mHead - 1 - index, into);
+        }
+    }
+}
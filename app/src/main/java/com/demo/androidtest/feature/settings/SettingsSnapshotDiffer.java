@@ -0,0 +1,222 @@
+package com.demo.androidtest.feature.settings;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 单个Settings命名空间的全量快照比对：保存上一轮每个键的值哈希，逐行比对本轮扫描结果
+ * <p>
+ * 快照是开放寻址的哈希表（键名64位哈希 → 值64位哈希，另存键名用于报告删除），
+ * 每个键约40字节。扫描按行提交字符数组，只有新增的键才创建String；
+ * 两张表交替使用，稳定后比对过程不分配对象。单线程使用。
+ */
+public class SettingsSnapshotDiffer {
+    // 值为null（键存在但未设置值）
+    static final long NULL_VALUE_HASH = 0x9E3779B97F4A7C15L;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * 差异回调
+     */
+    public interface Sink {
+        /**
+         * @param value 新值；键被删除时为null
+         */
+        void onDiff(String key, String value, boolean removed);
+    }
+
+    /**
+     * 开放寻址哈希表，哈希0表示空槽
+     */
+    static final class Table {
+        long[] keys;
+        long[] values;
+        String[] names;
+        int size;
+
+        Table(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            int size = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+            keys = new long[size];
+            values = new long[size];
+            names = new String[size];
+        }
+
+        void clear() {
+            Arrays.fill(keys, 0);
+            Arrays.fill(names, null);
+            size = 0;
+        }
+
+        int indexOf(long key) {
+            int mask = keys.length - 1;
+            int i = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        void put(long key, long value, String name) {
+            if ((size + 1) * 2 > keys.length) {
+                long[] oldKeys = keys;
+                long[] oldValues = values;
+                String[] oldNames = names;
+                allocate(keys.length);
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i], oldNames[i]);
+                }
+            }
+            int i = indexOf(key);
+            if (keys[i] == 0) size++;
+            keys[i] = key;
+            values[i] = value;
+            names[i] = name;
+        }
+    }
+
+    private Table mPrevious = new Table(64);
+    private Table mCurrent = new Table(64);
+    // 是否已有基准快照（首轮扫描只建立基准，不报告差异）
+    private boolean mHasBaseline;
+    // 上一轮之后已由ContentObserver报告过的键：本轮直接采用新值，不重复报告
+    private long[] mObserved = new long[8];
+    private int mObservedCount;
+    private int mDiffCount;
+
+    /**
+     * 开始一轮扫描
+     */
+    public void begin() {
+        mCurrent.clear();
+        mDiffCount = 0;
+    }
+
+    /**
+     * 提交一行（键名和值为字符数组片段，value为null表示值为null）
+     */
+    public void offer(char[] name, int nameLength, char[] value, int valueLength, Sink sink) {
+        long key = hash(name, nameLength);
+        long valueHash = value == null ? NULL_VALUE_HASH : hash(value, valueLength);
+        int prev = mPrevious.indexOf(key);
+        String keyName;
+        if (mPrevious.keys[prev] == 0) {
+            keyName = new String(name, 0, nameLength);
+            if (mHasBaseline && !isObserved(key)) {
+                report(keyName, value, valueLength, sink);
+            }
+        } else {
+            keyName = mPrevious.names[prev];
+            if (mPrevious.values[prev] != valueHash && !isObserved(key)) {
+                report(keyName, value, valueLength, sink);
+            }
+        }
+        mCurrent.put(key, valueHash, keyName);
+    }
+
+    /**
+     * 结束本轮扫描：报告已删除的键，本轮结果成为新基准
+     *
+     * @return 本轮报告的差异数
+     */
+    public int finish(Sink sink) {
+        if (mHasBaseline) {
+            Table previous = mPrevious;
+            for (int i = 0; i < previous.keys.length; i++) {
+                long key = previous.keys[i];
+                if (key != 0 && mCurrent.keys[mCurrent.indexOf(key)] == 0 && !isObserved(key)) {
+                    mDiffCount++;
+                    sink.onDiff(previous.names[i], null, true);
+                }
+            }
+        }
+        Table previous = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = previous;
+        mHasBaseline = true;
+        mObservedCount = 0;
+        return mDiffCount;
+    }
+
+    /**
+     * 记录已由ContentObserver报告的键（下一轮不重复报告）
+     */
+    public void markObserved(String key) {
+        long hash = hash(key);
+        if (isObserved(hash)) return;
+        if (mObservedCount == mObserved.length) {
+            mObserved = Arrays.copyOf(mObserved, mObservedCount * 2);
+        }
+        mObserved[mObservedCount++] = hash;
+    }
+
+    public boolean hasBaseline() {
+        return mHasBaseline;
+    }
+
+    /**
+     * 基准快照中的键数
+     */
+    public int size() {
+        return mHasBaseline ? mPrevious.size : 0;
+    }
+
+    // ========== 持久化：跨进程比对（监听开始前发生的修改） ==========
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        Table table = mPrevious;
+        out.writeInt(mHasBaseline ? table.size : -1);
+        if (!mHasBaseline) return;
+        for (int i = 0; i < table.keys.length; i++) {
+            if (table.keys[i] != 0) {
+                out.writeUTF(table.names[i]);
+                out.writeLong(table.values[i]);
+            }
+        }
+    }
+
+    public void readFrom(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        mPrevious.clear();
+        mHasBaseline = count >= 0;
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            mPrevious.put(hash(name), in.readLong(), name);
+        }
+    }
+
+    private void report(String keyName, char[] value, int valueLength, Sink sink) {
+        mDiffCount++;
+        sink.onDiff(keyName, value == null ? null : new String(value, 0, valueLength), false);
+    }
+
+    private boolean isObserved(long key) {
+        for (int i = 0; i < mObservedCount; i++) {
+            if (mObserved[i] == key) return true;
+        }
+        return false;
+    }
+
+    static long hash(String s) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return h != 0 ? h : 1;
+    }
+
+    static long hash(char[] chars, int length) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ chars[i]) * FNV_PRIME;
+        }
+        return h != 0 ? h : 1;
+    }
+}
@@ -0,0 +1,273 @@
+package com.demo.androidtest.feature.settings;
+
+import android.content.ContentResolver;
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 定期全量扫描Settings表，与上一轮快照比对，补齐ContentObserver无法覆盖的修改：
+ * 监听开始前发生的修改、被平台合并的通知、以及不在注册表中的键
+ * <p>
+ * 每轮只扫描一个命名空间（一次游标查询，按字符数组逐行比对），命名空间轮流进行；
+ * 一整轮都没有差异时间隔加倍（不超过 {@link #MAX_INTERVAL_MS}），出现差异后恢复初始间隔。
+ * 快照持久化到filesDir，进程重启后仍能发现期间的修改。仅消费线程使用。
+ * <p>
+ * 不在注册表中的键最多生成 {@link #MAX_DYNAMIC_FIELDS} 个字段，之后新出现的键归入每个命名空间一个的
+ * “其他键”字段（值为“键=值”），字段数和字段编号不随扫描无限增长；
+ * 只有发生变化的键才驻留其值，值的驻留表本身有容量上限（见 {@link InternTable}）。
+ */
+public class SettingsSnapshotScanner {
+    // 默认扫描间隔（单个命名空间），0表示关闭
+    public static final long DEFAULT_INTERVAL_MS = 30_000;
+    // 退避后的最大间隔
+    public static final long MAX_INTERVAL_MS = 10 * 60_000;
+    // 快照比对产生的记录的修改者
+    public static final String MODIFIER = "快照比对";
+    private static final String SNAPSHOT_DIR = "settings_snapshot";
+    private static final String[] PROJECTION = {"name", "value"};
+    // 不在注册表中的键生成字段的数量上限
+    public static final int MAX_DYNAMIC_FIELDS = 256;
+    // 超出上限后归入的字段的键和显示名
+    public static final String OVERFLOW_KEY = "*";
+    public static final String OVERFLOW_NAME = "其他键";
+
+    /**
+     * 比对结果回调
+     */
+    public interface RecordSink {
+        void onRecord(SettingsChangeRecord record);
+    }
+
+    // 不在注册表中的键按需生成的字符串字段（与CHANGE_RECORDS同生命周期，编号接在注册表之后）
+    private static final Map<String, MonitoredField> sDynamicFields = new HashMap<>();
+    // 各命名空间的“其他键”字段（编号接在动态字段上限之后）
+    private static final MonitoredField[] sOverflowFields = new MonitoredField[MonitoredField.Namespace.values().length];
+
+    private final ContentResolver mResolver;
+    private final SettingsFieldRegistry mRegistry;
+    private final File mDir;
+    private final MonitoredField.Namespace[] mNamespaces = MonitoredField.Namespace.values();
+    private final SettingsSnapshotDiffer[] mDiffers = new SettingsSnapshotDiffer[mNamespaces.length];
+    // 无权限读取的命名空间不再扫描
+    private final boolean[] mDisabled = new boolean[mNamespaces.length];
+    private final CharArrayBuffer mName = new CharArrayBuffer(64);
+    private final CharArrayBuffer mValue = new CharArrayBuffer(128);
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+    private final SettingsSnapshotDiffer.Sink mDiffSink = this::onDiff;
+
+    private long mBaseIntervalMs = DEFAULT_INTERVAL_MS;
+    private long mIntervalMs = DEFAULT_INTERVAL_MS;
+    private int mNext;
+    // 当前一整轮的差异数
+    private int mRoundDiffs;
+    private MonitoredField.Namespace mScanning;
+    private long mScanTime;
+    private RecordSink mSink;
+    // 最近一次扫描耗时（指标用）
+    private volatile long mLastScanMicros;
+
+    public SettingsSnapshotScanner(ContentResolver resolver, SettingsFieldRegistry registry, File filesDir) {
+        mResolver = resolver;
+        mRegistry = registry;
+        mDir = new File(filesDir, SNAPSHOT_DIR);
+        for (int i = 0; i < mDiffers.length; i++) {
+            mDiffers[i] = new SettingsSnapshotDiffer();
+        }
+    }
+
+    /**
+     * 设置初始扫描间隔（同时取消退避）
+     */
+    public void setInterval(long intervalMs) {
+        mBaseIntervalMs = intervalMs;
+        mIntervalMs = intervalMs;
+    }
+
+    /**
+     * 当前扫描间隔（含退避），0表示关闭
+     */
+    public long getInterval() {
+        return mIntervalMs;
+    }
+
+    public long getLastScanMicros() {
+        return mLastScanMicros;
+    }
+
+    /**
+     * 加载持久化的快照（没有时首轮扫描只建立基准）
+     */
+    public void load() {
+        for (int i = 0; i < mNamespaces.length; i++) {
+            AtomicFile file = snapshotFile(mNamespaces[i]);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(file.openRead()))) {
+                mDiffers[i].readFrom(in);
+            } catch (FileNotFoundException ignored) {
+                // 首次运行
+            } catch (IOException e) {
+                Log.w(SettingsMonitorService.TAG, "快照损坏，重新建立基准：" + mNamespaces[i], e);
+                mDiffers[i] = new SettingsSnapshotDiffer();
+            }
+        }
+    }
+
+    /**
+     * 字段已由ContentObserver记录，下一轮比对不重复报告
+     */
+    public void markObserved(MonitoredField field) {
+        mDiffers[field.namespace.ordinal()].markObserved(field.key);
+    }
+
+    /**
+     * 扫描下一个命名空间，差异按记录交给sink
+     *
+     * @return 下次扫描的延迟，小于0表示不再扫描
+     */
+    public long scanNext(long now, RecordSink sink) {
+        if (mIntervalMs <= 0) return -1;
+        int index = nextEnabled();
+        if (index < 0) return -1;
+        MonitoredField.Namespace namespace = mNamespaces[index];
+        SettingsSnapshotDiffer differ = mDiffers[index];
+        boolean hadBaseline = differ.hasBaseline();
+        long start = SystemClock.elapsedRealtimeNanos();
+        Trace.beginSection("SettingsSnapshotScan");
+        int diffs = -1;
+        mScanning = namespace;
+        mScanTime = now;
+        mSink = sink;
+        try (Cursor cursor = mResolver.query(namespace.contentUri(), PROJECTION, null, null, null)) {
+            if (cursor != null) {
+                int nameColumn = cursor.getColumnIndexOrThrow("name");
+                int valueColumn = cursor.getColumnIndexOrThrow("value");
+                differ.begin();
+                while (cursor.moveToNext()) {
+                    if (cursor.isNull(nameColumn)) continue;
+                    cursor.copyStringToBuffer(nameColumn, mName);
+                    boolean nullValue = cursor.isNull(valueColumn);
+                    if (!nullValue) cursor.copyStringToBuffer(valueColumn, mValue);
+                    differ.offer(mName.data, mName.sizeCopied,
+                            nullValue ? null : mValue.data, mValue.sizeCopied, mDiffSink);
+                }
+                diffs = differ.finish(mDiffSink);
+            }
+        } catch (RuntimeException e) {
+            // 高版本系统可能不允许整表查询（SecurityException等）
+            Log.w(SettingsMonitorService.TAG, "无法扫描" + namespace + "，停止该命名空间的快照比对", e);
+            mDisabled[index] = true;
+        } finally {
+            Trace.endSection();
+            mSink = null;
+        }
+        mLastScanMicros = (SystemClock.elapsedRealtimeNanos() - start) / 1000;
+        if (diffs > 0 || (diffs == 0 && !hadBaseline)) {
+            save(namespace, differ);
+        }
+        if (diffs > 0) {
+            Log.d(SettingsMonitorService.TAG, "快照比对：" + namespace + " 差异" + diffs + "项，耗时"
+                    + mLastScanMicros + "us");
+        }
+        // 建立基准的一轮不算“无变化”，不触发退避
+        return onCycleDone(index, hadBaseline ? Math.max(0, diffs) : 1);
+    }
+
+    /**
+     * 一整轮结束时按结果调整间隔：无差异则加倍，有差异则恢复
+     */
+    private long onCycleDone(int index, int diffs) {
+        mRoundDiffs += diffs;
+        mNext = index + 1;
+        if (mNext >= mNamespaces.length) {
+            mNext = 0;
+            mIntervalMs = mRoundDiffs > 0 ? mBaseIntervalMs : Math.min(mIntervalMs * 2, Math.max(MAX_INTERVAL_MS, mBaseIntervalMs));
+            mRoundDiffs = 0;
+        }
+        return mIntervalMs;
+    }
+
+    private int nextEnabled() {
+        for (int i = 0; i < mNamespaces.length; i++) {
+            int index = (mNext + i) % mNamespaces.length;
+            if (!mDisabled[index]) {
+                mNext = index;
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 差异回调（只针对新增、修改、删除的键，值在此时才驻留）
+     */
+    private void onDiff(String key, String value, boolean removed) {
+        MonitoredField field = fieldFor(mScanning, key);
+        long raw;
+        if (OVERFLOW_KEY.equals(field.key) && !OVERFLOW_KEY.equals(key)) {
+            // “其他键”：值中保留原始键
+            raw = SettingsChangeRecord.VALUE_STRINGS.intern(removed ? key + "（已删除）" : key + "=" + value);
+        } else {
+            raw = removed ? MonitoredField.VALUE_MISSING : field.parseValue(value, SettingsChangeRecord.VALUE_STRINGS);
+        }
+        mSink.onRecord(mRecord.set(field, raw, raw, MODIFIER, mScanTime, mScanTime, 1));
+    }
+
+    /**
+     * 注册表中的字段直接使用，其余键按字符串类型生成字段（超出上限时使用“其他键”字段）
+     */
+    private MonitoredField fieldFor(MonitoredField.Namespace namespace, String key) {
+        String qualifiedKey = namespace.name().toLowerCase(Locale.ROOT) + ":" + key;
+        MonitoredField field = mRegistry.findByQualifiedKey(qualifiedKey);
+        if (field != null) return field;
+        field = sDynamicFields.get(qualifiedKey);
+        if (field != null) return field;
+        if (sDynamicFields.size() < MAX_DYNAMIC_FIELDS) {
+            field = new MonitoredField(mRegistry.size() + sDynamicFields.size(), namespace, key,
+                    MonitoredField.ValueType.STRING, key, "");
+            sDynamicFields.put(qualifiedKey, field);
+            return field;
+        }
+        field = sOverflowFields[namespace.ordinal()];
+        if (field == null) {
+            field = new MonitoredField(mRegistry.size() + MAX_DYNAMIC_FIELDS + namespace.ordinal(), namespace,
+                    OVERFLOW_KEY, MonitoredField.ValueType.STRING, OVERFLOW_NAME, "");
+            sOverflowFields[namespace.ordinal()] = field;
+        }
+        return field;
+    }
+
+    private void save(MonitoredField.Namespace namespace, SettingsSnapshotDiffer differ) {
+        if (!mDir.isDirectory() && !mDir.mkdirs()) return;
+        AtomicFile file = snapshotFile(namespace);
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            differ.writeTo(data);
+            data.flush();
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(SettingsMonitorService.TAG, "保存快照失败：" + namespace, e);
+            if (out != null) file.failWrite(out);
+        }
+    }
+
+    private AtomicFile snapshotFile(MonitoredField.Namespace namespace) {
+        return new AtomicFile(new File(mDir, namespace.name().toLowerCase(Locale.ROOT) + ".snap"));
+    }
+}
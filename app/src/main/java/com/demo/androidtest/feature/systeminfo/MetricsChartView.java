@@ -0,0 +1,87 @@
+package com.demo.androidtest.feature.systeminfo;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * 滚动折线图：直接读取 {@link MetricsRing} 绘制若干通道的最近采样
+ * <p>
+ * 顶点数组和画笔在创建时分配，onDraw中不分配对象。每个通道按各自的满刻度归一化，
+ * 满刻度为0时使用窗口内的最大值。
+ */
+public class MetricsChartView extends View {
+    private final MetricsRing mRing;
+    private final int[] mChannels;
+    private final long[] mFullScales;
+    private final Paint[] mPaints;
+    private final Paint mGridPaint = new Paint();
+    // drawLines顶点：每段4个float
+    private final float[] mPoints;
+
+    public MetricsChartView(Context context, MetricsRing ring, int[] channels, int[] colors, long[] fullScales) {
+        super(context);
+        mRing = ring;
+        mChannels = channels;
+        mFullScales = fullScales;
+        mPaints = new Paint[channels.length];
+        for (int i = 0; i < channels.length; i++) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(colors[i]);
+            paint.setStrokeWidth(3);
+            mPaints[i] = paint;
+        }
+        mGridPaint.setColor(Color.parseColor("#DDDDDD"));
+        mGridPaint.setStrokeWidth(1);
+        mPoints = new float[Math.max(0, ring.capacity() - 1) * 4];
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        int height = getHeight() - getPaddingTop() - getPaddingBottom();
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float bottom = top + height;
+        // 四分位网格
+        for (int i = 0; i <= 4; i++) {
+            float y = top + height * i / 4f;
+            canvas.drawLine(left, y, left + width, y, mGridPaint);
+        }
+
+        long count = mRing.count();
+        int samples = (int) Math.min(count, mRing.capacity());
+        if (samples < 2 || width <= 0 || height <= 0) return;
+        // 最新采样在最右侧，按容量等分横轴
+        float step = (float) width / (mRing.capacity() - 1);
+        float right = left + width;
+        for (int c = 0; c < mChannels.length; c++) {
+            int channel = mChannels[c];
+            long scale = mFullScales[c] > 0 ? mFullScales[c] : mRing.max(channel, count, samples);
+            if (scale <= 0) continue;
+            int n = 0;
+            float prevX = right;
+            float prevY = valueY(mRing.get(channel, count, 0), scale, height, bottom);
+            for (int age = 1; age < samples; age++) {
+                float x = right - step * age;
+                float y = valueY(mRing.get(channel, count, age), scale, height, bottom);
+                mPoints[n++] = prevX;
+                mPoints[n++] = prevY;
+                mPoints[n++] = x;
+                mPoints[n++] = y;
+                prevX = x;
+                prevY = y;
+            }
+            canvas.drawLines(mPoints, 0, n, mPaints[c]);
+        }
+    }
+
+    private static float valueY(long value, long scale, int height, float bottom) {
+        // 不可用的值（-1）贴底绘制
+        float ratio = value <= 0 ? 0 : Math.min(1f, (float) value / scale);
+        return bottom - ratio * height;
+    }
+}
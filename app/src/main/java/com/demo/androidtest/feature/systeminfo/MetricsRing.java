@@ -0,0 +1,80 @@
+package com.demo.androidtest.feature.systeminfo;
+
+/**
+ * 多通道采样环形缓冲：每个通道一个long数组，共享写入位置
+ * <p>
+ * 单写者（采样线程）调用 {@link #beginSample}/{@link #set}/{@link #commit}，
+ * 读者（UI线程）按 {@link #count()} 读取已提交的采样。读者落后超过一圈时可能读到新值，
+ * 仅影响滚动展示，不做额外同步。
+ */
+public class MetricsRing {
+    private final long[][] mChannels;
+    private final long[] mTimes;
+    private final int mCapacity;
+    // 已提交的采样总数（volatile写发布本次采样的各通道值）
+    private volatile long mCount;
+    private int mWriteIndex;
+
+    public MetricsRing(int channelCount, int capacity) {
+        mCapacity = capacity;
+        mChannels = new long[channelCount][capacity];
+        mTimes = new long[capacity];
+    }
+
+    /**
+     * 写者：开始一次采样
+     */
+    public void beginSample(long time) {
+        mWriteIndex = (int) (mCount % mCapacity);
+        mTimes[mWriteIndex] = time;
+    }
+
+    /**
+     * 写者：设置本次采样某个通道的值
+     */
+    public void set(int channel, long value) {
+        mChannels[channel][mWriteIndex] = value;
+    }
+
+    /**
+     * 写者：提交本次采样
+     */
+    public void commit() {
+        mCount = mCount + 1;
+    }
+
+    public long count() {
+        return mCount;
+    }
+
+    public int capacity() {
+        return mCapacity;
+    }
+
+    public int channelCount() {
+        return mChannels.length;
+    }
+
+    /**
+     * 读取第age个最新采样（0为最新），调用方保证 age < min(count, capacity)
+     */
+    public long get(int channel, long count, int age) {
+        return mChannels[channel][(int) ((count - 1 - age) % mCapacity)];
+    }
+
+    public long timeAt(long count, int age) {
+        return mTimes[(int) ((count - 1 - age) % mCapacity)];
+    }
+
+    /**
+     * 最近window个采样中某通道的最大值（没有采样时返回0）
+     */
+    public long max(int channel, long count, int window) {
+        int n = (int) Math.min(Math.min(count, mCapacity), window);
+        long max = 0;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, get(channel, count, i));
+        }
+        return max;
+    }
+}
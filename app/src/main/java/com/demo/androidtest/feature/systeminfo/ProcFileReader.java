@@ -0,0 +1,134 @@
+package com.demo.androidtest.feature.systeminfo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * /proc文件读取：文件保持打开，每次从头读入复用的字节缓冲，按字节解析数字
+ * <p>
+ * 读取和解析都不创建String，适合高频采样。非线程安全。
+ */
+public class ProcFileReader implements Closeable {
+    private final String mPath;
+    private final byte[] mBuffer;
+    private RandomAccessFile mFile;
+    private int mLength;
+    // 解析游标
+    private int mPos;
+
+    public ProcFileReader(String path) {
+        this(path, 4096);
+    }
+
+    public ProcFileReader(String path, int bufferSize) {
+        mPath = path;
+        mBuffer = new byte[bufferSize];
+    }
+
+    /**
+     * 重新读取文件内容（超出缓冲的部分被忽略），游标回到开头
+     *
+     * @return 读到的字节数
+     */
+    public int read() throws IOException {
+        if (mFile == null) {
+            mFile = new RandomAccessFile(mPath, "r");
+        }
+        // /proc文件seek到0后再读会重新生成内容
+        mFile.seek(0);
+        int total = 0;
+        int n;
+        while (total < mBuffer.length && (n = mFile.read(mBuffer, total, mBuffer.length - total)) > 0) {
+            total += n;
+        }
+        mLength = total;
+        mPos = 0;
+        return total;
+    }
+
+    /**
+     * 从当前位置向后查找以prefix开头的行，找到后游标停在prefix之后
+     */
+    public boolean seekLine(byte[] prefix) {
+        int pos = mPos;
+        while (pos < mLength) {
+            if (startsWith(pos, prefix)) {
+                mPos = pos + prefix.length;
+                return true;
+            }
+            // 跳到下一行
+            while (pos < mLength && mBuffer[pos] != '\n') pos++;
+            pos++;
+        }
+        return false;
+    }
+
+    /**
+     * 游标移到最后一个指定字节之后（如/proc/self/stat中进程名的右括号）
+     */
+    public boolean seekAfterLast(byte b) {
+        for (int i = mLength - 1; i >= mPos; i--) {
+            if (mBuffer[i] == b) {
+                mPos = i + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 跳过count个以空白分隔的字段
+     */
+    public void skipFields(int count) {
+        for (int i = 0; i < count; i++) {
+            skipSpaces();
+            while (mPos < mLength && !isSpace(mBuffer[mPos])) mPos++;
+        }
+    }
+
+    /**
+     * 读取下一个字段的十进制整数，没有数字时返回-1
+     */
+    public long nextLong() {
+        skipSpaces();
+        boolean negative = mPos < mLength && mBuffer[mPos] == '-';
+        if (negative) mPos++;
+        long value = 0;
+        int start = mPos;
+        while (mPos < mLength) {
+            int digit = mBuffer[mPos] - '0';
+            if (digit < 0 || digit > 9) break;
+            value = value * 10 + digit;
+            mPos++;
+        }
+        if (mPos == start) return -1;
+        // 跳过该字段剩余的非数字部分
+        while (mPos < mLength && !isSpace(mBuffer[mPos])) mPos++;
+        return negative ? -value : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mFile != null) {
+            mFile.close();
+            mFile = null;
+        }
+    }
+
+    private boolean startsWith(int pos, byte[] prefix) {
+        if (pos + prefix.length > mLength) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (mBuffer[pos + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private void skipSpaces() {
+        while (mPos < mLength && isSpace(mBuffer[mPos])) mPos++;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n';
+    }
+}
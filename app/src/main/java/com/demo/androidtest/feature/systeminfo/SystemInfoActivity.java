@@ -1,118 +1,148 @@
 package com.demo.androidtest.feature.systeminfo;
 
-import android.os.Build;
 import android.os.Bundle;
-import android.content.pm.PackageInfo;
-import android.content.pm.PackageManager;
-import android.util.DisplayMetrics;
-import android.view.WindowManager;
 import android.widget.LinearLayout;
 import android.widget.ScrollView;
 import android.widget.TextView;
 import android.graphics.Color;
 import android.graphics.Typeface;
+import android.text.TextUtils;
 import android.util.TypedValue;
 
 import com.demo.androidtest.base.BaseTestActivity;
-import com.demo.androidtest.R;
 
-import java.lang.reflect.Method;
-import java.text.SimpleDateFormat;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Date;
-import java.util.Locale;
 
-public class SystemInfoActivity extends BaseTestActivity {
-
-    // 改用LinkedHashMap保证插入顺序
-    private final Map<String, String> mSystemInfoMap = new LinkedHashMap<>();
+public class SystemInfoActivity extends BaseTestActivity
+        implements SystemInfoProvider.Listener, SystemMetricsSampler.Listener {
+    private static final String LOADING = "加载中...";
+    // 采样间隔（Intent可选传入，毫秒）
+    public static final String EXTRA_SAMPLE_INTERVAL_MS = "SAMPLE_INTERVAL_MS";
+    private static final int COLOR_CPU_TOTAL = Color.parseColor("#1E88E5");
+    private static final int COLOR_CPU_PROCESS = Color.parseColor("#FF6600");
+    private static final int COLOR_FRAME = Color.parseColor("#43A047");
+
+    // 实时指标采样（页面可见时运行）
+    private SystemMetricsSampler mSampler;
+    private MetricsChartView mChartView;
+    private TextView mMetricsTv;
+    private final StringBuilder mMetricsText = new StringBuilder(128);
+
+    // 进程级缓存，采集在后台线程完成
+    private SystemInfoProvider mProvider;
+    // 键 → 内容行，后台探测完成后逐项填入
+    private final Map<String, TextView> mValueViews = new HashMap<>();
 
     // ========== 核心：封装分类映射关系（统一管理分类） ==========
     private static final Map<String, String> CATEGORY_MAPPING = new HashMap<>();
     static {
         // 键：分类的首个key | 值：分类标题
-        CATEGORY_MAPPING.put("Android Version", "Android System Info");
-        CATEGORY_MAPPING.put("Device Brand", "Device Hardware Info");
-        CATEGORY_MAPPING.put("Screen Resolution (Pixel)", "Screen Info");
-        CATEGORY_MAPPING.put("App Version Info", "App Version Info");
+        CATEGORY_MAPPING.put(SystemInfoProvider.KEY_ANDROID_VERSION, "Android System Info");
+        CATEGORY_MAPPING.put(SystemInfoProvider.KEY_DEVICE_BRAND, "Device Hardware Info");
+        CATEGORY_MAPPING.put(SystemInfoProvider.KEY_SCREEN_RESOLUTION, "Screen Info");
+        CATEGORY_MAPPING.put(SystemInfoProvider.KEY_APP_VERSION, "App Version Info");
     }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        collectSystemInfo(); // 采集信息
-        initUI();            // 初始化UI（动态分类）
+        mProvider = SystemInfoProvider.getInstance(this);
+        mSampler = new SystemMetricsSampler(
+                getIntent().getLongExtra(EXTRA_SAMPLE_INTERVAL_MS, SystemMetricsSampler.DEFAULT_INTERVAL_MS),
+                SystemMetricsSampler.DEFAULT_HISTORY);
+        mSampler.setListener(this);
+        initUI();            // 初始化UI：已缓存的数据立即显示
+        mProvider.addListener(this); // 慢速字段探测完成后逐项填入
+        reportReadyIfLoaded();
+    }
+
+    @Override
+    protected boolean reportsReadyManually() {
+        // 所有字段探测完成才算就绪
+        return true;
+    }
+
+    private void reportReadyIfLoaded() {
+        for (String key : SystemInfoProvider.KEYS) {
+            if (mProvider.get(key) == null) return;
+        }
+        reportTestReady();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mSampler.start();
+        mSampler.attachFrameMetrics(getWindow());
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mSampler.stop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mProvider.removeListener(this);
+        mSampler.setListener(null);
     }
 
     /**
-     * 采集核心系统/设备信息（固定顺序，分类插入）
+     * 主线程：新采样到达，刷新折线图和摘要
      */
-    private void collectSystemInfo() {
-        // ========== 第一类：Android系统核心信息 ==========
-        mSystemInfoMap.put("Android Version", Build.VERSION.RELEASE);
-        mSystemInfoMap.put("API Level", String.valueOf(Build.VERSION.SDK_INT));
-        mSystemInfoMap.put("Codename", Build.VERSION.CODENAME);
-        mSystemInfoMap.put("Build ID", Build.ID);
-        mSystemInfoMap.put("Build Type", Build.TYPE);
-        mSystemInfoMap.put("Build Number", Build.DISPLAY);
-        // mSystemInfoMap.put("Build Fingerprint", Build.FINGERPRINT);
-        mSystemInfoMap.put("System Build Time", getSystemBuildTime());
-
-        // ========== 第二类：设备硬件信息 ==========
-        mSystemInfoMap.put("Device Brand", Build.BRAND);
-        mSystemInfoMap.put("Device Manufacturer", Build.MANUFACTURER);
-        mSystemInfoMap.put("Device Model", Build.MODEL);
-        mSystemInfoMap.put("Product Name", Build.PRODUCT);
-
-        // ========== 第三类：屏幕信息（同安兔兔） ==========
-        WindowManager windowManager = getWindowManager();
-        DisplayMetrics metrics = new DisplayMetrics();
-        windowManager.getDefaultDisplay().getRealMetrics(metrics);
-
-        int screenWidthPx = metrics.widthPixels;
-        int screenHeightPx = metrics.heightPixels;
-        String screenResolution = screenWidthPx + " x " + screenHeightPx;
-        mSystemInfoMap.put("Screen Resolution (Pixel)", screenResolution);
-        mSystemInfoMap.put("Screen DPI", String.valueOf(metrics.densityDpi));
-        mSystemInfoMap.put("Screen Density", String.format("%.2f", metrics.density));
-
-        double screenDiagonalPx = Math.sqrt(Math.pow(screenWidthPx, 2) + Math.pow(screenHeightPx, 2));
-        double screenSizeInch = screenDiagonalPx / metrics.densityDpi;
-        mSystemInfoMap.put("Screen Size (Inch)", String.format("%.1f\"", screenSizeInch));
-
-        // ========== 第四类：App版本信息 ==========
-        try {
-            PackageInfo packageInfo = getPackageManager()
-                    .getPackageInfo(getPackageName(), 0);
-            String appVersion = packageInfo.versionName + " (Code: " + packageInfo.versionCode + ")";
-            mSystemInfoMap.put("App Version Info", appVersion);
-
-            // APK构建时间（格式化）
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-            String apkBuildTime = sdf.format(new Date(Build.TIME));
-            mSystemInfoMap.put("APK Build Time", apkBuildTime);
-        } catch (PackageManager.NameNotFoundException e) {
-            e.printStackTrace();
-            mSystemInfoMap.put("App Version Info", "Unknown");
-            mSystemInfoMap.put("APK Build Time", "Unknown");
-        }
+    @Override
+    public void onSample(SystemMetricsSampler sampler) {
+        MetricsRing ring = sampler.getRing();
+        long count = ring.count();
+        if (count == 0) return;
+        StringBuilder sb = mMetricsText;
+        sb.setLength(0);
+        sb.append("CPU 整机 ");
+        appendPermille(sb, ring.get(SystemMetricsSampler.CH_CPU_TOTAL, count, 0));
+        sb.append(" / 本进程 ");
+        appendPermille(sb, ring.get(SystemMetricsSampler.CH_CPU_PROCESS, count, 0));
+        sb.append("\n内存 可用 ").append(ring.get(SystemMetricsSampler.CH_MEM_AVAILABLE_KB, count, 0) / 1024)
+                .append(" / ").append(ring.get(SystemMetricsSampler.CH_MEM_TOTAL_KB, count, 0) / 1024)
+                .append(" MB，PSS ").append(ring.get(SystemMetricsSampler.CH_PSS_KB, count, 0) / 1024).append(" MB");
+        sb.append("\nGC ").append(ring.get(SystemMetricsSampler.CH_GC_COUNT, count, 0)).append(" 次 / ")
+                .append(ring.get(SystemMetricsSampler.CH_GC_TIME_MS, count, 0)).append(" ms");
+        sb.append("\n帧 ").append(ring.get(SystemMetricsSampler.CH_FRAME_COUNT, count, 0))
+                .append("，平均 ").append(ring.get(SystemMetricsSampler.CH_FRAME_AVG_US, count, 0) / 1000)
+                .append(" ms，最大 ").append(ring.get(SystemMetricsSampler.CH_FRAME_MAX_US, count, 0) / 1000)
+                .append(" ms，卡顿 ").append(ring.get(SystemMetricsSampler.CH_JANK_FRAMES, count, 0));
+        sb.append("\n采样开销 ");
+        appendPermille(sb, ring.get(SystemMetricsSampler.CH_SAMPLER_CPU, count, 0));
+        sb.append("，间隔 ").append(sampler.getIntervalMs()).append(" ms");
+        mMetricsTv.setText(sb);
+        mChartView.invalidate();
     }
 
     /**
-     * 获取Android系统编译时间（通过反射读取系统属性ro.build.date）
+     * 千分比格式化为百分比（一位小数），-1显示为不可用
      */
-    private String getSystemBuildTime() {
-        try {
-            Class<?> systemPropertiesClass = Class.forName("android.os.SystemProperties");
-            Method getMethod = systemPropertiesClass.getMethod("get", String.class);
-            String systemBuildTime = (String) getMethod.invoke(null, "ro.build.date");
-            return systemBuildTime != null ? systemBuildTime : "Unknown";
-        } catch (Exception e) {
-            e.printStackTrace();
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-            return sdf.format(new Date(Build.TIME)); // 降级方案
+    private static void appendPermille(StringBuilder sb, long permille) {
+        if (permille < 0) {
+            sb.append("不可用");
+            return;
+        }
+        sb.append(permille / 10).append('.').append(permille % 10).append('%');
+    }
+
+    @Override
+    public void onSystemInfoChanged(SystemInfoProvider provider) {
+        for (Map.Entry<String, TextView> entry : mValueViews.entrySet()) {
+            bindValue(entry.getValue(), provider.get(entry.getKey()));
+        }
+        reportReadyIfLoaded();
+    }
+
+    private static void bindValue(TextView tvValue, String value) {
+        String text = value != null ? value : LOADING;
+        if (!TextUtils.equals(tvValue.getText(), text)) {
+            tvValue.setText(text);
         }
     }
 
@@ -129,10 +159,23 @@ public class SystemInfoActivity extends BaseTestActivity {
         rootLayout.setOrientation(LinearLayout.VERTICAL);
         rootLayout.setPadding(32, 32, 32, 32);
 
-        // 遍历信息（通过分类映射表动态判断标题，极简逻辑）
-        for (Map.Entry<String, String> entry : mSystemInfoMap.entrySet()) {
-            String currentKey = entry.getKey();
+        // ========== 实时指标：CPU（蓝：整机，橙：本进程）与帧耗时（绿） ==========
+        addSectionTitle(rootLayout, "Live Metrics");
+        mChartView = new MetricsChartView(this, mSampler.getRing(),
+                new int[]{SystemMetricsSampler.CH_CPU_TOTAL, SystemMetricsSampler.CH_CPU_PROCESS,
+                        SystemMetricsSampler.CH_FRAME_MAX_US},
+                new int[]{COLOR_CPU_TOTAL, COLOR_CPU_PROCESS, COLOR_FRAME},
+                new long[]{1000, 1000, 0});
+        rootLayout.addView(mChartView, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, 240));
+        mMetricsTv = new TextView(this);
+        mMetricsTv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
+        mMetricsTv.setTextColor(Color.parseColor("#666666"));
+        mMetricsTv.setPadding(0, 8, 0, 12);
+        rootLayout.addView(mMetricsTv);
 
+        // 遍历信息（通过分类映射表动态判断标题，极简逻辑）
+        for (String currentKey : SystemInfoProvider.KEYS) {
             // ========== 核心：通过映射表动态插入分类标题 ==========
             String categoryTitle = CATEGORY_MAPPING.get(currentKey);
             if (categoryTitle != null) {
@@ -153,11 +196,12 @@ public class SystemInfoActivity extends BaseTestActivity {
             TextView tvValue = new TextView(this);
             tvValue.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
             tvValue.setTextColor(Color.parseColor("#666666"));
-            tvValue.setText(entry.getValue());
+            bindValue(tvValue, mProvider.get(currentKey));
             tvValue.setPadding(0, 0, 0, 12);
             tvValue.setSingleLine(false);
             tvValue.setMaxLines(3);
             rootLayout.addView(tvValue);
+            mValueViews.put(currentKey, tvValue);
         }
 
         scrollView.addView(rootLayout);
@@ -0,0 +1,260 @@
+package com.demo.androidtest.feature.systeminfo;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.hardware.display.DisplayManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.view.Display;
+
+import java.lang.reflect.Method;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程级系统信息缓存：采集一次，后台线程探测，按广播失效
+ * <p>
+ * Build常量在创建时直接填入；反射系统属性、屏幕参数和包信息在后台线程逐组探测，
+ * 每组完成后在主线程通知监听者。屏幕组在配置变化时失效，App组在本应用包变化时失效。
+ */
+public class SystemInfoProvider {
+    public static final String UNKNOWN = "Unknown";
+
+    // ========== 展示顺序（固定） ==========
+    public static final String KEY_ANDROID_VERSION = "Android Version";
+    public static final String KEY_API_LEVEL = "API Level";
+    public static final String KEY_CODENAME = "Codename";
+    public static final String KEY_BUILD_ID = "Build ID";
+    public static final String KEY_BUILD_TYPE = "Build Type";
+    public static final String KEY_BUILD_NUMBER = "Build Number";
+    public static final String KEY_SYSTEM_BUILD_TIME = "System Build Time";
+    public static final String KEY_DEVICE_BRAND = "Device Brand";
+    public static final String KEY_DEVICE_MANUFACTURER = "Device Manufacturer";
+    public static final String KEY_DEVICE_MODEL = "Device Model";
+    public static final String KEY_PRODUCT_NAME = "Product Name";
+    public static final String KEY_SCREEN_RESOLUTION = "Screen Resolution (Pixel)";
+    public static final String KEY_SCREEN_DPI = "Screen DPI";
+    public static final String KEY_SCREEN_DENSITY = "Screen Density";
+    public static final String KEY_SCREEN_SIZE = "Screen Size (Inch)";
+    public static final String KEY_APP_VERSION = "App Version Info";
+    public static final String KEY_APK_BUILD_TIME = "APK Build Time";
+
+    public static final String[] KEYS = {
+            KEY_ANDROID_VERSION, KEY_API_LEVEL, KEY_CODENAME, KEY_BUILD_ID, KEY_BUILD_TYPE, KEY_BUILD_NUMBER,
+            KEY_SYSTEM_BUILD_TIME,
+            KEY_DEVICE_BRAND, KEY_DEVICE_MANUFACTURER, KEY_DEVICE_MODEL, KEY_PRODUCT_NAME,
+            KEY_SCREEN_RESOLUTION, KEY_SCREEN_DPI, KEY_SCREEN_DENSITY, KEY_SCREEN_SIZE,
+            KEY_APP_VERSION, KEY_APK_BUILD_TIME
+    };
+
+    /**
+     * 信息变化监听（主线程回调）
+     */
+    public interface Listener {
+        void onSystemInfoChanged(SystemInfoProvider provider);
+    }
+
+    private static volatile SystemInfoProvider sInstance;
+
+    private final Context mContext;
+    private final Map<String, String> mValues = new ConcurrentHashMap<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Handler mWorkerHandler;
+    // 仅主线程访问
+    private final List<Listener> mListeners = new ArrayList<>();
+
+    // 各探测组是否有效（仅工作线程访问）
+    private boolean mBuildTimeValid;
+    private boolean mScreenValid;
+    private boolean mAppValid;
+
+    private final Runnable mProbeRunnable = this::probeInvalid;
+    private final Runnable mNotifyRunnable = this::notifyListeners;
+
+    private SystemInfoProvider(Context context) {
+        mContext = context.getApplicationContext();
+        // Build常量无IPC，直接填入
+        mValues.put(KEY_ANDROID_VERSION, Build.VERSION.RELEASE);
+        mValues.put(KEY_API_LEVEL, String.valueOf(Build.VERSION.SDK_INT));
+        mValues.put(KEY_CODENAME, Build.VERSION.CODENAME);
+        mValues.put(KEY_BUILD_ID, Build.ID);
+        mValues.put(KEY_BUILD_TYPE, Build.TYPE);
+        mValues.put(KEY_BUILD_NUMBER, Build.DISPLAY);
+        mValues.put(KEY_DEVICE_BRAND, Build.BRAND);
+        mValues.put(KEY_DEVICE_MANUFACTURER, Build.MANUFACTURER);
+        mValues.put(KEY_DEVICE_MODEL, Build.MODEL);
+        mValues.put(KEY_PRODUCT_NAME, Build.PRODUCT);
+
+        HandlerThread thread = new HandlerThread("SystemInfo");
+        thread.start();
+        mWorkerHandler = new Handler(thread.getLooper());
+        registerInvalidationReceivers();
+        mWorkerHandler.post(mProbeRunnable);
+    }
+
+    public static SystemInfoProvider getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (SystemInfoProvider.class) {
+                if (sInstance == null) {
+                    sInstance = new SystemInfoProvider(context);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * 读取缓存值，尚未探测完成时返回null
+     */
+    public String get(String key) {
+        return mValues.get(key);
+    }
+
+    /**
+     * 添加监听（主线程），已缓存的数据请直接通过 {@link #get} 读取
+     */
+    public void addListener(Listener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void registerInvalidationReceivers() {
+        // 配置变化（旋转、分辨率/显示大小调整）：屏幕参数失效
+        mContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate(() -> mScreenValid = false);
+            }
+        }, new IntentFilter(Intent.ACTION_CONFIGURATION_CHANGED), null, mWorkerHandler);
+
+        // 本应用包变化：版本信息失效
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        mContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                Uri data = intent.getData();
+                if (data != null && mContext.getPackageName().equals(data.getSchemeSpecificPart())) {
+                    invalidate(() -> mAppValid = false);
+                }
+            }
+        }, packageFilter, null, mWorkerHandler);
+    }
+
+    /**
+     * 工作线程：标记失效并重新探测
+     */
+    private void invalidate(Runnable marker) {
+        marker.run();
+        mWorkerHandler.removeCallbacks(mProbeRunnable);
+        mWorkerHandler.post(mProbeRunnable);
+    }
+
+    /**
+     * 工作线程：逐组探测失效的信息，每组完成即通知，先完成的先显示
+     */
+    private void probeInvalid() {
+        if (!mBuildTimeValid) {
+            mValues.put(KEY_SYSTEM_BUILD_TIME, getSystemBuildTime());
+            mBuildTimeValid = true;
+            postNotify();
+        }
+        if (!mScreenValid) {
+            probeScreen();
+            mScreenValid = true;
+            postNotify();
+        }
+        if (!mAppValid) {
+            probeApp();
+            mAppValid = true;
+            postNotify();
+        }
+    }
+
+    /**
+     * 默认屏幕的物理参数（工作线程调用：DisplayManager不依赖窗口上下文，应用上下文即可获取）
+     */
+    @SuppressWarnings("deprecation")
+    private void probeScreen() {
+        DisplayManager displayManager = (DisplayManager) mContext.getSystemService(Context.DISPLAY_SERVICE);
+        Display display = displayManager != null ? displayManager.getDisplay(Display.DEFAULT_DISPLAY) : null;
+        if (display == null) return;
+        DisplayMetrics metrics = new DisplayMetrics();
+        // 整屏物理分辨率（不扣除系统栏），不随窗口大小变化
+        display.getRealMetrics(metrics);
+
+        int screenWidthPx = metrics.widthPixels;
+        int screenHeightPx = metrics.heightPixels;
+        mValues.put(KEY_SCREEN_RESOLUTION, screenWidthPx + " x " + screenHeightPx);
+        mValues.put(KEY_SCREEN_DPI, String.valueOf(metrics.densityDpi));
+        mValues.put(KEY_SCREEN_DENSITY, String.format("%.2f", metrics.density));
+
+        double screenDiagonalPx = Math.sqrt(Math.pow(screenWidthPx, 2) + Math.pow(screenHeightPx, 2));
+        double screenSizeInch = screenDiagonalPx / metrics.densityDpi;
+        mValues.put(KEY_SCREEN_SIZE, String.format("%.1f\"", screenSizeInch));
+    }
+
+    private void probeApp() {
+        try {
+            PackageInfo packageInfo = mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), 0);
+            mValues.put(KEY_APP_VERSION, packageInfo.versionName + " (Code: " + packageInfo.versionCode + ")");
+
+            // APK构建时间（格式化）
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+            mValues.put(KEY_APK_BUILD_TIME, sdf.format(new Date(Build.TIME)));
+        } catch (PackageManager.NameNotFoundException e) {
+            e.printStackTrace();
+            mValues.put(KEY_APP_VERSION, UNKNOWN);
+            mValues.put(KEY_APK_BUILD_TIME, UNKNOWN);
+        }
+    }
+
+    /**
+     * 获取Android系统编译时间（通过反射读取系统属性ro.build.date）
+     */
+    private static String getSystemBuildTime() {
+        try {
+            Class<?> systemPropertiesClass = Class.forName("android.os.SystemProperties");
+            Method getMethod = systemPropertiesClass.getMethod("get", String.class);
+            String systemBuildTime = (String) getMethod.invoke(null, "ro.build.date");
+            return systemBuildTime != null ? systemBuildTime : UNKNOWN;
+        } catch (Exception e) {
+            e.printStackTrace();
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+            return sdf.format(new Date(Build.TIME)); // 降级方案
+        }
+    }
+
+    private void postNotify() {
+        // 同一轮主线程消息里合并多次通知
+        mMainHandler.removeCallbacks(mNotifyRunnable);
+        mMainHandler.post(mNotifyRunnable);
+    }
+
+    private void notifyListeners() {
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            mListeners.get(i).onSystemInfoChanged(this);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.demo.androidtest.feature.systeminfo;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 实时性能指标采样：CPU、内存、GC、帧耗时，按可配置的间隔写入 {@link MetricsRing}
+ * <p>
+ * 采样在独立的HandlerThread中进行：/proc文件通过 {@link ProcFileReader} 复用缓冲读取，
+ * Debug.MemoryInfo（需要遍历smaps，代价较高）每 {@link #PSS_EVERY} 次采样才读取一次。
+ * 每次采样统计自身线程CPU时间，超出1%预算时自动拉长采样间隔，回落后再恢复。
+ */
+public class SystemMetricsSampler {
+    private static final String TAG = "MetricsSampler";
+
+    // ========== 通道 ==========
+    public static final int CH_CPU_TOTAL = 0; // 整机CPU占用（千分比，/proc/stat不可读时为-1）
+    public static final int CH_CPU_PROCESS = 1; // 本进程CPU占用（占全部核心的千分比）
+    public static final int CH_MEM_AVAILABLE_KB = 2;
+    public static final int CH_MEM_TOTAL_KB = 3;
+    public static final int CH_PSS_KB = 4; // 本进程PSS（低频更新）
+    public static final int CH_GC_COUNT = 5; // 本周期GC次数
+    public static final int CH_GC_TIME_MS = 6; // 本周期GC耗时
+    public static final int CH_FRAME_COUNT = 7; // 本周期渲染帧数
+    public static final int CH_FRAME_AVG_US = 8;
+    public static final int CH_FRAME_MAX_US = 9;
+    public static final int CH_JANK_FRAMES = 10; // 超过一帧预算的帧数
+    public static final int CH_SAMPLER_CPU = 11; // 采样自身CPU占用（单核千分比）
+    public static final int CHANNEL_COUNT = 12;
+
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+    public static final long MIN_INTERVAL_MS = 100;
+    public static final long MAX_INTERVAL_MS = 10_000;
+    public static final int DEFAULT_HISTORY = 300;
+    // 自身开销预算：1%（千分比）
+    private static final long OVERHEAD_BUDGET_PERMILLE = 10;
+    private static final int PSS_EVERY = 10;
+    private static final long JANK_THRESHOLD_NS = 16_666_667L;
+
+    private static final byte[] CPU_PREFIX = "cpu ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEM_TOTAL_PREFIX = "MemTotal:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEM_AVAILABLE_PREFIX = "MemAvailable:".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 新采样通知（主线程回调）
+     */
+    public interface Listener {
+        void onSample(SystemMetricsSampler sampler);
+    }
+
+    private final MetricsRing mRing;
+    private final long mConfiguredIntervalMs;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private Listener mListener;
+
+    private HandlerThread mThread;
+    private volatile Handler mHandler;
+    private final Runnable mSampleRunnable = this::sample;
+    private final Runnable mNotifyRunnable = this::notifyListener;
+
+    // ========== 以下仅采样线程访问 ==========
+    private final ProcFileReader mProcStat = new ProcFileReader("/proc/stat");
+    private final ProcFileReader mSelfStat = new ProcFileReader("/proc/self/stat", 1024);
+    private final ProcFileReader mMemInfo = new ProcFileReader("/proc/meminfo");
+    private final Debug.MemoryInfo mMemoryInfo = new Debug.MemoryInfo();
+    private final long mClockTicksPerSecond = Os.sysconf(OsConstants._SC_CLK_TCK);
+    private final int mCpuCount = Runtime.getRuntime().availableProcessors();
+    private boolean mProcStatReadable = true;
+    private long mIntervalMs;
+    private long mSampleIndex;
+    private long mLastWallMs;
+    private long mLastCpuTotal = -1, mLastCpuIdle;
+    private long mLastProcessTicks = -1;
+    private long mLastGcCount = -1, mLastGcTimeMs;
+    private long mLastPssKb;
+    // 帧统计（FrameMetrics回调在采样线程，周期内累加）
+    private int mFrameCount;
+    private long mFrameTotalNs;
+    private long mFrameMaxNs;
+    private int mJankFrames;
+    private final Window.OnFrameMetricsAvailableListener mFrameListener = (window, metrics, dropCount) -> {
+        long duration = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        mFrameCount++;
+        mFrameTotalNs += duration;
+        mFrameMaxNs = Math.max(mFrameMaxNs, duration);
+        if (duration > JANK_THRESHOLD_NS) mJankFrames++;
+    };
+    private Window mFrameWindow;
+
+    public SystemMetricsSampler() {
+        this(DEFAULT_INTERVAL_MS, DEFAULT_HISTORY);
+    }
+
+    public SystemMetricsSampler(long intervalMs, int history) {
+        mConfiguredIntervalMs = Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, intervalMs));
+        mIntervalMs = mConfiguredIntervalMs;
+        mRing = new MetricsRing(CHANNEL_COUNT, history);
+    }
+
+    public MetricsRing getRing() {
+        return mRing;
+    }
+
+    /**
+     * 当前实际采样间隔（可能因开销预算被拉长）
+     */
+    public long getIntervalMs() {
+        return mIntervalMs;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 开始采样（主线程调用）
+     */
+    public void start() {
+        if (mThread != null) return;
+        mThread = new HandlerThread("MetricsSampler", android.os.Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mHandler.post(() -> {
+            // 重新开始时丢弃上一轮的增量基准
+            mLastWallMs = 0;
+            mLastCpuTotal = -1;
+            mLastProcessTicks = -1;
+            mLastGcCount = -1;
+            resetFrameStats();
+            sample();
+        });
+    }
+
+    /**
+     * 停止采样并释放文件句柄（主线程调用）
+     */
+    public void stop() {
+        if (mThread == null) return;
+        detachFrameMetrics();
+        mHandler.removeCallbacks(mSampleRunnable);
+        mHandler.post(this::closeReaders);
+        mThread.quitSafely();
+        mThread = null;
+        mHandler = null;
+        mMainHandler.removeCallbacks(mNotifyRunnable);
+    }
+
+    /**
+     * 统计窗口的帧耗时（需先start，主线程调用）
+     */
+    public void attachFrameMetrics(Window window) {
+        if (mHandler == null || mFrameWindow == window) return;
+        detachFrameMetrics();
+        window.addOnFrameMetricsAvailableListener(mFrameListener, mHandler);
+        mFrameWindow = window;
+    }
+
+    public void detachFrameMetrics() {
+        if (mFrameWindow == null) return;
+        try {
+            mFrameWindow.removeOnFrameMetricsAvailableListener(mFrameListener);
+        } catch (IllegalArgumentException ignored) {
+            // 窗口已销毁时监听已被移除
+        }
+        mFrameWindow = null;
+    }
+
+    /**
+     * 采样线程：读取一次全部指标
+     */
+    private void sample() {
+        long cpuStartNs = Debug.threadCpuTimeNanos();
+        long now = SystemClock.uptimeMillis();
+        long wallMs = mLastWallMs > 0 ? now - mLastWallMs : 0;
+        mLastWallMs = now;
+
+        mRing.beginSample(System.currentTimeMillis());
+        sampleCpu(wallMs);
+        sampleMemory();
+        sampleGc();
+        sampleFrames();
+
+        // 自身开销：本次采样的线程CPU时间 / 采样间隔
+        long costNs = Debug.threadCpuTimeNanos() - cpuStartNs;
+        long overhead = cpuStartNs < 0 ? -1 : costNs / (mIntervalMs * 1000L);
+        mRing.set(CH_SAMPLER_CPU, overhead);
+        mRing.commit();
+        adjustInterval(overhead);
+        mSampleIndex++;
+
+        mMainHandler.removeCallbacks(mNotifyRunnable);
+        mMainHandler.post(mNotifyRunnable);
+        Handler handler = mHandler;
+        if (handler != null) {
+            handler.postDelayed(mSampleRunnable, mIntervalMs);
+        }
+    }
+
+    private void sampleCpu(long wallMs) {
+        long cpuTotal = -1;
+        if (mProcStatReadable) {
+            try {
+                mProcStat.read();
+                if (mProcStat.seekLine(CPU_PREFIX)) {
+                    // user nice system idle iowait irq softirq steal
+                    long user = mProcStat.nextLong();
+                    long nice = mProcStat.nextLong();
+                    long system = mProcStat.nextLong();
+                    long idle = mProcStat.nextLong();
+                    long iowait = mProcStat.nextLong();
+                    long irq = mProcStat.nextLong();
+                    long softirq = mProcStat.nextLong();
+                    long steal = mProcStat.nextLong();
+                    long total = user + nice + system + idle + iowait + irq + softirq + Math.max(0, steal);
+                    long idleAll = idle + iowait;
+                    if (mLastCpuTotal >= 0 && total > mLastCpuTotal) {
+                        cpuTotal = 1000 - (idleAll - mLastCpuIdle) * 1000 / (total - mLastCpuTotal);
+                    }
+                    mLastCpuTotal = total;
+                    mLastCpuIdle = idleAll;
+                }
+            } catch (IOException e) {
+                // Android 8.0起普通应用无权读取/proc/stat
+                Log.w(TAG, "/proc/stat不可读，停止采样整机CPU", e);
+                mProcStatReadable = false;
+            }
+        }
+        mRing.set(CH_CPU_TOTAL, cpuTotal);
+
+        long processCpu = -1;
+        try {
+            mSelfStat.read();
+            // 进程名可能含空格，从右括号之后开始数：state为第3个字段，utime/stime为第14/15个
+            if (mSelfStat.seekAfterLast((byte) ')')) {
+                mSelfStat.skipFields(11);
+                long ticks = mSelfStat.nextLong() + mSelfStat.nextLong();
+                if (mLastProcessTicks >= 0 && wallMs > 0 && mClockTicksPerSecond > 0) {
+                    long cpuMs = (ticks - mLastProcessTicks) * 1000 / mClockTicksPerSecond;
+                    processCpu = cpuMs * 1000 / (wallMs * mCpuCount);
+                }
+                mLastProcessTicks = ticks;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "读取/proc/self/stat失败", e);
+        }
+        mRing.set(CH_CPU_PROCESS, processCpu);
+    }
+
+    private void sampleMemory() {
+        long total = -1, available = -1;
+        try {
+            mMemInfo.read();
+            if (mMemInfo.seekLine(MEM_TOTAL_PREFIX)) total = mMemInfo.nextLong();
+            if (mMemInfo.seekLine(MEM_AVAILABLE_PREFIX)) available = mMemInfo.nextLong();
+        } catch (IOException e) {
+            Log.w(TAG, "读取/proc/meminfo失败", e);
+        }
+        mRing.set(CH_MEM_TOTAL_KB, total);
+        mRing.set(CH_MEM_AVAILABLE_KB, available);
+
+        if (mSampleIndex % PSS_EVERY == 0) {
+            Debug.getMemoryInfo(mMemoryInfo);
+            mLastPssKb = mMemoryInfo.getTotalPss();
+        }
+        mRing.set(CH_PSS_KB, mLastPssKb);
+    }
+
+    private void sampleGc() {
+        long count = parseStat(Debug.getRuntimeStat("art.gc.gc-count"));
+        long timeMs = parseStat(Debug.getRuntimeStat("art.gc.gc-time"));
+        boolean hasBase = mLastGcCount >= 0 && count >= 0;
+        mRing.set(CH_GC_COUNT, hasBase ? count - mLastGcCount : 0);
+        mRing.set(CH_GC_TIME_MS, hasBase ? timeMs - mLastGcTimeMs : 0);
+        mLastGcCount = count;
+        mLastGcTimeMs = timeMs;
+    }
+
+    private void sampleFrames() {
+        mRing.set(CH_FRAME_COUNT, mFrameCount);
+        mRing.set(CH_FRAME_AVG_US, mFrameCount > 0 ? mFrameTotalNs / mFrameCount / 1000 : 0);
+        mRing.set(CH_FRAME_MAX_US, mFrameMaxNs / 1000);
+        mRing.set(CH_JANK_FRAMES, mJankFrames);
+        resetFrameStats();
+    }
+
+    private void resetFrameStats() {
+        mFrameCount = 0;
+        mFrameTotalNs = 0;
+        mFrameMaxNs = 0;
+        mJankFrames = 0;
+    }
+
+    /**
+     * 超出开销预算时加倍间隔，开销降到预算的1/4以下时逐步回到配置值
+     */
+    private void adjustInterval(long overheadPermille) {
+        if (overheadPermille > OVERHEAD_BUDGET_PERMILLE && mIntervalMs < MAX_INTERVAL_MS) {
+            mIntervalMs = Math.min(MAX_INTERVAL_MS, mIntervalMs * 2);
+        } else if (overheadPermille >= 0 && overheadPermille * 4 < OVERHEAD_BUDGET_PERMILLE
+                && mIntervalMs > mConfiguredIntervalMs) {
+            mIntervalMs = Math.max(mConfiguredIntervalMs, mIntervalMs / 2);
+        }
+    }
+
+    private void closeReaders() {
+        try {
+            mProcStat.close();
+            mSelfStat.close();
+            mMemInfo.close();
+        } catch (IOException e) {
+            Log.w(TAG, "关闭/proc文件失败", e);
+        }
+    }
+
+    private void notifyListener() {
+        if (mListener != null) {
+            mListener.onSample(this);
+        }
+    }
+
+    private static long parseStat(String value) {
+        if (value == null) return -1;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
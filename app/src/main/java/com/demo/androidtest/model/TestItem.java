@@ -1,8 +1,11 @@
 package com.demo.androidtest.model;
 
+import android.content.ComponentName;
+
 public class TestItem {
     private String title;       // 测试项标题
     private String activityClass; // 对应Activity类名
+    private ComponentName component; // 加载时按清单校验后解析的组件（未校验时为null）
 
     public TestItem(String title, String activityClass) {
         this.title = title;
@@ -14,4 +17,6 @@ public class TestItem {
     public void setTitle(String title) { this.title = title; }
     public String getActivityClass() { return activityClass; }
     public void setActivityClass(String activityClass) { this.activityClass = activityClass; }
+    public ComponentName getComponent() { return component; }
+    public void setComponent(ComponentName component) { this.component = component; }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.demo.androidtest.base;
+
+import com.demo.androidtest.model.TestItem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestCatalogSnapshot 快照读写单元测试
+ */
+public class TestCatalogSnapshotTest {
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    @Test
+    public void roundTripsItems() throws IOException {
+        List<TestItem> items = new ArrayList<>();
+        items.add(new TestItem("Information", "com.demo.androidtest.feature.systeminfo.SystemInfoActivity"));
+        items.add(new TestItem("设置监听", "com.demo.androidtest.feature.settings.SettingsMonitorActivity"));
+        File file = new File(mTemp.getRoot(), "catalog.snapshot");
+        new TestCatalogSnapshot(0xCAFEBABE, 42L, items).write(file);
+
+        TestCatalogSnapshot snapshot = TestCatalogSnapshot.read(file);
+        assertNotNull(snapshot);
+        assertEquals(0xCAFEBABE, snapshot.assetCrc);
+        assertEquals(42L, snapshot.apkStamp);
+        assertEquals(2, snapshot.items.size());
+        assertEquals("设置监听", snapshot.items.get(1).getTitle());
+        assertEquals("com.demo.androidtest.feature.settings.SettingsMonitorActivity",
+                snapshot.items.get(1).getActivityClass());
+    }
+
+    @Test
+    public void rejectsMissingOrTruncatedFiles() throws IOException {
+        File file = new File(mTemp.getRoot(), "catalog.snapshot");
+        assertNull(TestCatalogSnapshot.read(file));
+        List<TestItem> items = new ArrayList<>();
+        items.add(new TestItem("Information", "x.Y"));
+        new TestCatalogSnapshot(1, 2, items).write(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+        assertNull(TestCatalogSnapshot.read(file));
+    }
+
+    @Test
+    public void rejectsCorruptPayloadWithoutHugeAllocation() throws IOException {
+        File file = new File(mTemp.getRoot(), "catalog.snapshot");
+        List<TestItem> items = new ArrayList<>();
+        items.add(new TestItem("Information", "x.Y"));
+        new TestCatalogSnapshot(1, 2, items).write(file);
+        // count改为接近2^31（头部：magic 4 + version 2 + assetCrc 4 + apkStamp 8 + payloadCrc 4）
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(22);
+            raf.writeInt(0x7FFFFFF0);
+        }
+        assertNull(TestCatalogSnapshot.read(file));
+        // 负载内容被改动
+        new TestCatalogSnapshot(1, 2, items).write(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write('Z');
+        }
+        assertNull(TestCatalogSnapshot.read(file));
+    }
+}
@@ -0,0 +1,52 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * InternTable 容量上限与代际淘汰单元测试
+ */
+public class InternTableTest {
+
+    @Test
+    public void internReturnsSameIdWithinGeneration() {
+        InternTable table = new InternTable(4, 16);
+        assertEquals(0, table.intern(null));
+        assertNull(table.get(0));
+        int id = table.intern("a");
+        assertEquals(id, table.intern("a"));
+        assertEquals("a", table.get(id));
+    }
+
+    @Test
+    public void oldestEntriesAreEvictedAtCapacity() {
+        InternTable table = new InternTable(4, 16);
+        int first = table.intern("v0");
+        for (int i = 1; i < 40; i++) {
+            table.intern("v" + i);
+        }
+        // 只保留最近16个条目
+        assertNull(table.get(first));
+        assertEquals(16, table.size());
+        assertEquals("v39", table.get(table.intern("v39")));
+    }
+
+    @Test
+    public void previousGenerationIsPromotedToNewId() {
+        InternTable table = new InternTable(4, 16);
+        int old = table.intern("keep");
+        for (int i = 0; i < 9; i++) {
+            table.intern("v" + i);
+        }
+        // 已超过半个容量：重新驻留时分配新编号，之后容量/2次分配内仍可读
+        int promoted = table.intern("keep");
+        assertNotEquals(old, promoted);
+        for (int i = 9; i < 16; i++) {
+            table.intern("v" + i);
+        }
+        assertEquals(promoted, table.intern("keep"));
+        table.intern("v16");
+        assertEquals("keep", table.get(promoted));
+    }
+}
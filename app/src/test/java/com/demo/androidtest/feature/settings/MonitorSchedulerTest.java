@@ -0,0 +1,75 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * MonitorScheduler 合并调度单元测试
+ */
+public class MonitorSchedulerTest {
+    private final List<String> mRuns = new ArrayList<>();
+
+    private MonitorScheduler.Task task(String name, long nextDelay) {
+        return now -> {
+            mRuns.add(name + "@" + now);
+            return nextDelay;
+        };
+    }
+
+    @Test
+    public void wakesAtEarliestDeadlineAndBatchesOpenWindows() {
+        MonitorScheduler scheduler = new MonitorScheduler();
+        scheduler.schedule(task("commit", -1), 0, 1000, 1000);
+        scheduler.schedule(task("notify", -1), 0, 1500, 60_000);
+        // 最早的最迟时间是commit的2000
+        assertEquals(2000, scheduler.nextWakeDelay(0));
+        // 2000时两个任务的窗口都已开始，一次唤醒全部执行
+        assertEquals(2, scheduler.runDue(2000));
+        assertEquals(2, mRuns.size());
+        assertEquals(-1, scheduler.nextWakeDelay(2000));
+        assertEquals(1, scheduler.getRunCount());
+    }
+
+    @Test
+    public void windowNotStartedIsNotRun() {
+        MonitorScheduler scheduler = new MonitorScheduler();
+        MonitorScheduler.Task task = task("a", -1);
+        scheduler.schedule(task, 0, 1000, 500);
+        assertEquals(0, scheduler.runDue(999));
+        assertTrue(mRuns.isEmpty());
+        assertTrue(scheduler.isScheduled(task));
+        assertEquals(501, scheduler.nextWakeDelay(999));
+    }
+
+    @Test
+    public void periodicTaskKeepsItsSlack() {
+        MonitorScheduler scheduler = new MonitorScheduler();
+        MonitorScheduler.Task periodic = task("p", 100);
+        scheduler.schedule(periodic, 0, 100, 50);
+        scheduler.runDue(120);
+        assertTrue(scheduler.isScheduled(periodic));
+        // 下次窗口 [220, 270]
+        assertEquals(150, scheduler.nextWakeDelay(120));
+        assertEquals(0, scheduler.runDue(219));
+        assertEquals(1, scheduler.runDue(220));
+    }
+
+    @Test
+    public void rescheduleNeverPostponesExistingWindow() {
+        MonitorScheduler scheduler = new MonitorScheduler();
+        MonitorScheduler.Task commit = task("commit", -1);
+        scheduler.schedule(commit, 0, 1000, 0);
+        scheduler.schedule(commit, 500, 1000, 0);
+        assertEquals(1000, scheduler.nextWakeDelay(0));
+        // 更早的窗口会替换
+        scheduler.schedule(commit, 0, 200, 0);
+        assertEquals(200, scheduler.nextWakeDelay(0));
+        scheduler.cancel(commit);
+        assertFalse(scheduler.isScheduled(commit));
+        assertEquals(-1, scheduler.nextWakeDelay(0));
+    }
+}
@@ -0,0 +1,31 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * RecordTimeFormatter 与 SimpleDateFormat 输出一致性测试
+ */
+public class RecordTimeFormatterTest {
+
+    @Test
+    public void matchesSimpleDateFormat() {
+        SimpleDateFormat dateTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+        RecordTimeFormatter formatter = new RecordTimeFormatter();
+        StringBuilder sb = new StringBuilder();
+        long start = 1_700_000_000_000L;
+        // 跨多个小时，每次前进约7分钟
+        for (long millis = start; millis < start + 6 * 3600_000L; millis += 419_123L) {
+            sb.setLength(0);
+            assertEquals(dateTime.format(new Date(millis)), formatter.appendDateTime(sb, millis).toString());
+            sb.setLength(0);
+            assertEquals(time.format(new Date(millis)), formatter.appendTime(sb, millis).toString());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsChangeCoalescer 突发合并单元测试
+ */
+public class SettingsChangeCoalescerTest {
+    private static final int BRIGHTNESS = 0;
+    private static final int FONT_SCALE = 1;
+
+    private final List<SettingsChangeCoalescer.Burst> mClosed = new ArrayList<>();
+    private final SettingsChangeCoalescer.Sink mSink = mClosed::add;
+
+    @Test
+    public void foldsEventsWithinWindow() {
+        SettingsChangeCoalescer coalescer = new SettingsChangeCoalescer(100, 10_000);
+        assertTrue(coalescer.onEvent(BRIGHTNESS, 0, mSink).isNew());
+        for (int t = 10; t <= 500; t += 10) {
+            assertFalse(coalescer.onEvent(BRIGHTNESS, t, mSink).isNew());
+        }
+        assertEquals(0, coalescer.flushExpired(550, mSink));
+        assertEquals(1, coalescer.flushExpired(600, mSink));
+
+        SettingsChangeCoalescer.Burst burst = mClosed.get(0);
+        assertEquals(51, burst.eventCount);
+        assertEquals(0, burst.firstTime);
+        assertEquals(500, burst.lastTime);
+        assertEquals(51, coalescer.getRawEventCount());
+        assertEquals(1, coalescer.getEmittedCount());
+    }
+
+    @Test
+    public void gapLongerThanWindowStartsNewBurst() {
+        SettingsChangeCoalescer coalescer = new SettingsChangeCoalescer(100, 10_000);
+        coalescer.onEvent(FONT_SCALE, 0, mSink);
+        assertTrue(coalescer.onEvent(FONT_SCALE, 500, mSink).isNew());
+        assertEquals(1, mClosed.size());
+        assertEquals(1, mClosed.get(0).eventCount);
+    }
+
+    @Test
+    public void maxSpanSplitsContinuousDrag() {
+        SettingsChangeCoalescer coalescer = new SettingsChangeCoalescer(100, 1000);
+        for (int t = 0; t <= 2500; t += 50) {
+            coalescer.onEvent(BRIGHTNESS, t, mSink);
+        }
+        coalescer.flushAll(mSink);
+        assertEquals(3, mClosed.size());
+        int total = 0;
+        for (SettingsChangeCoalescer.Burst burst : mClosed) total += burst.eventCount;
+        assertEquals(51, total);
+    }
+
+    @Test
+    public void fieldsAreCoalescedIndependently() {
+        SettingsChangeCoalescer coalescer = new SettingsChangeCoalescer(100, 10_000);
+        coalescer.onEvent(BRIGHTNESS, 0, mSink);
+        coalescer.onEvent(FONT_SCALE, 20, mSink);
+        coalescer.onEvent(BRIGHTNESS, 40, mSink);
+        assertEquals(120, coalescer.nextDeadlineDelay(0));
+        coalescer.flushExpired(1000, mSink);
+        assertEquals(2, mClosed.size());
+        assertEquals(BRIGHTNESS, mClosed.get(0).fieldId);
+        assertEquals(2, mClosed.get(0).eventCount);
+    }
+
+    @Test
+    public void rampPastMaxSpanKeepsFinalValueOfEachBurst() {
+        // 亮度每100ms加1（值 = 时间/100），消费线程每批处理500ms内的事件，批次处理时事件均已生效
+        SettingsChangeCoalescer coalescer = new SettingsChangeCoalescer(300, 2000);
+        long[] current = new long[1];
+        SettingsChangeCoalescer.ValueReader reader = fieldId -> current[0];
+        List<long[]> records = new ArrayList<>();
+        SettingsChangeCoalescer.Sink sink = burst -> records.add(
+                new long[]{burst.firstTime, burst.lastTime, burst.firstValue, burst.finalValue(reader)});
+        for (long batchStart = 0; batchStart <= 3000; batchStart += 500) {
+            long batchEnd = Math.min(batchStart + 400, 3000);
+            current[0] = batchEnd / 100;
+            for (long t = batchStart; t <= batchEnd; t += 100) {
+                coalescer.notePending(BRIGHTNESS);
+            }
+            for (long t = batchStart; t <= batchEnd; t += 100) {
+                coalescer.flushExpired(t, sink);
+                SettingsChangeCoalescer.Burst burst = coalescer.onEvent(BRIGHTNESS, t, sink);
+                if (burst.isNew()) {
+                    burst.firstValue = reader.read(BRIGHTNESS);
+                    burst.lastValue = burst.firstValue;
+                }
+            }
+            coalescer.refreshLastValues(reader);
+        }
+        coalescer.flushAll(sink);
+
+        assertEquals(2, records.size());
+        // 第一段在2000ms处被跨度上限切分：最终值为上一批次结束时的值，不含切分事件的修改
+        assertArrayEquals(new long[]{0, 1900, 4, 19}, records.get(0));
+        assertArrayEquals(new long[]{2000, 3000, 24, 30}, records.get(1));
+    }
+
+    @Test
+    public void burstClosedWithoutLaterEventsReadsCurrentValue() {
+        SettingsChangeCoalescer coalescer = new SettingsChangeCoalescer(100, 10_000);
+        coalescer.notePending(BRIGHTNESS);
+        coalescer.notePending(BRIGHTNESS);
+        coalescer.onEvent(BRIGHTNESS, 0, mSink).firstValue = 1;
+        coalescer.onEvent(BRIGHTNESS, 50, mSink);
+        coalescer.flushExpired(1000, mSink);
+        assertFalse(mClosed.get(0).superseded);
+        assertEquals(7, mClosed.get(0).finalValue(fieldId -> 7));
+    }
+}
@@ -0,0 +1,99 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsChangeStats 流式统计单元测试：分钟窗口滚动、Top-K、值分桶
+ */
+public class SettingsChangeStatsTest {
+    private static final long MINUTE = 60_000;
+    private static final MonitoredField BRIGHTNESS = new MonitoredField(0, MonitoredField.Namespace.SYSTEM,
+            "screen_brightness", MonitoredField.ValueType.INT, "屏幕亮度", "");
+    private static final MonitoredField TIMEOUT = new MonitoredField(1, MonitoredField.Namespace.SYSTEM,
+            "screen_off_timeout", MonitoredField.ValueType.INT, "屏幕超时", "");
+
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+
+    private void add(SettingsChangeStats stats, MonitoredField field, long value, String pkg, long time) {
+        stats.add(mRecord.set(field, 0, value, pkg, time, time, 1));
+    }
+
+    @Test
+    public void countsPerFieldPerMinuteAndRollsOver() {
+        SettingsChangeStats stats = new SettingsChangeStats();
+        long base = 1000 * MINUTE;
+        add(stats, BRIGHTNESS, 10, "com.demo.a", base);
+        add(stats, BRIGHTNESS, 20, "com.demo.a", base + 1000);
+        add(stats, TIMEOUT, 30_000, "com.demo.b", base + 2 * MINUTE);
+        SettingsChangeStats.Summary summary = new SettingsChangeStats.Summary();
+        stats.snapshot(base + 2 * MINUTE, summary);
+        assertEquals(2, summary.rows);
+        assertEquals(BRIGHTNESS, summary.rowFields[0]);
+        assertEquals(2, summary.cell(0, 2));
+        assertEquals(1, summary.cell(1, 0));
+        assertEquals(2, summary.maxCell);
+
+        // 一小时后，同一分钟槽位被新的分钟复用，旧计数清零
+        add(stats, TIMEOUT, 60_000, "com.demo.b", base + SettingsChangeStats.WINDOW_MINUTES * MINUTE);
+        stats.snapshot(base + SettingsChangeStats.WINDOW_MINUTES * MINUTE, summary);
+        assertEquals(1, summary.rows);
+        assertEquals(TIMEOUT, summary.rowFields[0]);
+        assertEquals(1, summary.cell(0, 0));
+        assertEquals(1, summary.cell(0, SettingsChangeStats.WINDOW_MINUTES - 2));
+        assertEquals(2, summary.rowTotals[0]);
+        // 已滚出窗口的迟到记录不计入分钟计数，但计入总数
+        add(stats, BRIGHTNESS, 10, "com.demo.a", base);
+        stats.snapshot(base + SettingsChangeStats.WINDOW_MINUTES * MINUTE, summary);
+        assertEquals(1, summary.rows);
+        assertEquals(5, summary.total);
+    }
+
+    @Test
+    public void topKKeepsHeavyHitters() {
+        SettingsChangeStats stats = new SettingsChangeStats();
+        for (int i = 0; i < 1000; i++) {
+            add(stats, BRIGHTNESS, 1, "com.demo.heavy", i);
+            add(stats, BRIGHTNESS, 1, "com.demo.noise" + i, i);
+            if (i % 2 == 0) add(stats, BRIGHTNESS, 1, null, i);
+        }
+        SettingsChangeStats.Summary summary = new SettingsChangeStats.Summary();
+        stats.snapshot(1000, summary);
+        assertEquals(SettingsChangeStats.TOP_K, summary.topSize);
+        assertEquals("com.demo.heavy", summary.topKeys[0]);
+        assertEquals(1000, summary.topCounts[0] - summary.topErrors[0]);
+        assertEquals(SettingsChangeStats.UNKNOWN_PKG, summary.topKeys[1]);
+        for (int i = 1; i < summary.topSize; i++) {
+            assertTrue(summary.topCounts[i - 1] >= summary.topCounts[i]);
+        }
+    }
+
+    @Test
+    public void bucketsCoverValuesContiguously() {
+        assertEquals(0, SettingsChangeStats.bucketOf(0));
+        assertEquals(0, SettingsChangeStats.bucketOf(-5));
+        long expectedLow = 1;
+        for (int bucket = 1; bucket < SettingsChangeStats.HISTOGRAM_BUCKETS; bucket++) {
+            long low = SettingsChangeStats.bucketLow(bucket);
+            long high = SettingsChangeStats.bucketHigh(bucket);
+            // 1、2、3只有1或2个桶可用，其余档位为空区间
+            if (high < low) continue;
+            assertEquals(expectedLow, low);
+            assertEquals(bucket, SettingsChangeStats.bucketOf(low));
+            assertEquals(bucket, SettingsChangeStats.bucketOf(high));
+            expectedLow = high + 1;
+        }
+        assertEquals(Long.MIN_VALUE, expectedLow);
+
+        SettingsChangeStats stats = new SettingsChangeStats();
+        add(stats, BRIGHTNESS, 128, null, 0);
+        add(stats, BRIGHTNESS, 130, null, 0);
+        add(stats, TIMEOUT, 30_000, null, 0);
+        SettingsChangeStats.Summary summary = new SettingsChangeStats.Summary();
+        stats.snapshot(0, summary);
+        assertEquals(2, summary.histogramCount);
+        assertEquals(2, summary.histogram(0, SettingsChangeStats.bucketOf(128)));
+        assertEquals(1, summary.histogram(1, SettingsChangeStats.bucketOf(30_000)));
+    }
+}
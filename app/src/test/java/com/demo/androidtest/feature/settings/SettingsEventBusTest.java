@@ -0,0 +1,136 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsEventBus 单元测试：背压策略、分批投递、取消订阅、慢订阅者不阻塞发布
+ */
+public class SettingsEventBusTest {
+
+    /**
+     * 手动执行的Executor：模拟忙碌的投递线程
+     */
+    private static final class ManualExecutor implements java.util.concurrent.Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    @Test
+    public void appliesPolicyPerSubscriber() {
+        SettingsEventBus bus = new SettingsEventBus();
+        ManualExecutor executor = new ManualExecutor();
+        List<Long> conflated = new ArrayList<>();
+        List<Long> buffered = new ArrayList<>();
+        List<Long> dropped = new ArrayList<>();
+        List<Long> direct = new ArrayList<>();
+        SettingsEventBus.Subscriber conflateSubscriber = conflated::add;
+        SettingsEventBus.Subscriber bufferSubscriber = buffered::add;
+        SettingsEventBus.Subscriber dropSubscriber = dropped::add;
+        SettingsEventBus.Subscriber directSubscriber = direct::add;
+        SettingsEventBus.Subscription conflate = bus.subscribe(conflateSubscriber, executor,
+                SettingsEventBus.Policy.CONFLATE, 0);
+        SettingsEventBus.Subscription buffer = bus.subscribe(bufferSubscriber, executor,
+                SettingsEventBus.Policy.BUFFER, 4);
+        SettingsEventBus.Subscription drop = bus.subscribe(dropSubscriber, executor,
+                SettingsEventBus.Policy.DROP, 4);
+        bus.subscribe(directSubscriber, Runnable::run, SettingsEventBus.Policy.BUFFER, 1);
+        for (long seq = 0; seq < 10; seq++) {
+            bus.publish(seq);
+        }
+        // 每个订阅只提交一次投递
+        assertEquals(3, executor.tasks.size());
+        executor.runAll();
+        assertEquals(listOf(9), conflated);
+        assertEquals(listOf(6, 7, 8, 9), buffered);
+        assertEquals(listOf(0, 1, 2, 3), dropped);
+        assertEquals(10, direct.size());
+        assertEquals(9, conflate.droppedCount());
+        assertEquals(6, buffer.droppedCount());
+        assertEquals(6, drop.droppedCount());
+
+        drop.unsubscribe();
+        bus.publish(10);
+        executor.runAll();
+        assertEquals(4, dropped.size());
+        assertEquals(3, bus.subscriberCount());
+    }
+
+    @Test
+    public void yieldsExecutorAfterBatch() {
+        SettingsEventBus bus = new SettingsEventBus();
+        ManualExecutor executor = new ManualExecutor();
+        List<Long> received = new ArrayList<>();
+        SettingsEventBus.Subscriber subscriber = received::add;
+        bus.subscribe(subscriber, executor, SettingsEventBus.Policy.BUFFER, 1000);
+        for (long seq = 0; seq < 200; seq++) {
+            bus.publish(seq);
+        }
+        executor.tasks.poll().run();
+        assertEquals(SettingsEventBus.MAX_DELIVERIES_PER_RUN, received.size());
+        // 剩余事件重新提交
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(200, received.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, (long) received.get(i));
+        }
+    }
+
+    @Test
+    public void slowSubscriberDoesNotBlockPublisher() throws InterruptedException {
+        SettingsEventBus bus = new SettingsEventBus();
+        ExecutorService slowExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService fastExecutor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1000);
+        SettingsEventBus.Subscriber slow = seq -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        SettingsEventBus.Subscriber fast = seq -> fastDone.countDown();
+        SettingsEventBus.Subscription slowSubscription = bus.subscribe(slow, slowExecutor,
+                SettingsEventBus.Policy.CONFLATE, 0);
+        bus.subscribe(fast, fastExecutor, SettingsEventBus.Policy.BUFFER, 1000);
+        try {
+            for (long seq = 0; seq < 1000; seq++) {
+                bus.publish(seq);
+            }
+            // 慢订阅者阻塞期间，快订阅者仍收到全部事件
+            assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+            assertTrue(slowSubscription.droppedCount() > 0);
+        } finally {
+            release.countDown();
+            slowExecutor.shutdown();
+            fastExecutor.shutdown();
+        }
+    }
+
+    private static List<Long> listOf(long... values) {
+        List<Long> list = new ArrayList<>();
+        for (long value : values) list.add(value);
+        return list;
+    }
+}
@@ -0,0 +1,169 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsExportStream 导出协议单元测试（记录来自真实的日志文件）
+ */
+public class SettingsExportStreamTest {
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    private static final MonitoredField BRIGHTNESS = new MonitoredField(0, MonitoredField.Namespace.SYSTEM,
+            "screen_brightness", MonitoredField.ValueType.INT, "屏幕亮度", "");
+    // 不在注册表中的字段同样导出
+    private static final MonitoredField UNKNOWN = new MonitoredField(1, MonitoredField.Namespace.GLOBAL,
+            "some_key", MonitoredField.ValueType.STRING, "some_key", "");
+
+    private SettingsRecordJournal mJournal;
+
+    /**
+     * 直接读取日志；等待新记录时视为服务停止
+     */
+    private final SettingsExportStream.Source mSource = new SettingsExportStream.Source() {
+        @Override
+        public void read(long fromSeq, SettingsRecordJournal.RawVisitor visitor) throws IOException {
+            mJournal.readRaw(fromSeq, visitor);
+        }
+
+        @Override
+        public long awaitCommitted(long seq, long timeoutMs) throws InterruptedException {
+            if (timeoutMs > 0) throw new InterruptedException();
+            return mJournal.committedSequence();
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        InternTable strings = new InternTable();
+        mJournal = new SettingsRecordJournal(mTemp.newFolder(),
+                new SettingsFieldRegistry(Collections.singletonList(BRIGHTNESS)), strings);
+        mJournal.open();
+        for (int i = 0; i < 10; i++) {
+            mJournal.append(new SettingsChangeRecord(BRIGHTNESS, i - 1, i, "com.example", 1000 + i, 1010 + i, 2));
+        }
+        mJournal.append(new SettingsChangeRecord(UNKNOWN, MonitoredField.VALUE_MISSING, strings.intern("v"),
+                null, 2000, 2000, 1));
+        mJournal.commit();
+    }
+
+    private static byte[] request(long since, int... credits) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SettingsExportStream.MAGIC);
+        out.writeLong(since);
+        for (int credit : credits) out.writeInt(credit);
+        return bytes.toByteArray();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * 解析帧：记录帧为 "序号:键=值"，追平帧为 "caught-up@下一序号"
+     */
+    private static List<String> frames(byte[] output) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(output));
+        List<String> frames = new ArrayList<>();
+        while (in.available() > 0) {
+            int length = in.readInt();
+            byte[] frame = new byte[length];
+            in.readFully(frame);
+            DataInputStream f = new DataInputStream(new ByteArrayInputStream(frame));
+            byte type = f.readByte();
+            if (type == SettingsExportStream.FRAME_CAUGHT_UP) {
+                frames.add("caught-up@" + f.readLong());
+                continue;
+            }
+            long seq = f.readLong();
+            String key = readString(f);
+            boolean isString = f.readByte() == MonitoredField.ValueType.STRING.ordinal();
+            String value;
+            if (isString) {
+                readString(f);
+                value = readString(f);
+            } else {
+                f.readLong();
+                value = String.valueOf(f.readLong());
+            }
+            readString(f);
+            f.readLong();
+            f.readLong();
+            f.readInt();
+            f.readLong();
+            assertEquals(0, f.available());
+            frames.add(seq + ":" + key + "=" + value);
+        }
+        return frames;
+    }
+
+    @Test
+    public void resumesFromSequenceAndReportsCaughtUp() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsExportStream stream = new SettingsExportStream(mSource,
+                new ByteArrayInputStream(request(8, 100)), out);
+        try {
+            stream.run();
+            fail("expected the session to stop while waiting");
+        } catch (InterruptedException expected) {
+        }
+        assertEquals(3, stream.getSentCount());
+        assertEquals(Arrays.asList(
+                "8:system:screen_brightness=8",
+                "9:system:screen_brightness=9",
+                "10:global:some_key=v",
+                "caught-up@11"), frames(out.toByteArray()));
+    }
+
+    @Test
+    public void stopsSendingWhenCreditRunsOut() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 初始额度4，之后客户端不再追加：发送4条后阻塞读取额度（此处为流结束）
+        SettingsExportStream stream = new SettingsExportStream(mSource,
+                new ByteArrayInputStream(request(0, 4)), out);
+        try {
+            stream.run();
+            fail("expected EOF while waiting for credit");
+        } catch (EOFException expected) {
+        }
+        List<String> frames = frames(out.toByteArray());
+        assertEquals(4, frames.size());
+        assertEquals("3:system:screen_brightness=3", frames.get(3));
+    }
+
+    @Test
+    public void additionalCreditContinuesStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsExportStream stream = new SettingsExportStream(mSource,
+                new ByteArrayInputStream(request(0, 4, 3, 100)), out);
+        try {
+            stream.run();
+        } catch (InterruptedException expected) {
+        }
+        assertEquals(11, stream.getSentCount());
+        List<String> frames = frames(out.toByteArray());
+        assertEquals("caught-up@11", frames.get(frames.size() - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsBadHandshake() throws Exception {
+        new SettingsExportStream(mSource, new ByteArrayInputStream(new byte[12]), new ByteArrayOutputStream()).run();
+    }
+}
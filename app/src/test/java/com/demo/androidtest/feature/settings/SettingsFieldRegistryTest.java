@@ -0,0 +1,62 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsFieldRegistry URI解析单元测试
+ */
+public class SettingsFieldRegistryTest {
+    private static SettingsFieldRegistry registry() {
+        List<MonitoredField> fields = new ArrayList<>(SettingsFieldRegistry.defaultFields());
+        fields.add(new MonitoredField(3, MonitoredField.Namespace.GLOBAL, "airplane_mode_on",
+                MonitoredField.ValueType.INT, "飞行模式", ""));
+        return new SettingsFieldRegistry(fields);
+    }
+
+    @Test
+    public void resolvesWatchedKeysPerNamespace() {
+        SettingsFieldRegistry registry = registry();
+        assertEquals(0, registry.findIdByUri(MonitoredField.Namespace.SYSTEM,
+                "content://settings/system/screen_brightness"));
+        assertEquals(2, registry.findIdByUri(MonitoredField.Namespace.SYSTEM,
+                "content://settings/system/screen_off_timeout"));
+        assertEquals(3, registry.findIdByUri(MonitoredField.Namespace.GLOBAL,
+                "content://settings/global/airplane_mode_on"));
+        assertTrue(registry.hasFields(MonitoredField.Namespace.GLOBAL));
+        assertFalse(registry.hasFields(MonitoredField.Namespace.SECURE));
+    }
+
+    @Test
+    public void dropsUnwatchedAndMalformedUris() {
+        SettingsFieldRegistry registry = registry();
+        MonitoredField.Namespace system = MonitoredField.Namespace.SYSTEM;
+        assertEquals(-1, registry.findIdByUri(system, "content://settings/system/screen_brightness_mode"));
+        assertEquals(-1, registry.findIdByUri(system, "content://settings/system/screen_brightnes"));
+        assertEquals(-1, registry.findIdByUri(system, "content://settings/system"));
+        assertEquals(-1, registry.findIdByUri(system, "content://settings/system/"));
+        assertEquals(-1, registry.findIdByUri(system, "content://settings/system/screen_brightness/1"));
+        // 键存在于其他命名空间
+        assertEquals(-1, registry.findIdByUri(system, "content://settings/global/airplane_mode_on"));
+        assertEquals(-1, registry.findIdByUri(MonitoredField.Namespace.GLOBAL,
+                "content://settings/global/screen_brightness"));
+        assertEquals(-1, registry.findIdByUri(system, null));
+    }
+
+    @Test
+    public void duplicateKeysResolveToFirstDeclaration() {
+        List<MonitoredField> fields = new ArrayList<>(SettingsFieldRegistry.defaultFields());
+        fields.add(new MonitoredField(3, MonitoredField.Namespace.SYSTEM, "screen_brightness",
+                MonitoredField.ValueType.STRING, "亮度（重复）", ""));
+        SettingsFieldRegistry registry = new SettingsFieldRegistry(fields);
+        // URI解析与按键查找一致地返回第一个声明
+        assertEquals(0, registry.findIdByUri(MonitoredField.Namespace.SYSTEM,
+                "content://settings/system/screen_brightness"));
+        assertEquals(0, registry.findByQualifiedKey(
+                fields.get(0).qualifiedKey()).id);
+    }
+}
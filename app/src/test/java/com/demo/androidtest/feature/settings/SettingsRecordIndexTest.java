@@ -0,0 +1,105 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsRecordIndex 二级索引单元测试：结果与逐条扫描一致
+ */
+public class SettingsRecordIndexTest {
+    private static final MonitoredField[] FIELDS = {
+            new MonitoredField(0, MonitoredField.Namespace.SYSTEM, "screen_brightness",
+                    MonitoredField.ValueType.INT, "屏幕亮度", ""),
+            new MonitoredField(1, MonitoredField.Namespace.SYSTEM, "screen_off_timeout",
+                    MonitoredField.ValueType.INT, "屏幕超时", ""),
+            new MonitoredField(7, MonitoredField.Namespace.GLOBAL, "airplane_mode_on",
+                    MonitoredField.ValueType.INT, "飞行模式", ""),
+    };
+    private static final String[] PACKAGES = {"com.demo.a", "com.demo.b", "com.demo.c", null};
+
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+
+    private void append(SettingsRecordTable table, int field, int pkg, long time) {
+        table.append(mRecord.set(FIELDS[field], 0, 1, PACKAGES[pkg], time, time, 1));
+    }
+
+    /**
+     * 逐条扫描的参照结果
+     */
+    private static int scan(SettingsRecordTable table, SettingsRecordIndex.Query query) {
+        SettingsRecordTable.Snapshot snapshot = table.snapshot();
+        SettingsChangeRecord record = new SettingsChangeRecord();
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (!snapshot.get(i, record)) continue;
+            if (query.field != null && record.field != query.field) continue;
+            if (query.modifierPkg != null && !query.modifierPkg.equals(record.modifierPkg)) continue;
+            if (record.time < query.fromTime || record.time > query.toTime) continue;
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void filtersByFieldPackageAndTime() {
+        SettingsRecordTable table = new SettingsRecordTable(64, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        for (int i = 0; i < 30; i++) {
+            append(table, i % 3, i % 4, 1000 + i * 10);
+        }
+        SettingsRecordIndex index = table.index();
+        SettingsRecordIndex.Query query = new SettingsRecordIndex.Query();
+        assertEquals(30, index.count(query));
+        assertEquals(10, index.count(query.field(FIELDS[1])));
+        // 字段1的记录下标为1,4,7,...，其中包名为com.demo.b（下标%4==1）的是1,13,25
+        assertEquals(3, index.count(query.modifierPkg("com.demo.b")));
+        long[] seqs = new long[8];
+        assertEquals(3, index.select(query, seqs));
+        assertArrayEquals(new long[]{25, 13, 1}, Arrays.copyOf(seqs, 3));
+        // 时间区间含两端：1130..1250 → 下标13,25
+        assertEquals(2, index.count(query.timeRange(1130, 1250)));
+        assertEquals(0, index.count(query.reset().modifierPkg("com.unknown")));
+        assertEquals("screen_off_timeout", index.findField("屏幕超时").key);
+    }
+
+    @Test
+    public void dropsOverwrittenAndClearedRecords() {
+        SettingsRecordTable table = new SettingsRecordTable(16, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        for (int i = 0; i < 100; i++) {
+            append(table, 0, i < 90 ? 0 : 1, i);
+        }
+        SettingsRecordIndex index = table.index();
+        SettingsRecordIndex.Query query = new SettingsRecordIndex.Query();
+        assertEquals(16, index.count(query.field(FIELDS[0])));
+        assertEquals(6, index.count(query.reset().modifierPkg("com.demo.a")));
+        table.clear();
+        assertEquals(0, index.count(query));
+        append(table, 0, 0, 200);
+        assertEquals(1, index.count(query));
+    }
+
+    @Test
+    public void outOfOrderTimesMatchLinearScan() {
+        SettingsRecordTable table = new SettingsRecordTable(4096, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            // 时间大体递增，偶有回退（合并窗口内乱序关闭）
+            append(table, random.nextInt(3), random.nextInt(4), i * 10L - random.nextInt(50));
+        }
+        SettingsRecordIndex index = table.index();
+        SettingsRecordIndex.Query query = new SettingsRecordIndex.Query();
+        for (int trial = 0; trial < 200; trial++) {
+            query.reset();
+            if (random.nextBoolean()) query.field(FIELDS[random.nextInt(3)]);
+            if (random.nextBoolean()) query.modifierPkg(PACKAGES[random.nextInt(3)]);
+            if (random.nextBoolean()) {
+                long from = 60_000 + random.nextInt(40_000);
+                query.timeRange(from, from + random.nextInt(20_000));
+            }
+            assertEquals(scan(table, query), index.count(query));
+        }
+    }
+}
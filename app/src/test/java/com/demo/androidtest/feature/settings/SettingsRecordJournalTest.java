@@ -0,0 +1,167 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsRecordJournal 持久化日志单元测试
+ */
+public class SettingsRecordJournalTest {
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    private static final MonitoredField BRIGHTNESS = new MonitoredField(0, MonitoredField.Namespace.SYSTEM,
+            "screen_brightness", MonitoredField.ValueType.INT, "屏幕亮度", "");
+    private static final MonitoredField INPUT_METHOD = new MonitoredField(1, MonitoredField.Namespace.SECURE,
+            "default_input_method", MonitoredField.ValueType.STRING, "默认输入法", "");
+    private static final SettingsFieldRegistry REGISTRY =
+            new SettingsFieldRegistry(Arrays.asList(BRIGHTNESS, INPUT_METHOD));
+
+    private final InternTable mStrings = new InternTable();
+
+    private SettingsRecordJournal journal(File dir) {
+        return new SettingsRecordJournal(dir, REGISTRY, mStrings);
+    }
+
+    private static SettingsChangeRecord record(int value, long time) {
+        return new SettingsChangeRecord(BRIGHTNESS, value - 1, value,
+                "com.example", time - 10, time, 3);
+    }
+
+    private static List<SettingsChangeRecord> replayAll(SettingsRecordJournal journal, long from)
+            throws IOException {
+        List<SettingsChangeRecord> records = new ArrayList<>();
+        journal.replay(from, (seq, r) -> records.add(r));
+        return records;
+    }
+
+    @Test
+    public void roundTripsRecordsAcrossReopen() throws IOException {
+        File dir = mTemp.newFolder();
+        SettingsRecordJournal journal = journal(dir);
+        journal.open();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, journal.append(record(i, 1_700_000_000_000L + i * 1000)));
+        }
+        journal.close();
+
+        SettingsRecordJournal reopened = journal(dir);
+        reopened.open();
+        assertEquals(100, reopened.nextSequence());
+        List<SettingsChangeRecord> records = replayAll(reopened, 90);
+        assertEquals(10, records.size());
+        SettingsChangeRecord last = records.get(9);
+        assertEquals(99, last.value);
+        assertEquals(98, last.firstValue);
+        assertEquals("com.example", last.modifierPkg);
+        assertEquals(1_700_000_000_000L + 99_000, last.time);
+        assertEquals(10, last.spanMillis());
+        assertEquals(3, last.eventCount);
+        // 追加时继续使用恢复后的字典和时间基准
+        reopened.append(record(100, 1_700_000_200_000L));
+        reopened.close();
+        assertEquals(101, replayAll(journal(dir), 0).size());
+    }
+
+    @Test
+    public void truncatesTornTail() throws IOException {
+        File dir = mTemp.newFolder();
+        SettingsRecordJournal journal = journal(dir);
+        journal.open();
+        for (int i = 0; i < 10; i++) journal.append(record(i, 1000 + i));
+        journal.close();
+        // 模拟崩溃：截掉最后一帧的一部分
+        File segment = SettingsRecordJournal.listSegments(dir)[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        SettingsRecordJournal recovered = journal(dir);
+        recovered.open();
+        assertEquals(9, recovered.nextSequence());
+        assertEquals(9, recovered.append(record(42, 5000)));
+        recovered.close();
+        List<SettingsChangeRecord> records = replayAll(recovered, 0);
+        assertEquals(10, records.size());
+        assertEquals(42, records.get(9).value);
+    }
+
+    @Test
+    public void rotatesAndRetainsSegments() throws IOException {
+        File dir = mTemp.newFolder();
+        // 段大小取最小值，保留3段
+        SettingsRecordJournal journal = new SettingsRecordJournal(dir, REGISTRY, mStrings, 0, 3, 0);
+        journal.open();
+        for (int i = 0; i < 20_000; i++) journal.append(record(i, 1000L * i));
+        journal.close();
+        File[] segments = SettingsRecordJournal.listSegments(dir);
+        assertEquals(3, segments.length);
+        List<SettingsChangeRecord> records = replayAll(journal, 19_990);
+        assertEquals(10, records.size());
+        assertEquals(19999, records.get(9).value);
+    }
+
+    @Test
+    public void truncatesLongStringsOnCharacterBoundary() throws IOException {
+        File dir = mTemp.newFolder();
+        SettingsRecordJournal journal = journal(dir);
+        journal.open();
+        // 每个汉字3字节，1024字节处落在字符中间
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 400; i++) sb.append('输');
+        String longValue = "a" + sb;
+        String truncated = SettingsRecordJournal.truncateUtf8(longValue, 1024);
+        assertEquals(1 + 341, truncated.length());
+        int raw = mStrings.intern(longValue);
+        journal.append(new SettingsChangeRecord(INPUT_METHOD, raw, raw, "com.example", 900, 1000, 1));
+        journal.append(new SettingsChangeRecord(INPUT_METHOD, raw, raw, "com.example", 1900, 2000, 1));
+        journal.close();
+
+        InternTable strings = new InternTable();
+        List<SettingsChangeRecord> records = new ArrayList<>();
+        new SettingsRecordJournal(dir, REGISTRY, strings).replay(0, (seq, r) -> records.add(r));
+        assertEquals(2, records.size());
+        assertEquals(truncated, strings.get((int) records.get(0).value));
+        assertEquals(records.get(0).value, records.get(1).firstValue);
+        // 代理对不被拆开
+        assertEquals("ab", SettingsRecordJournal.truncateUtf8("ab\uD83D\uDE00", 5));
+    }
+
+    @Test
+    public void roundTripsStringValuesAndSkipsUnknownFields() throws IOException {
+        File dir = mTemp.newFolder();
+        SettingsRecordJournal journal = journal(dir);
+        journal.open();
+        int pinyin = mStrings.intern("com.example.pinyin/.Ime");
+        int latin = mStrings.intern("com.example.latin/.Ime");
+        journal.append(new SettingsChangeRecord(INPUT_METHOD, pinyin, latin,
+                "com.example", 900, 1000, 2));
+        journal.append(record(7, 2000));
+        journal.close();
+
+        // 新的驻留表：回放时字符串重新驻留
+        InternTable strings = new InternTable();
+        List<SettingsChangeRecord> records = new ArrayList<>();
+        new SettingsRecordJournal(dir, REGISTRY, strings).replay(0, (seq, r) -> records.add(r));
+        assertEquals(2, records.size());
+        assertSame(INPUT_METHOD, records.get(0).field);
+        assertEquals("com.example.latin/.Ime", strings.get((int) records.get(0).value));
+        assertEquals("com.example.pinyin/.Ime", strings.get((int) records.get(0).firstValue));
+
+        // 注册表中已移除的字段不回放
+        SettingsFieldRegistry reduced = new SettingsFieldRegistry(Arrays.asList(BRIGHTNESS));
+        records.clear();
+        new SettingsRecordJournal(dir, reduced, strings).replay(0, (seq, r) -> records.add(r));
+        assertEquals(1, records.size());
+        assertEquals(7, records.get(0).value);
+    }
+}
@@ -0,0 +1,97 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsRecordRing 共享内存环单元测试：写者/读者各持一个映射（不同的ByteBuffer视图和驻留表）
+ */
+public class SettingsRecordRingTest {
+    private static final MonitoredField BRIGHTNESS = new MonitoredField(0, MonitoredField.Namespace.SYSTEM,
+            "screen_brightness", MonitoredField.ValueType.INT, "屏幕亮度", "");
+    private static final MonitoredField RINGTONE = new MonitoredField(5, MonitoredField.Namespace.SYSTEM,
+            "ringtone", MonitoredField.ValueType.STRING, "铃声", "");
+
+    private final InternTable mWriterStrings = new InternTable();
+    private final InternTable mReaderStrings = new InternTable();
+    private int mResolveCount;
+
+    private SettingsRecordRing.FieldResolver resolver() {
+        return (fieldId, namespace, key, type) -> {
+            mResolveCount++;
+            // 读者进程的字段编号可以与写者不同
+            return new MonitoredField(100 + fieldId, namespace, key, type, key, "");
+        };
+    }
+
+    @Test
+    public void roundTripsRecordsAcrossMappings() {
+        ByteBuffer shared = ByteBuffer.allocateDirect(SettingsRecordRing.bytesFor(8));
+        SettingsRecordRing writer = SettingsRecordRing.create(shared, 8, 42, mWriterStrings);
+        SettingsRecordRing reader = SettingsRecordRing.attach(shared.duplicate(), resolver(), mReaderStrings);
+        assertEquals(42, reader.ringId());
+        assertEquals(8, reader.capacity());
+
+        SettingsChangeRecord record = new SettingsChangeRecord(BRIGHTNESS, 10, 200, "com.demo.a", 1000, 1500, 3);
+        record.attributionAgeMs = 250;
+        assertEquals(0, writer.append(record));
+        // 超长字符串在字符边界截断
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 60; i++) longValue.append("铃");
+        long first = mWriterStrings.intern("😀旧铃声");
+        long value = mWriterStrings.intern(longValue.toString());
+        assertEquals(1, writer.append(record.set(RINGTONE, first, value, null, 2000, 2000, 1)));
+        writer.setRawEventCount(7);
+        assertEquals(2, reader.sharedHeadSequence());
+        assertEquals(7, reader.rawEventCount());
+
+        SettingsChangeRecord into = new SettingsChangeRecord();
+        assertTrue(reader.read(0, into));
+        assertEquals("screen_brightness", into.field.key);
+        assertEquals(100, into.field.id);
+        assertEquals(10, into.firstValue);
+        assertEquals(200, into.value);
+        assertEquals("com.demo.a", into.modifierPkg);
+        assertEquals(1000, into.firstTime);
+        assertEquals(1500, into.time);
+        assertEquals(3, into.eventCount);
+        assertEquals(250, into.attributionAgeMs);
+
+        assertTrue(reader.read(1, into));
+        assertEquals(MonitoredField.ValueType.STRING, into.field.type);
+        assertNull(into.modifierPkg);
+        assertEquals("😀旧铃声", mReaderStrings.get((int) into.firstValue));
+        String truncated = mReaderStrings.get((int) into.value);
+        // 94字节可容纳31个三字节字符
+        assertEquals(longValue.substring(0, 31), truncated);
+        assertFalse(reader.read(2, into));
+    }
+
+    @Test
+    public void detectsOverwrittenSlotsAndCachesFields() {
+        ByteBuffer shared = ByteBuffer.allocateDirect(SettingsRecordRing.bytesFor(4));
+        SettingsRecordRing writer = SettingsRecordRing.create(shared, 4, 1, mWriterStrings);
+        SettingsRecordRing reader = SettingsRecordRing.attach(shared.duplicate(), resolver(), mReaderStrings);
+        SettingsChangeRecord record = new SettingsChangeRecord();
+        for (int i = 0; i < 10; i++) {
+            writer.append(record.set(BRIGHTNESS, i, i, "com.demo.a", i, i, 1));
+        }
+        SettingsChangeRecord into = new SettingsChangeRecord();
+        for (int seq = 0; seq < 6; seq++) {
+            assertFalse(reader.read(seq, into));
+        }
+        for (int seq = 6; seq < 10; seq++) {
+            assertTrue(reader.read(seq, into));
+            assertEquals(seq, into.value);
+        }
+        assertEquals(1, mResolveCount);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUninitializedBuffer() {
+        SettingsRecordRing.attach(ByteBuffer.allocate(SettingsRecordRing.bytesFor(4)), resolver(), mReaderStrings);
+    }
+}
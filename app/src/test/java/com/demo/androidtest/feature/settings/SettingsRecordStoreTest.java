@@ -0,0 +1,77 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsRecordStore 环形存储单元测试
+ */
+public class SettingsRecordStoreTest {
+
+    private static List<Integer> toList(Iterable<Integer> records) {
+        List<Integer> list = new ArrayList<>();
+        for (Integer r : records) list.add(r);
+        return list;
+    }
+
+    @Test
+    public void iteratesNewestFirst() {
+        SettingsRecordStore<Integer> store =
+                new SettingsRecordStore<>(4, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        store.append(1);
+        store.append(2);
+        store.append(3);
+        assertEquals(3, store.size());
+        assertEquals(Arrays.asList(3, 2, 1), toList(store));
+        assertEquals(Integer.valueOf(3), store.snapshot().get(0));
+    }
+
+    @Test
+    public void overwriteOldestKeepsCapacity() {
+        SettingsRecordStore<Integer> store =
+                new SettingsRecordStore<>(3, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        for (int i = 1; i <= 5; i++) store.append(i);
+        assertEquals(3, store.size());
+        assertEquals(Arrays.asList(5, 4, 3), toList(store));
+    }
+
+    @Test
+    public void dropNewestKeepsHistory() {
+        SettingsRecordStore<Integer> store =
+                new SettingsRecordStore<>(2, SettingsRecordStore.OverwritePolicy.DROP_NEWEST);
+        store.append(1);
+        store.append(2);
+        assertEquals(-1, store.append(3));
+        assertEquals(1, store.droppedCount());
+        assertEquals(Arrays.asList(2, 1), toList(store));
+    }
+
+    @Test
+    public void snapshotIsStableWhileWriterContinues() {
+        SettingsRecordStore<Integer> store =
+                new SettingsRecordStore<>(4, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        for (int i = 1; i <= 4; i++) store.append(i);
+        SettingsRecordStore.Snapshot<Integer> snapshot = store.snapshot();
+        // 覆盖掉快照中最旧的两条
+        store.append(5);
+        store.append(6);
+        assertEquals(Arrays.asList(4, 3), toList(snapshot));
+        assertNull(snapshot.get(3));
+    }
+
+    @Test
+    public void clearHidesOldRecords() {
+        SettingsRecordStore<Integer> store =
+                new SettingsRecordStore<>(4, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        store.append(1);
+        store.clear();
+        assertTrue(store.isEmpty());
+        store.append(2);
+        assertEquals(Arrays.asList(2), toList(store));
+    }
+}
@@ -0,0 +1,104 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsRecordTable 列式存储单元测试
+ */
+public class SettingsRecordTableTest {
+    private static final MonitoredField BRIGHTNESS = new MonitoredField(0, MonitoredField.Namespace.SYSTEM,
+            "screen_brightness", MonitoredField.ValueType.INT, "屏幕亮度", "");
+    private static final MonitoredField FONT_SCALE = new MonitoredField(20, MonitoredField.Namespace.SYSTEM,
+            "font_scale", MonitoredField.ValueType.FLOAT, "字体缩放", "");
+
+    private static List<Long> values(SettingsRecordTable.Snapshot snapshot) {
+        List<Long> list = new ArrayList<>();
+        SettingsChangeRecord record = new SettingsChangeRecord();
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (!snapshot.get(i, record)) break;
+            list.add(record.value);
+        }
+        return list;
+    }
+
+    private static SettingsRecordTable table(int capacity, SettingsRecordStore.OverwritePolicy policy) {
+        return new SettingsRecordTable(capacity, policy);
+    }
+
+    @Test
+    public void roundTripsAllColumns() {
+        SettingsRecordTable table = table(4, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        SettingsChangeRecord record = new SettingsChangeRecord().set(FONT_SCALE,
+                Float.floatToIntBits(1.0f), Float.floatToIntBits(1.3f), "com.demo.a", 1000, 1250, 3);
+        record.attributionAgeMs = 700;
+        long seq = table.append(record);
+        // 载体复用：修改后不影响已写入的记录
+        record.set(BRIGHTNESS, 1, 2, "com.demo.b", 5000, 5000, 1);
+        table.append(record);
+
+        SettingsChangeRecord read = new SettingsChangeRecord();
+        assertTrue(table.read(seq, read));
+        assertSame(FONT_SCALE, read.field);
+        assertEquals(Float.floatToIntBits(1.0f), read.firstValue);
+        assertEquals(Float.floatToIntBits(1.3f), read.value);
+        assertEquals("com.demo.a", read.modifierPkg);
+        assertEquals(1000, read.firstTime);
+        assertEquals(1250, read.time);
+        assertEquals(3, read.eventCount);
+        assertEquals(700, read.attributionAgeMs);
+        assertTrue(table.read(seq + 1, read));
+        assertSame(BRIGHTNESS, read.field);
+        assertEquals(-1, read.attributionAgeMs);
+    }
+
+    @Test
+    public void overwriteOldestKeepsCapacity() {
+        SettingsRecordTable table = table(3, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        SettingsChangeRecord record = new SettingsChangeRecord();
+        for (int i = 1; i <= 5; i++) table.append(record.set(BRIGHTNESS, i, i, null, i, i, 1));
+        assertEquals(3, table.size());
+        assertEquals(Arrays.asList(5L, 4L, 3L), values(table.snapshot()));
+        assertFalse(table.read(0, record));
+    }
+
+    @Test
+    public void dropNewestKeepsHistory() {
+        SettingsRecordTable table = table(2, SettingsRecordStore.OverwritePolicy.DROP_NEWEST);
+        SettingsChangeRecord record = new SettingsChangeRecord();
+        table.append(record.set(BRIGHTNESS, 1, 1, null, 1, 1, 1));
+        table.append(record.set(BRIGHTNESS, 2, 2, null, 2, 2, 1));
+        assertEquals(-1, table.append(record.set(BRIGHTNESS, 3, 3, null, 3, 3, 1)));
+        assertEquals(1, table.droppedCount());
+        assertEquals(Arrays.asList(2L, 1L), values(table.snapshot()));
+    }
+
+    @Test
+    public void snapshotStopsAtOverwrittenRows() {
+        SettingsRecordTable table = table(4, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        SettingsChangeRecord record = new SettingsChangeRecord();
+        for (int i = 1; i <= 4; i++) table.append(record.set(BRIGHTNESS, i, i, null, i, i, 1));
+        SettingsRecordTable.Snapshot snapshot = table.snapshot();
+        // 覆盖掉快照中最旧的两条
+        table.append(record.set(BRIGHTNESS, 5, 5, null, 5, 5, 1));
+        table.append(record.set(BRIGHTNESS, 6, 6, null, 6, 6, 1));
+        assertEquals(Arrays.asList(4L, 3L), values(snapshot));
+        assertFalse(snapshot.get(3, record));
+    }
+
+    @Test
+    public void clearHidesOldRecords() {
+        SettingsRecordTable table = table(4, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        SettingsChangeRecord record = new SettingsChangeRecord();
+        table.append(record.set(BRIGHTNESS, 1, 1, null, 1, 1, 1));
+        table.clear();
+        assertTrue(table.isEmpty());
+        table.append(record.set(BRIGHTNESS, 2, 2, null, 2, 2, 1));
+        assertEquals(Arrays.asList(2L), values(table.snapshot()));
+    }
+}
@@ -0,0 +1,106 @@
+package com.demo.androidtest.feature.settings;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SettingsSnapshotDiffer 快照比对单元测试
+ */
+public class SettingsSnapshotDifferTest {
+    private final List<String> mDiffs = new ArrayList<>();
+    private final SettingsSnapshotDiffer.Sink mSink = (key, value, removed) ->
+            mDiffs.add(removed ? "-" + key : key + "=" + value);
+
+    private int scan(SettingsSnapshotDiffer differ, String... rows) {
+        differ.begin();
+        for (int i = 0; i < rows.length; i += 2) {
+            char[] name = rows[i].toCharArray();
+            char[] value = rows[i + 1] != null ? rows[i + 1].toCharArray() : null;
+            differ.offer(name, name.length, value, value != null ? value.length : 0, mSink);
+        }
+        return differ.finish(mSink);
+    }
+
+    @Test
+    public void firstScanOnlyBuildsBaseline() {
+        SettingsSnapshotDiffer differ = new SettingsSnapshotDiffer();
+        assertEquals(0, scan(differ, "a", "1", "b", "2"));
+        assertTrue(mDiffs.isEmpty());
+        assertTrue(differ.hasBaseline());
+        assertEquals(2, differ.size());
+    }
+
+    @Test
+    public void reportsChangedAddedAndRemovedKeys() {
+        SettingsSnapshotDiffer differ = new SettingsSnapshotDiffer();
+        scan(differ, "a", "1", "b", "2", "c", null);
+        assertEquals(3, scan(differ, "a", "1", "b", "3", "d", "4"));
+        assertTrue(mDiffs.contains("b=3"));
+        assertTrue(mDiffs.contains("d=4"));
+        assertTrue(mDiffs.contains("-c"));
+        // 无变化时不再报告
+        mDiffs.clear();
+        assertEquals(0, scan(differ, "a", "1", "b", "3", "d", "4"));
+        assertTrue(mDiffs.isEmpty());
+    }
+
+    @Test
+    public void nullAndEmptyValuesDiffer() {
+        SettingsSnapshotDiffer differ = new SettingsSnapshotDiffer();
+        scan(differ, "a", null);
+        assertEquals(1, scan(differ, "a", ""));
+        assertEquals("a=", mDiffs.get(0));
+    }
+
+    @Test
+    public void observedKeysAreNotReportedTwice() {
+        SettingsSnapshotDiffer differ = new SettingsSnapshotDiffer();
+        scan(differ, "a", "1", "b", "2");
+        differ.markObserved("a");
+        differ.markObserved("a");
+        assertEquals(1, scan(differ, "a", "5", "b", "6"));
+        assertEquals("b=6", mDiffs.get(0));
+        // 标记只对下一轮有效
+        mDiffs.clear();
+        assertEquals(1, scan(differ, "a", "7", "b", "6"));
+        assertEquals("a=7", mDiffs.get(0));
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        SettingsSnapshotDiffer differ = new SettingsSnapshotDiffer();
+        String[] rows = new String[1000];
+        for (int i = 0; i < rows.length; i += 2) {
+            rows[i] = "key_" + i;
+            rows[i + 1] = String.valueOf(i);
+        }
+        scan(differ, rows);
+        assertEquals(500, differ.size());
+        rows[101] = "changed";
+        assertEquals(1, scan(differ, rows));
+        assertEquals("key_100=changed", mDiffs.get(0));
+    }
+
+    @Test
+    public void persistedSnapshotDetectsChangesAcrossRestart() throws IOException {
+        SettingsSnapshotDiffer differ = new SettingsSnapshotDiffer();
+        scan(differ, "a", "1", "b", "2");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        differ.writeTo(new DataOutputStream(bytes));
+
+        SettingsSnapshotDiffer restored = new SettingsSnapshotDiffer();
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(restored.hasBaseline());
+        assertEquals(1, scan(restored, "a", "1", "b", "9"));
+        assertEquals("b=9", mDiffs.get(0));
+    }
+}
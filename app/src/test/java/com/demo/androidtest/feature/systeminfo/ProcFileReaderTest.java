@@ -0,0 +1,65 @@
+package com.demo.androidtest.feature.systeminfo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProcFileReader 字节级解析单元测试
+ */
+public class ProcFileReaderTest {
+    @Rule
+    public TemporaryFolder mTemp = new TemporaryFolder();
+
+    private File write(String content) throws IOException {
+        File file = mTemp.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+        return file;
+    }
+
+    @Test
+    public void parsesCpuLineAndMeminfo() throws IOException {
+        ProcFileReader stat = new ProcFileReader(write(
+                "cpu  100 20 30 400 5 6 7 0 0 0\ncpu0 1 2 3 4\nintr 123\n").getPath());
+        stat.read();
+        assertTrue(stat.seekLine("cpu ".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(100, stat.nextLong());
+        assertEquals(20, stat.nextLong());
+        stat.skipFields(1);
+        assertEquals(400, stat.nextLong());
+        stat.close();
+
+        ProcFileReader meminfo = new ProcFileReader(write(
+                "MemTotal:        3859036 kB\nMemFree:          123 kB\nMemAvailable:    1627496 kB\n").getPath());
+        meminfo.read();
+        assertTrue(meminfo.seekLine("MemTotal:".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(3859036, meminfo.nextLong());
+        assertTrue(meminfo.seekLine("MemAvailable:".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(1627496, meminfo.nextLong());
+        assertFalse(meminfo.seekLine("SwapTotal:".getBytes(StandardCharsets.US_ASCII)));
+        meminfo.close();
+    }
+
+    @Test
+    public void skipsProcessNameWithSpacesAndRereads() throws IOException {
+        File file = write("1234 (my app (x)) S 1 2 3 4 5 6 7 8 9 10 250 75 0 0\n");
+        ProcFileReader reader = new ProcFileReader(file.getPath());
+        for (int i = 0; i < 2; i++) {
+            reader.read();
+            assertTrue(reader.seekAfterLast((byte) ')'));
+            reader.skipFields(11);
+            assertEquals(250, reader.nextLong());
+            assertEquals(75, reader.nextLong());
+        }
+        reader.close();
+    }
+}
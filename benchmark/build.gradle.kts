@@ -0,0 +1,61 @@
+// JVM基准（JMH）：直接编译app中不依赖Context的热路径源码，在开发机上快速对比
+// 运行：./gradlew :benchmark:jmh [-Pjmh.includes=RecordStore]
+plugins {
+    id("java-library")
+    id("me.champeau.jmh")
+}
+
+val androidAll = "org.robolectric:android-all:13-robolectric-9030017"
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            // 只取纯逻辑类（android.*仅用到可在JVM上运行的部分，如JsonReader、Uri）
+            include(
+                "com/demo/androidtest/benchmark/**",
+                "com/demo/androidtest/model/TestItem.java",
+                "com/demo/androidtest/base/TestCatalogParser.java",
+                "com/demo/androidtest/base/TestCatalogSnapshot.java",
+                "com/demo/androidtest/feature/settings/ForegroundAppTracker.java",
+                "com/demo/androidtest/feature/settings/InternTable.java",
+                "com/demo/androidtest/feature/settings/MonitoredField.java",
+                "com/demo/androidtest/feature/settings/RecordTimeFormatter.java",
+                "com/demo/androidtest/feature/settings/SettingsChangeCoalescer.java",
+                "com/demo/androidtest/feature/settings/SettingsChangeRecord.java",
+                "com/demo/androidtest/feature/settings/SettingsChangeStats.java",
+                "com/demo/androidtest/feature/settings/SettingsRecordStore.java",
+                "com/demo/androidtest/feature/settings/SettingsRecordIndex.java",
+                "com/demo/androidtest/feature/settings/SettingsRecordTable.java"
+            )
+        }
+    }
+}
+
+dependencies {
+    // 设备上由系统提供，:microbenchmark 复用本模块时不能打包进去
+    compileOnly(androidAll)
+    jmhImplementation(androidAll)
+}
+
+jmh {
+    jmhVersion.set("1.36")
+    // 平均耗时 + 每次操作的分配字节数（gc.alloc.rate.norm）
+    benchmarkMode.set(listOf("avgt"))
+    timeUnit.set("ns")
+    profilers.add("gc")
+    fork.set(2)
+    warmupIterations.set(5)
+    iterations.set(10)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
+
+extra["benchmarkFormat"] = "jmh"
+apply(from = rootProject.file("gradle/benchmark-baseline.gradle.kts"))
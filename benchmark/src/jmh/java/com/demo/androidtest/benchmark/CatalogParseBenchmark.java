@@ -0,0 +1,64 @@
+package com.demo.androidtest.benchmark;
+
+import com.demo.androidtest.base.TestCatalogParser;
+import com.demo.androidtest.base.TestCatalogSnapshot;
+import com.demo.androidtest.model.TestItem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测试目录加载（TestConfigManager的两条路径）：冷启动流式解析JSON、热启动读取二进制快照
+ */
+@State(Scope.Thread)
+public class CatalogParseBenchmark {
+    @Param({"16", "256", "4096"})
+    public int size;
+
+    private byte[] mJson;
+    private File mSnapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        mJson = BenchmarkFixtures.catalogJson(size);
+        List<TestItem> items = parse();
+        mSnapshotFile = File.createTempFile("catalog", ".bin");
+        new TestCatalogSnapshot(0, 0, items).write(mSnapshotFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mSnapshotFile.delete();
+    }
+
+    @Benchmark
+    public List<TestItem> parse() throws IOException {
+        List<TestItem> items = new ArrayList<>();
+        TestCatalogParser.parse(new ByteArrayInputStream(mJson), new TestCatalogParser.Sink() {
+            @Override
+            public void onItem(TestItem item) {
+                items.add(item);
+            }
+
+            @Override
+            public void onSkipped(int index, String reason) {
+            }
+        });
+        return items;
+    }
+
+    @Benchmark
+    public TestCatalogSnapshot readSnapshot() {
+        return TestCatalogSnapshot.read(mSnapshotFile);
+    }
+}
@@ -0,0 +1,42 @@
+package com.demo.androidtest.benchmark;
+
+import com.demo.androidtest.feature.settings.SettingsChangeRecord;
+import com.demo.androidtest.feature.settings.SettingsChangeStats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 修改统计：单条计入的开销，以及UI复制统计（与窗口大小成正比，与记录数无关）
+ */
+@State(Scope.Thread)
+public class ChangeStatsBenchmark {
+    private static final int RECORDS = 4096;
+
+    private SettingsChangeRecord[] mRecords;
+    private final SettingsChangeStats mStats = new SettingsChangeStats();
+    private final SettingsChangeStats.Summary mSummary = new SettingsChangeStats.Summary();
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        mRecords = BenchmarkFixtures.records(RECORDS);
+        for (SettingsChangeRecord record : mRecords) {
+            mStats.add(record);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        mStats.add(mRecords[mNext]);
+        mNext = (mNext + 1) & (RECORDS - 1);
+    }
+
+    @Benchmark
+    public int snapshot() {
+        mStats.snapshot(mRecords[RECORDS - 1].time, mSummary);
+        return mSummary.rows;
+    }
+}
@@ -0,0 +1,31 @@
+package com.demo.androidtest.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 每个原始事件的消费开销
+ * <p>
+ * 1k事件/秒的预算：每事件耗时 × 1000 即占用单核的比例，例如10µs/事件 = 1%；
+ * 分配量 × 1000 即每秒分配字节数。windowMs=0为不合并的最坏情况，300为默认合并窗口。
+ */
+@State(Scope.Thread)
+public class EventHotPathBenchmark {
+    @Param({"0", "300"})
+    public long windowMs;
+
+    private EventHotPath mHotPath;
+
+    @Setup
+    public void setUp() {
+        mHotPath = new EventHotPath(windowMs);
+    }
+
+    @Benchmark
+    public long onEvent() {
+        return mHotPath.onEvent();
+    }
+}
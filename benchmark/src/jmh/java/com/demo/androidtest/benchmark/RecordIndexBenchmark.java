@@ -0,0 +1,76 @@
+package com.demo.androidtest.benchmark;
+
+import com.demo.androidtest.feature.settings.MonitoredField;
+import com.demo.androidtest.feature.settings.SettingsChangeRecord;
+import com.demo.androidtest.feature.settings.SettingsRecordIndex;
+import com.demo.androidtest.feature.settings.SettingsRecordStore;
+import com.demo.androidtest.feature.settings.SettingsRecordTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 修改记录二级索引：按字段/包名/时间窗口的计数与筛选（目标：数十万条记录下亚毫秒）
+ * <p>
+ * scan*为逐条解码快照的对照实现。
+ */
+@State(Scope.Thread)
+public class RecordIndexBenchmark {
+    @Param({"4096", "262144"})
+    public int records;
+
+    private SettingsRecordTable mTable;
+    private SettingsRecordIndex mIndex;
+    private MonitoredField mField;
+    private final SettingsRecordIndex.Query mQuery = new SettingsRecordIndex.Query();
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+    private final long[] mSeqs = new long[100];
+    private long mWindowFrom;
+    private long mWindowTo;
+
+    @Setup
+    public void setUp() {
+        SettingsChangeRecord[] fixtures = BenchmarkFixtures.records(records);
+        mTable = new SettingsRecordTable(records, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        for (SettingsChangeRecord record : fixtures) {
+            mTable.append(record);
+        }
+        mIndex = mTable.index();
+        mField = fixtures[1].field;
+        // 最近10%的时间窗口
+        mWindowTo = fixtures[records - 1].time;
+        mWindowFrom = mWindowTo - (mWindowTo - fixtures[0].time) / 10;
+    }
+
+    @Benchmark
+    public int countByField() {
+        return mIndex.count(mQuery.reset().field(mField));
+    }
+
+    @Benchmark
+    public int countByFieldAndPackageInWindow() {
+        return mIndex.count(mQuery.reset().field(mField).modifierPkg("com.demo.modifier1")
+                .timeRange(mWindowFrom, mWindowTo));
+    }
+
+    @Benchmark
+    public int selectLatestByPackage() {
+        return mIndex.select(mQuery.reset().modifierPkg("com.demo.modifier3"), mSeqs);
+    }
+
+    @Benchmark
+    public int scanCountByFieldAndPackageInWindow() {
+        SettingsRecordTable.Snapshot snapshot = mTable.snapshot();
+        int count = 0;
+        for (int i = 0; i < snapshot.size() && snapshot.get(i, mRecord); i++) {
+            if (mRecord.field == mField && "com.demo.modifier1".equals(mRecord.modifierPkg)
+                    && mRecord.time >= mWindowFrom && mRecord.time <= mWindowTo) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,68 @@
+package com.demo.androidtest.benchmark;
+
+import com.demo.androidtest.feature.settings.SettingsChangeRecord;
+import com.demo.androidtest.feature.settings.SettingsRecordStore;
+import com.demo.androidtest.feature.settings.SettingsRecordTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 记录存储：写入（已满，覆盖最旧）和UI侧快照遍历
+ * <p>
+ * table*为服务使用的列式存储（SettingsRecordTable），store*为按对象保存的环形存储，作为对照。
+ */
+@State(Scope.Thread)
+public class RecordStoreBenchmark {
+    @Param({"OVERWRITE_OLDEST", "DROP_NEWEST"})
+    public SettingsRecordStore.OverwritePolicy policy;
+
+    private SettingsRecordStore<SettingsChangeRecord> mStore;
+    private SettingsRecordTable mTable;
+    private SettingsChangeRecord[] mRecords;
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        mRecords = BenchmarkFixtures.records(EventHotPath.RECORD_CAPACITY);
+        mStore = new SettingsRecordStore<>(EventHotPath.RECORD_CAPACITY, policy);
+        mTable = new SettingsRecordTable(EventHotPath.RECORD_CAPACITY, policy);
+        for (SettingsChangeRecord record : mRecords) {
+            mStore.append(record);
+            mTable.append(record);
+        }
+    }
+
+    @Benchmark
+    public long storeAppend() {
+        return mStore.append(mRecords[mIndex++ & (EventHotPath.RECORD_CAPACITY - 1)]);
+    }
+
+    @Benchmark
+    public long storeSnapshotIterate() {
+        long sum = 0;
+        for (SettingsChangeRecord record : mStore.snapshot()) {
+            sum += record.time;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long tableAppend() {
+        return mTable.append(mRecords[mIndex++ & (EventHotPath.RECORD_CAPACITY - 1)]);
+    }
+
+    @Benchmark
+    public long tableSnapshotIterate() {
+        long sum = 0;
+        SettingsRecordTable.Snapshot snapshot = mTable.snapshot();
+        for (int i = 0; i < snapshot.size() && snapshot.get(i, mRecord); i++) {
+            sum += mRecord.time;
+        }
+        return sum;
+    }
+}
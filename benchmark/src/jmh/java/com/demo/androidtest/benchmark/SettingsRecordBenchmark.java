@@ -0,0 +1,68 @@
+package com.demo.androidtest.benchmark;
+
+import com.demo.androidtest.feature.settings.MonitoredField;
+import com.demo.androidtest.feature.settings.RecordTimeFormatter;
+import com.demo.androidtest.feature.settings.SettingsChangeRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 记录创建与格式化
+ * <p>
+ * appendSummary是悬浮窗/日志使用的路径（复用StringBuilder和时间格式化器），
+ * toString每次新建二者，legacyFormat为改造前的写法（SimpleDateFormat + 字符串拼接），作为对照。
+ */
+@State(Scope.Thread)
+public class SettingsRecordBenchmark {
+    private static final int RECORDS = 1024;
+
+    private MonitoredField[] mFields;
+    private SettingsChangeRecord[] mRecords;
+    private final StringBuilder mSb = new StringBuilder(128);
+    private final RecordTimeFormatter mTimeFormatter = new RecordTimeFormatter();
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        mFields = BenchmarkFixtures.fields();
+        mRecords = BenchmarkFixtures.records(RECORDS);
+    }
+
+    private SettingsChangeRecord next() {
+        return mRecords[mIndex++ & (RECORDS - 1)];
+    }
+
+    @Benchmark
+    public SettingsChangeRecord create() {
+        int i = mIndex++;
+        MonitoredField field = mFields[i & 7];
+        return new SettingsChangeRecord(field, i, i + 1, "com.demo.modifier",
+                BenchmarkFixtures.BASE_TIME, BenchmarkFixtures.BASE_TIME + i, 2);
+    }
+
+    @Benchmark
+    public int appendSummary() {
+        mSb.setLength(0);
+        return next().appendSummary(mSb, mTimeFormatter).length();
+    }
+
+    @Benchmark
+    public String toStringFormat() {
+        return next().toString();
+    }
+
+    @Benchmark
+    public String legacyFormat() {
+        SettingsChangeRecord record = next();
+        StringBuilder value = record.appendValue(new StringBuilder());
+        return "[" + new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date(record.time)) + "] "
+                + record.field.displayName + " = " + value + " (修改者：" + record.modifierPkg + ")";
+    }
+}
@@ -0,0 +1,102 @@
+package com.demo.androidtest.benchmark;
+
+import com.demo.androidtest.feature.settings.InternTable;
+import com.demo.androidtest.feature.settings.MonitoredField;
+import com.demo.androidtest.feature.settings.SettingsChangeRecord;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JMH与androidx.benchmark共用的基准数据
+ * <p>
+ * 字段和目录条目按真实配置的形态构造（assets/settings_fields.json、assets/test_items.json），
+ * 所有数据在setup阶段生成，测量循环内只执行被测代码。
+ */
+public final class BenchmarkFixtures {
+    // 目标负载：每秒1000个原始事件
+    public static final int EVENTS_PER_SECOND = 1000;
+    // 基准时间点（固定值，保证格式化分支一致）
+    public static final long BASE_TIME = 1_760_000_000_000L;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 监听字段：每种值类型各若干个
+     */
+    public static MonitoredField[] fields() {
+        return new MonitoredField[]{
+                new MonitoredField(0, MonitoredField.Namespace.SYSTEM, "screen_brightness",
+                        MonitoredField.ValueType.INT, "屏幕亮度", ""),
+                new MonitoredField(1, MonitoredField.Namespace.SYSTEM, "screen_off_timeout",
+                        MonitoredField.ValueType.LONG, "休眠时间", "ms"),
+                new MonitoredField(2, MonitoredField.Namespace.SYSTEM, "font_scale",
+                        MonitoredField.ValueType.FLOAT, "字体缩放", "x"),
+                new MonitoredField(3, MonitoredField.Namespace.SECURE, "default_input_method",
+                        MonitoredField.ValueType.STRING, "默认输入法", ""),
+                new MonitoredField(4, MonitoredField.Namespace.GLOBAL, "airplane_mode_on",
+                        MonitoredField.ValueType.INT, "飞行模式", ""),
+                new MonitoredField(5, MonitoredField.Namespace.GLOBAL, "wifi_on",
+                        MonitoredField.ValueType.INT, "WLAN", ""),
+                new MonitoredField(6, MonitoredField.Namespace.SYSTEM, "volume_music",
+                        MonitoredField.ValueType.INT, "媒体音量", ""),
+                new MonitoredField(7, MonitoredField.Namespace.SECURE, "location_mode",
+                        MonitoredField.ValueType.INT, "定位模式", ""),
+        };
+    }
+
+    /**
+     * 字段对应的一个原始值槽位（字符串值驻留到strings）
+     */
+    public static long sampleValue(MonitoredField field, int seed, InternTable strings) {
+        switch (field.type) {
+            case FLOAT:
+                return Float.floatToIntBits(1.0f + (seed % 4) * 0.15f);
+            case STRING:
+                return strings.intern("com.demo.ime/.Ime" + (seed % 4));
+            default:
+                return seed % 256;
+        }
+    }
+
+    /**
+     * 预先生成的记录（格式化基准用），首条为合并多次事件的突发
+     */
+    public static SettingsChangeRecord[] records(int count) {
+        MonitoredField[] fields = fields();
+        InternTable strings = SettingsChangeRecord.VALUE_STRINGS;
+        SettingsChangeRecord[] records = new SettingsChangeRecord[count];
+        for (int i = 0; i < count; i++) {
+            MonitoredField field = fields[i % fields.length];
+            long time = BASE_TIME + i * 1000L / EVENTS_PER_SECOND;
+            int eventCount = i % 3 == 0 ? 5 : 1;
+            records[i] = new SettingsChangeRecord(field, sampleValue(field, i, strings),
+                    sampleValue(field, i + eventCount, strings), "com.demo.modifier" + (i % 8),
+                    time - (eventCount - 1) * 40L, time, eventCount);
+        }
+        return records;
+    }
+
+    /**
+     * 生成size条目的测试目录JSON；每隔几条带有解析器需要跳过的字段，末尾夹杂一条无效条目
+     */
+    public static byte[] catalogJson(int size) {
+        StringBuilder sb = new StringBuilder(size * 120 + 16).append("[\n");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(",\n");
+            if (i == size / 2 && size > 2) {
+                // 缺少activityClass：解析器跳过该条目
+                sb.append("  {\"title\": \"Broken").append(i).append("\"}");
+                continue;
+            }
+            sb.append("  {\"title\": \"测试项").append(i)
+                    .append("\", \"activityClass\": \"com.demo.androidtest.feature.item")
+                    .append(i).append(".TestItem").append(i).append("Activity\"");
+            if (i % 4 == 0) {
+                sb.append(", \"tags\": [\"perf\", \"ui\"], \"params\": {\"repeat\": 3, \"mode\": \"fast\"}");
+            }
+            sb.append('}');
+        }
+        return sb.append("\n]\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package com.demo.androidtest.benchmark;
+
+import com.demo.androidtest.feature.settings.InternTable;
+import com.demo.androidtest.feature.settings.MonitoredField;
+import com.demo.androidtest.feature.settings.SettingsChangeCoalescer;
+import com.demo.androidtest.feature.settings.SettingsChangeRecord;
+import com.demo.androidtest.feature.settings.SettingsRecordStore;
+import com.demo.androidtest.feature.settings.SettingsRecordTable;
+
+/**
+ * 消费线程单个原始事件的处理路径（与SettingsMonitorService.consumeBatch一致）：
+ * 合并 → 突发结束时填充复用的记录载体 → 写入列式记录存储
+ * <p>
+ * 字段值读取（ContentResolver IPC）和前台应用归属不在此路径内，用预先生成的值代替；
+ * 事件时间每次前进1ms，即每秒1000个事件。windowMs为0时每个事件都产出一条记录（最坏情况）。
+ */
+public final class EventHotPath implements SettingsChangeCoalescer.Sink {
+    // 每批事件数：消费线程按批处理，每批结束时冲刷到期的突发
+    public static final int BATCH = 16;
+    // 与SettingsMonitorService.RECORD_CAPACITY一致（Service依赖Context，不在基准源码集中）
+    public static final int RECORD_CAPACITY = 4096;
+    private static final String MODIFIER_PKG = "com.demo.modifier";
+
+    private final MonitoredField[] mFields = BenchmarkFixtures.fields();
+    private final long[] mValues = new long[mFields.length];
+    private final SettingsChangeCoalescer mCoalescer;
+    private final SettingsRecordTable mTable = new SettingsRecordTable(
+            RECORD_CAPACITY, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+    private final SettingsChangeRecord mRecord = new SettingsChangeRecord();
+    private long mTime = BenchmarkFixtures.BASE_TIME;
+    private int mEvent;
+    private long mLatestSeq = -1;
+
+    public EventHotPath(long windowMs) {
+        mCoalescer = new SettingsChangeCoalescer(windowMs, SettingsChangeCoalescer.DEFAULT_MAX_SPAN_MS);
+        InternTable strings = SettingsChangeRecord.VALUE_STRINGS;
+        for (int i = 0; i < mFields.length; i++) {
+            mValues[i] = BenchmarkFixtures.sampleValue(mFields[i], i, strings);
+        }
+    }
+
+    /**
+     * 处理一个原始事件
+     *
+     * @return 最近产出的记录序号（防止被JIT消除）
+     */
+    public long onEvent() {
+        int fieldId = mEvent++ % mFields.length;
+        mTime += 1000 / BenchmarkFixtures.EVENTS_PER_SECOND;
+        SettingsChangeCoalescer.Burst burst = mCoalescer.onEvent(fieldId, mTime, this);
+        if (burst.isNew()) {
+            burst.modifierPkg = MODIFIER_PKG;
+            burst.firstValue = mValues[fieldId];
+        }
+        if (mEvent % BATCH == 0) {
+            mCoalescer.flushExpired(mTime, this);
+        }
+        return mLatestSeq;
+    }
+
+    public SettingsRecordTable table() {
+        return mTable;
+    }
+
+    @Override
+    public void onBurstClosed(SettingsChangeCoalescer.Burst burst) {
+        SettingsChangeRecord record = mRecord.set(mFields[burst.fieldId], burst.firstValue,
+                mValues[burst.fieldId], burst.modifierPkg, burst.firstTime, burst.lastTime, burst.eventCount);
+        record.attributionAgeMs = burst.attributionAgeMs;
+        mLatestSeq = mTable.append(record);
+    }
+}
@@ -0,0 +1,119 @@
+// 基准结果与基线文件对比，:benchmark（JMH）和 :microbenchmark（androidx.benchmark）共用
+// 应用前设置 extra["benchmarkFormat"] = "jmh" 或 "androidx"
+//
+// 基线只能在参考设备/机器上生成（结果与硬件相关），流程：
+//   1. 运行基准（:benchmark:jmh 或 :microbenchmark:connectedReleaseAndroidTest）
+//   2. ./gradlew :<module>:updateBenchmarkBaseline  生成 baselines/<format>-baseline.json 并提交
+//   3. 之后每次运行基准后执行 :<module>:checkBenchmarkBaseline，耗时或分配超出容差时失败
+// 容差：-Pbenchmark.timeTolerance=0.15 -Pbenchmark.allocTolerance=0.05（相对值）
+
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+
+val benchmarkFormat = project.extra["benchmarkFormat"] as String
+val baselineFile = project.file("baselines/$benchmarkFormat-baseline.json")
+val allocUnit = if (benchmarkFormat == "jmh") "B/op" else "allocs/op"
+
+// 单个用例的结果：耗时（ns/op）和分配量（B/op 或 allocs/op，未采集时为-1）
+data class CaseResult(val time: Double, val alloc: Double)
+
+fun resultsFile(): File {
+    if (benchmarkFormat == "jmh") {
+        return layout.buildDirectory.file("results/jmh/results.json").get().asFile
+    }
+    // connectedAndroidTest把每台设备的结果拉取到这里，取最新的一份
+    val dir = layout.buildDirectory.dir("outputs/connected_android_test_additional_output").get().asFile
+    return dir.walkTopDown().filter { it.name.endsWith("benchmarkData.json") }
+        .maxByOrNull { it.lastModified() }
+        ?: throw GradleException("未找到基准结果，请先运行 connectedReleaseAndroidTest")
+}
+
+@Suppress("UNCHECKED_CAST")
+fun readResults(file: File): Map<String, CaseResult> {
+    if (!file.isFile) throw GradleException("未找到基准结果：$file")
+    val json = JsonSlurper().parse(file)
+    val results = sortedMapOf<String, CaseResult>()
+    if (benchmarkFormat == "jmh") {
+        for (entry in json as List<Map<String, Any?>>) {
+            val params = (entry["params"] as Map<String, Any?>?)
+                ?.entries?.joinToString(",", "[", "]") { "${it.key}=${it.value}" } ?: ""
+            // 类名.方法名[参数]
+            val name = (entry["benchmark"] as String).split('.').takeLast(2).joinToString(".") + params
+            val time = ((entry["primaryMetric"] as Map<String, Any?>)["score"] as Number).toDouble()
+            // JMH 1.36前缀为"·"，1.37起没有前缀
+            val alloc = (entry["secondaryMetrics"] as Map<String, Any?>?)
+                ?.entries?.firstOrNull { it.key.endsWith("gc.alloc.rate.norm") }
+                ?.let { ((it.value as Map<String, Any?>)["score"] as Number).toDouble() } ?: -1.0
+            results[name] = CaseResult(time, alloc)
+        }
+    } else {
+        for (entry in (json as Map<String, Any?>)["benchmarks"] as List<Map<String, Any?>>) {
+            val name = (entry["className"] as String).substringAfterLast('.') + "." + entry["name"]
+            val metrics = entry["metrics"] as Map<String, Any?>
+            fun median(key: String) = (metrics[key] as Map<String, Any?>?)
+                ?.let { (it["median"] as Number).toDouble() } ?: -1.0
+            results[name] = CaseResult(median("timeNs"), median("allocationCount"))
+        }
+    }
+    return results
+}
+
+@Suppress("UNCHECKED_CAST")
+fun readBaseline(): Map<String, CaseResult> {
+    if (!baselineFile.isFile) {
+        throw GradleException("基线文件不存在：$baselineFile，请先在参考设备上运行 updateBenchmarkBaseline")
+    }
+    val cases = (JsonSlurper().parse(baselineFile) as Map<String, Any?>)["cases"] as Map<String, Map<String, Any?>>
+    return cases.mapValues { (_, v) -> CaseResult((v["time"] as Number).toDouble(), (v["alloc"] as Number).toDouble()) }
+}
+
+tasks.register("updateBenchmarkBaseline") {
+    group = "benchmark"
+    description = "用最近一次基准结果覆盖基线文件"
+    doLast {
+        val results = readResults(resultsFile())
+        val json = mapOf(
+            "format" to benchmarkFormat,
+            "units" to mapOf("time" to "ns/op", "alloc" to allocUnit),
+            "cases" to results.mapValues { (_, r) -> mapOf("time" to r.time, "alloc" to r.alloc) }
+        )
+        baselineFile.parentFile.mkdirs()
+        baselineFile.writeText(JsonOutput.prettyPrint(JsonOutput.toJson(json)) + "\n")
+        logger.lifecycle("已写入 ${results.size} 个用例的基线：$baselineFile")
+    }
+}
+
+tasks.register("checkBenchmarkBaseline") {
+    group = "benchmark"
+    description = "对比最近一次基准结果与基线，耗时或分配超出容差时失败"
+    doLast {
+        val timeTolerance = (findProperty("benchmark.timeTolerance") as String?)?.toDouble() ?: 0.15
+        val allocTolerance = (findProperty("benchmark.allocTolerance") as String?)?.toDouble() ?: 0.05
+        val baseline = readBaseline()
+        val results = readResults(resultsFile())
+        val regressions = mutableListOf<String>()
+        for ((name, current) in results) {
+            val base = baseline[name]
+            if (base == null) {
+                logger.warn("基线中没有用例 $name，跳过")
+                continue
+            }
+            val line = String.format("%-60s time %10.1f -> %10.1f ns/op   alloc %10.1f -> %10.1f %s",
+                name, base.time, current.time, base.alloc, current.alloc, allocUnit)
+            logger.lifecycle(line)
+            if (current.time > base.time * (1 + timeTolerance)) {
+                regressions += "$name 耗时 ${base.time} -> ${current.time} ns/op"
+            }
+            // 分配量加1的绝对余量：避免0附近的抖动
+            if (base.alloc >= 0 && current.alloc > base.alloc * (1 + allocTolerance) + 1) {
+                regressions += "$name 分配 ${base.alloc} -> ${current.alloc} $allocUnit"
+            }
+        }
+        for (name in baseline.keys - results.keys) {
+            logger.warn("本次结果缺少基线用例 $name")
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("基准回归：\n" + regressions.joinToString("\n"))
+        }
+    }
+}
@@ -0,0 +1,39 @@
+// 设备上的基准（androidx.benchmark）：与 :benchmark 共用被测源码和数据，在真实ART上测量耗时和分配次数
+// 运行：./gradlew :microbenchmark:connectedReleaseAndroidTest（需连接设备，锁频设备结果更稳定）
+plugins {
+    id("com.android.library")
+    id("androidx.benchmark")
+}
+
+android {
+    namespace = "com.demo.androidtest.microbenchmark"
+    compileSdk = 33
+
+    defaultConfig {
+        minSdk = 29
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+    }
+
+    // 基准必须在不可调试的构建上运行
+    testBuildType = "release"
+    buildTypes {
+        release {
+            isDefault = true
+            signingConfig = signingConfigs.getByName("debug")
+        }
+    }
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_1_8
+        targetCompatibility = JavaVersion.VERSION_1_8
+    }
+}
+
+dependencies {
+    androidTestImplementation(project(":benchmark"))
+    androidTestImplementation("androidx.benchmark:benchmark-junit4:1.2.0")
+    androidTestImplementation("androidx.test.ext:junit:1.1.5")
+    androidTestImplementation("junit:junit:4.13.2")
+}
+
+extra["benchmarkFormat"] = "androidx"
+apply(from = rootProject.file("gradle/benchmark-baseline.gradle.kts"))
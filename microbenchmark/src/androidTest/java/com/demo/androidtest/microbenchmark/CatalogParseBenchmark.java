@@ -0,0 +1,60 @@
+package com.demo.androidtest.microbenchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.demo.androidtest.base.TestCatalogParser;
+import com.demo.androidtest.benchmark.BenchmarkFixtures;
+import com.demo.androidtest.model.TestItem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 测试目录流式解析（冷启动路径），目录大小与JMH的CatalogParseBenchmark一致
+ */
+@RunWith(Parameterized.class)
+public class CatalogParseBenchmark {
+
+    @Parameterized.Parameters(name = "size={0}")
+    public static List<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{16}, {256}, {4096}});
+    }
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final byte[] mJson;
+
+    public CatalogParseBenchmark(int size) {
+        mJson = BenchmarkFixtures.catalogJson(size);
+    }
+
+    @Test
+    public void parse() throws IOException {
+        List<TestItem> items = new ArrayList<>();
+        TestCatalogParser.Sink sink = new TestCatalogParser.Sink() {
+            @Override
+            public void onItem(TestItem item) {
+                items.add(item);
+            }
+
+            @Override
+            public void onSkipped(int index, String reason) {
+            }
+        };
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            items.clear();
+            TestCatalogParser.parse(new ByteArrayInputStream(mJson), sink);
+        }
+    }
+}
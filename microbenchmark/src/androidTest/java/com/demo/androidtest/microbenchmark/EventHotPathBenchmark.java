@@ -0,0 +1,58 @@
+package com.demo.androidtest.microbenchmark;
+
+import android.content.ContentResolver;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.demo.androidtest.benchmark.BenchmarkFixtures;
+import com.demo.androidtest.benchmark.EventHotPath;
+import com.demo.androidtest.feature.settings.InternTable;
+import com.demo.androidtest.feature.settings.MonitoredField;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 每个原始事件的消费开销（1k事件/秒：每事件耗时 × 1000 = 占用单核的比例）
+ * <p>
+ * readValue单独测量突发开始/结束时的Settings读取（跨进程），它只在新突发和多次事件的突发结束时发生。
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventHotPathBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void onEventNoCoalescing() {
+        measure(new EventHotPath(0));
+    }
+
+    @Test
+    public void onEventDefaultWindow() {
+        measure(new EventHotPath(300));
+    }
+
+    @Test
+    public void readValue() {
+        ContentResolver resolver = InstrumentationRegistry.getInstrumentation().getTargetContext()
+                .getContentResolver();
+        MonitoredField field = BenchmarkFixtures.fields()[0];
+        InternTable strings = new InternTable();
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            field.readValue(resolver, strings);
+        }
+    }
+
+    private void measure(EventHotPath hotPath) {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            hotPath.onEvent();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.demo.androidtest.microbenchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.demo.androidtest.benchmark.BenchmarkFixtures;
+import com.demo.androidtest.benchmark.EventHotPath;
+import com.demo.androidtest.feature.settings.MonitoredField;
+import com.demo.androidtest.feature.settings.RecordTimeFormatter;
+import com.demo.androidtest.feature.settings.SettingsChangeRecord;
+import com.demo.androidtest.feature.settings.SettingsRecordStore;
+import com.demo.androidtest.feature.settings.SettingsRecordTable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 记录创建、格式化和列式存储读写（与JMH的SettingsRecordBenchmark/RecordStoreBenchmark对应）
+ */
+@RunWith(AndroidJUnit4.class)
+public class SettingsRecordBenchmark {
+    private static final int RECORDS = 1024;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final MonitoredField[] mFields = BenchmarkFixtures.fields();
+    private final SettingsChangeRecord[] mRecords = BenchmarkFixtures.records(RECORDS);
+
+    @Test
+    public void create() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            i++;
+            new SettingsChangeRecord(mFields[i & 7], i, i + 1, "com.demo.modifier",
+                    BenchmarkFixtures.BASE_TIME, BenchmarkFixtures.BASE_TIME + i, 2);
+        }
+    }
+
+    @Test
+    public void appendSummary() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        StringBuilder sb = new StringBuilder(128);
+        RecordTimeFormatter timeFormatter = new RecordTimeFormatter();
+        int i = 0;
+        while (state.keepRunning()) {
+            sb.setLength(0);
+            mRecords[i++ & (RECORDS - 1)].appendSummary(sb, timeFormatter);
+        }
+    }
+
+    @Test
+    public void toStringFormat() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            mRecords[i++ & (RECORDS - 1)].toString();
+        }
+    }
+
+    @Test
+    public void tableAppend() {
+        SettingsRecordTable table = new SettingsRecordTable(
+                EventHotPath.RECORD_CAPACITY, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        for (int i = 0; i < EventHotPath.RECORD_CAPACITY; i++) {
+            table.append(mRecords[i & (RECORDS - 1)]);
+        }
+        BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            table.append(mRecords[i++ & (RECORDS - 1)]);
+        }
+    }
+
+    @Test
+    public void tableRead() {
+        SettingsRecordTable table = new SettingsRecordTable(
+                EventHotPath.RECORD_CAPACITY, SettingsRecordStore.OverwritePolicy.OVERWRITE_OLDEST);
+        for (int i = 0; i < EventHotPath.RECORD_CAPACITY; i++) {
+            table.append(mRecords[i & (RECORDS - 1)]);
+        }
+        SettingsChangeRecord record = new SettingsChangeRecord();
+        BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            table.read(i++ & (EventHotPath.RECORD_CAPACITY - 1), record);
+        }
+    }
+}
@@ -15,3 +15,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "AndroidTest"
 include(":app")
+include(":benchmark")
+include(":microbenchmark")
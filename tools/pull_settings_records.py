@@ -0,0 +1,104 @@
+#!/usr/bin/env python3
+"""从设备批量拉取Settings修改记录（不经过logcat）。
+
+用法：
+    adb forward tcp:7100 localabstract:com.demo.androidtest.settings_export
+    python3 tools/pull_settings_records.py --since 0 > records.jsonl
+
+每行输出一条JSON记录；--follow 追平后继续等待新记录。
+断开后以最后一条记录的 seq+1 作为 --since 重新运行即可续传。
+"""
+import argparse
+import json
+import socket
+import struct
+import sys
+
+MAGIC = 0x53435831
+FRAME_RECORD = 1
+FRAME_CAUGHT_UP = 2
+VALUE_TYPES = ["INT", "LONG", "FLOAT", "STRING"]
+
+
+class Reader:
+    def __init__(self, data):
+        self.data = data
+        self.pos = 0
+
+    def take(self, fmt):
+        value = struct.unpack_from(fmt, self.data, self.pos)
+        self.pos += struct.calcsize(fmt)
+        return value[0]
+
+    def string(self):
+        if not self.take(">?"):
+            return None
+        length = self.take(">H")
+        # Java modified UTF-8，对常见字符与UTF-8一致
+        value = self.data[self.pos:self.pos + length].decode("utf-8", "replace")
+        self.pos += length
+        return value
+
+
+def read_exact(sock, size):
+    buf = bytearray()
+    while len(buf) < size:
+        chunk = sock.recv(size - len(buf))
+        if not chunk:
+            raise EOFError()
+        buf += chunk
+    return bytes(buf)
+
+
+def decode_record(r):
+    record = {"seq": r.take(">q"), "key": r.string()}
+    value_type = VALUE_TYPES[r.take(">b")]
+    record["type"] = value_type
+    if value_type == "STRING":
+        record["firstValue"], record["value"] = r.string(), r.string()
+    else:
+        record["firstValue"], record["value"] = r.take(">q"), r.take(">q")
+        if value_type == "FLOAT":
+            for name in ("firstValue", "value"):
+                record[name] = struct.unpack(">f", struct.pack(">i", record[name] & 0xFFFFFFFF))[0]
+    record["modifierPkg"] = r.string()
+    record["firstTime"], record["time"] = r.take(">q"), r.take(">q")
+    record["eventCount"], record["attributionAgeMs"] = r.take(">i"), r.take(">q")
+    return record
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--port", type=int, default=7100)
+    parser.add_argument("--since", type=int, default=0)
+    parser.add_argument("--batch", type=int, default=8192, help="每次追加的额度（背压窗口）")
+    parser.add_argument("--follow", action="store_true")
+    args = parser.parse_args()
+
+    sock = socket.create_connection(("127.0.0.1", args.port))
+    sock.sendall(struct.pack(">iqi", MAGIC, args.since, args.batch))
+    received = 0
+    try:
+        while True:
+            length = struct.unpack(">i", read_exact(sock, 4))[0]
+            r = Reader(read_exact(sock, length))
+            frame_type = r.take(">b")
+            if frame_type == FRAME_CAUGHT_UP:
+                if not args.follow:
+                    break
+                continue
+            sys.stdout.write(json.dumps(decode_record(r), ensure_ascii=False) + "\n")
+            received += 1
+            # 处理完一半窗口时追加额度，保持数据流动且设备端缓冲有上限
+            if received % (args.batch // 2 or 1) == 0:
+                sock.sendall(struct.pack(">i", args.batch // 2 or 1))
+    except (EOFError, KeyboardInterrupt):
+        pass
+    finally:
+        sock.close()
+        sys.stdout.flush()
+    print("received %d records" % received, file=sys.stderr)
+
+
+if __name__ == "__main__":
+    main()